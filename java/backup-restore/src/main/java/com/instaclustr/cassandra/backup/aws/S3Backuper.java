@@ -4,10 +4,14 @@ import static com.amazonaws.event.ProgressEventType.TRANSFER_COMPLETED_EVENT;
 import static com.amazonaws.event.ProgressEventType.TRANSFER_FAILED_EVENT;
 import static java.util.Optional.ofNullable;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import com.amazonaws.AmazonClientException;
@@ -16,16 +20,21 @@ import com.amazonaws.event.ProgressEvent;
 import com.amazonaws.event.ProgressEventType;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
 import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.ListMultipartUploadsRequest;
 import com.amazonaws.services.s3.model.MultipartUploadListing;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
 import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.SSEAwsKeyManagementParams;
 import com.amazonaws.services.s3.model.StorageClass;
+import com.amazonaws.services.s3.model.UploadPartRequest;
 import com.amazonaws.services.s3.transfer.PersistableTransfer;
 import com.amazonaws.services.s3.transfer.TransferManager;
 import com.amazonaws.services.s3.transfer.internal.S3ProgressListener;
+import com.google.common.io.ByteStreams;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import com.instaclustr.cassandra.backup.aws.S3Module.TransferManagerProvider;
@@ -41,6 +50,9 @@ import org.slf4j.LoggerFactory;
 public class S3Backuper extends Backuper {
     private static final Logger logger = LoggerFactory.getLogger(S3Backuper.class);
 
+    // parts of streams of unknown size, the minimal part size of S3 is 5 MB
+    private static final int MULTIPART_PART_SIZE = 8 * 1024 * 1024;
+
     private final TransferManager transferManager;
 
     private final Optional<String> kmsId;
@@ -101,6 +113,19 @@ public class S3Backuper extends Backuper {
         }
     }
 
+    @Override
+    public InputStream openRemoteObject(final RemoteObjectReference object) throws NoSuchFileException {
+        try {
+            return transferManager.getAmazonS3Client().getObject(request.storageLocation.bucket, object.canonicalPath).getObjectContent();
+        } catch (final AmazonServiceException e) {
+            if (e.getStatusCode() != 404) {
+                throw e;
+            }
+
+            throw new NoSuchFileException(object.canonicalPath);
+        }
+    }
+
     @Override
     public void uploadFile(
             final long size,
@@ -109,6 +134,16 @@ public class S3Backuper extends Backuper {
             final OperationProgressTracker operationProgressTracker) throws Exception {
         final S3RemoteObjectReference s3RemoteObjectReference = (S3RemoteObjectReference) object;
 
+        if (size < 0) {
+            try {
+                uploadStream(localFileStream, s3RemoteObjectReference);
+            } finally {
+                operationProgressTracker.update();
+            }
+
+            return;
+        }
+
         final PutObjectRequest putObjectRequest = new PutObjectRequest(request.storageLocation.bucket,
                                                                        s3RemoteObjectReference.canonicalPath,
                                                                        localFileStream,
@@ -133,6 +168,66 @@ public class S3Backuper extends Backuper {
         }
     }
 
+    /**
+     * Uploads a stream of unknown size, e.g. one compressed as it is read, in parts buffered in memory one at a time,
+     * as the transfer manager would otherwise buffer the whole stream to learn its size.
+     */
+    private void uploadStream(final InputStream stream, final S3RemoteObjectReference object) throws Exception {
+        final AmazonS3 s3Client = transferManager.getAmazonS3Client();
+        final byte[] part = new byte[MULTIPART_PART_SIZE];
+
+        int partLength = ByteStreams.read(stream, part, 0, part.length);
+
+        if (partLength < part.length) {
+            // fits into a single part, no need for a multipart upload
+            final ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(partLength);
+
+            final PutObjectRequest putObjectRequest = new PutObjectRequest(request.storageLocation.bucket,
+                                                                           object.canonicalPath,
+                                                                           new ByteArrayInputStream(part, 0, partLength),
+                                                                           metadata);
+
+            kmsId.ifPresent(id -> putObjectRequest.withSSEAwsKeyManagementParams(new SSEAwsKeyManagementParams(id)));
+
+            s3Client.putObject(putObjectRequest);
+            return;
+        }
+
+        final InitiateMultipartUploadRequest initiateRequest = new InitiateMultipartUploadRequest(request.storageLocation.bucket, object.canonicalPath);
+        kmsId.ifPresent(id -> initiateRequest.withSSEAwsKeyManagementParams(new SSEAwsKeyManagementParams(id)));
+
+        final String uploadId = s3Client.initiateMultipartUpload(initiateRequest).getUploadId();
+
+        try {
+            final List<PartETag> partETags = new ArrayList<>();
+
+            for (int partNumber = 1; partLength > 0; partNumber++) {
+                final UploadPartRequest uploadPartRequest = new UploadPartRequest().withBucketName(request.storageLocation.bucket)
+                                                                                   .withKey(object.canonicalPath)
+                                                                                   .withUploadId(uploadId)
+                                                                                   .withPartNumber(partNumber)
+                                                                                   .withInputStream(new ByteArrayInputStream(part, 0, partLength))
+                                                                                   .withPartSize(partLength);
+
+                partETags.add(s3Client.uploadPart(uploadPartRequest).getPartETag());
+                logger.debug("Successfully uploaded part {} for {}.", partNumber, object.canonicalPath);
+
+                partLength = ByteStreams.read(stream, part, 0, part.length);
+            }
+
+            s3Client.completeMultipartUpload(new CompleteMultipartUploadRequest(request.storageLocation.bucket, object.canonicalPath, uploadId, partETags));
+        } catch (final Exception e) {
+            try {
+                s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(request.storageLocation.bucket, object.canonicalPath, uploadId));
+            } catch (final AmazonClientException abortException) {
+                e.addSuppressed(abortException);
+            }
+
+            throw e;
+        }
+    }
+
     private static class UploadProgressListener implements S3ProgressListener {
         private final S3RemoteObjectReference s3RemoteObjectReference;
 
@@ -2,7 +2,9 @@ package com.instaclustr.cassandra.backup.aws;
 
 import static java.util.Optional.ofNullable;
 
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Optional;
@@ -14,6 +16,7 @@ import com.amazonaws.event.ProgressEventType;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.transfer.PersistableTransfer;
 import com.amazonaws.services.s3.transfer.TransferManager;
@@ -25,6 +28,7 @@ import com.instaclustr.cassandra.backup.impl.RemoteObjectReference;
 import com.instaclustr.cassandra.backup.impl.restore.RestoreCommitLogsOperationRequest;
 import com.instaclustr.cassandra.backup.impl.restore.RestoreOperationRequest;
 import com.instaclustr.cassandra.backup.impl.restore.Restorer;
+import com.instaclustr.cassandra.backup.impl.verify.VerifyBackupOperationRequest;
 import com.instaclustr.threading.Executors.ExecutorServiceSupplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,6 +57,15 @@ public class S3Restorer extends Restorer {
         this.amazonS3 = this.transferManager.getAmazonS3Client();
     }
 
+    @AssistedInject
+    public S3Restorer(final TransferManagerProvider transferManagerProvider,
+                      final ExecutorServiceSupplier executorServiceSupplier,
+                      @Assisted final VerifyBackupOperationRequest request) {
+        super(request, executorServiceSupplier);
+        this.transferManager = transferManagerProvider.get();
+        this.amazonS3 = this.transferManager.getAmazonS3Client();
+    }
+
     @Override
     public RemoteObjectReference objectKeyToRemoteReference(final Path objectKey) {
         return new S3RemoteObjectReference(objectKey, resolveRemotePath(objectKey));
@@ -77,6 +90,32 @@ public class S3Restorer extends Restorer {
         }
     }
 
+    @Override
+    public long getRemoteObjectSize(final RemoteObjectReference objectReference) throws NoSuchFileException {
+        try {
+            return amazonS3.getObjectMetadata(request.storageLocation.bucket, objectReference.canonicalPath).getContentLength();
+        } catch (final AmazonS3Exception e) {
+            if (e.getStatusCode() != 404) {
+                throw e;
+            }
+
+            throw new NoSuchFileException(objectReference.canonicalPath);
+        }
+    }
+
+    @Override
+    public InputStream openRemoteObject(final RemoteObjectReference objectReference) {
+        return amazonS3.getObject(new GetObjectRequest(request.storageLocation.bucket, objectReference.canonicalPath)).getObjectContent();
+    }
+
+    @Override
+    public InputStream openRemoteObjectRange(final RemoteObjectReference objectReference, final long offset, final long length) {
+        final GetObjectRequest getObjectRequest = new GetObjectRequest(request.storageLocation.bucket, objectReference.canonicalPath)
+                .withRange(offset, offset + length - 1);
+
+        return amazonS3.getObject(getObjectRequest).getObjectContent();
+    }
+
     private static class DownloadProgressListener implements S3ProgressListener {
         private final RemoteObjectReference objectReference;
 
@@ -120,6 +159,32 @@ public class S3Restorer extends Restorer {
         }
     }
 
+    @Override
+    public void consumeDirectory(final RemoteObjectReference prefix,
+                                 final Consumer<RemoteObjectReference> consumer,
+                                 final Consumer<Path> subPrefixConsumer) {
+
+        final Path bucketPath = Paths.get(request.storageLocation.clusterId).resolve(request.storageLocation.nodeId);
+
+        ObjectListing objectListing = amazonS3.listObjects(new ListObjectsRequest().withBucketName(request.storageLocation.bucket)
+                                                                                   .withPrefix(prefix.canonicalPath + "/")
+                                                                                   .withDelimiter("/"));
+
+        while (true) {
+            objectListing.getObjectSummaries().stream()
+                    .filter(objectSummary -> !objectSummary.getKey().endsWith("/"))
+                    .forEach(objectSummary -> consumer.accept(objectKeyToRemoteReference(bucketPath.relativize(Paths.get(objectSummary.getKey())))));
+
+            objectListing.getCommonPrefixes().forEach(commonPrefix -> subPrefixConsumer.accept(bucketPath.relativize(Paths.get(commonPrefix))));
+
+            if (!objectListing.isTruncated()) {
+                break;
+            }
+
+            objectListing = amazonS3.listNextBatchOfObjects(objectListing);
+        }
+    }
+
     @Override
     public void cleanup() {
         transferManager.shutdownNow();
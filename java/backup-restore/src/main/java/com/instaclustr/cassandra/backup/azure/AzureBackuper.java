@@ -1,6 +1,7 @@
 package com.instaclustr.cassandra.backup.azure;
 
 import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.time.ZonedDateTime;
@@ -73,6 +74,19 @@ public class AzureBackuper extends Backuper {
         }
     }
 
+    @Override
+    public InputStream openRemoteObject(final RemoteObjectReference object) throws Exception {
+        try {
+            return ((AzureRemoteObjectReference) object).blob.openInputStream();
+        } catch (final StorageException e) {
+            if (e.getHttpStatusCode() != 404) {
+                throw e;
+            }
+
+            throw new NoSuchFileException(object.canonicalPath);
+        }
+    }
+
     @Override
     public void uploadFile(final long size,
                            final InputStream localFileStream,
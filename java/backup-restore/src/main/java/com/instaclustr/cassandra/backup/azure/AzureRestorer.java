@@ -1,7 +1,9 @@
 package com.instaclustr.cassandra.backup.azure;
 
+import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.EnumSet;
@@ -9,6 +11,7 @@ import java.util.Iterator;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
+import com.google.common.io.ByteStreams;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import com.instaclustr.cassandra.backup.azure.AzureModule.CloudBlobClientProvider;
@@ -16,10 +19,12 @@ import com.instaclustr.cassandra.backup.impl.RemoteObjectReference;
 import com.instaclustr.cassandra.backup.impl.restore.RestoreCommitLogsOperationRequest;
 import com.instaclustr.cassandra.backup.impl.restore.RestoreOperationRequest;
 import com.instaclustr.cassandra.backup.impl.restore.Restorer;
+import com.instaclustr.cassandra.backup.impl.verify.VerifyBackupOperationRequest;
 import com.instaclustr.threading.Executors.ExecutorServiceSupplier;
 import com.microsoft.azure.storage.StorageException;
 import com.microsoft.azure.storage.blob.BlobListingDetails;
 import com.microsoft.azure.storage.blob.CloudBlobContainer;
+import com.microsoft.azure.storage.blob.CloudBlobDirectory;
 import com.microsoft.azure.storage.blob.CloudBlockBlob;
 import com.microsoft.azure.storage.blob.ListBlobItem;
 import org.slf4j.Logger;
@@ -46,6 +51,14 @@ public class AzureRestorer extends Restorer {
         this.blobContainer = cloudBlobClientProvider.get().getContainerReference(request.storageLocation.clusterId);
     }
 
+    @AssistedInject
+    public AzureRestorer(final CloudBlobClientProvider cloudBlobClientProvider,
+                         final ExecutorServiceSupplier executorServiceSupplier,
+                         @Assisted final VerifyBackupOperationRequest request) throws Exception {
+        super(request, executorServiceSupplier);
+        this.blobContainer = cloudBlobClientProvider.get().getContainerReference(request.storageLocation.clusterId);
+    }
+
     @Override
     public RemoteObjectReference objectKeyToRemoteReference(final Path objectKey) throws StorageException, URISyntaxException {
         final String path = resolveRemotePath(objectKey);
@@ -55,10 +68,42 @@ public class AzureRestorer extends Restorer {
     @Override
     public void downloadFile(final Path localPath, final RemoteObjectReference objectReference) throws Exception {
         final CloudBlockBlob blob = ((AzureRemoteObjectReference) objectReference).blob;
-        Files.createDirectories(localPath);
+        Files.createDirectories(localPath.getParent());
         blob.downloadToFile(localPath.toAbsolutePath().toString());
     }
 
+    @Override
+    public long getRemoteObjectSize(final RemoteObjectReference objectReference) throws Exception {
+        final CloudBlockBlob blob = ((AzureRemoteObjectReference) objectReference).blob;
+
+        try {
+            blob.downloadAttributes();
+        } catch (final StorageException e) {
+            if (e.getHttpStatusCode() != 404) {
+                throw e;
+            }
+
+            throw new NoSuchFileException(objectReference.canonicalPath);
+        }
+
+        return blob.getProperties().getLength();
+    }
+
+    @Override
+    public InputStream openRemoteObject(final RemoteObjectReference objectReference) throws Exception {
+        return ((AzureRemoteObjectReference) objectReference).blob.openInputStream();
+    }
+
+    @Override
+    public InputStream openRemoteObjectRange(final RemoteObjectReference objectReference, final long offset, final long length) throws Exception {
+        final InputStream blobStream = ((AzureRemoteObjectReference) objectReference).blob.openInputStream();
+
+        // skipping only moves the position of the blob stream, nothing is downloaded until read
+        ByteStreams.skipFully(blobStream, offset);
+
+        return ByteStreams.limit(blobStream, length);
+    }
+
     @Override
     public void consumeFiles(final RemoteObjectReference prefix,
                              final Consumer<RemoteObjectReference> consumer) throws Exception {
@@ -93,6 +138,30 @@ public class AzureRestorer extends Restorer {
         }
     }
 
+    @Override
+    public void consumeDirectory(final RemoteObjectReference prefix,
+                                 final Consumer<RemoteObjectReference> consumer,
+                                 final Consumer<Path> subPrefixConsumer) throws Exception {
+        final AzureRemoteObjectReference azureRemoteObjectReference = (AzureRemoteObjectReference) prefix;
+
+        final String blobPrefix = Paths.get(request.storageLocation.clusterId)
+                .resolve(request.storageLocation.nodeId)
+                .resolve(azureRemoteObjectReference.getObjectKey()).toString() + "/";
+
+        final Pattern containerPattern = Pattern.compile(String.format("^/%s/%s/%s/", request.storageLocation.clusterId, request.storageLocation.clusterId, request.storageLocation.nodeId));
+
+        // a hierarchical listing returns sub-prefixes as blob directories
+        for (final ListBlobItem listBlobItem : blobContainer.listBlobs(blobPrefix, false, EnumSet.noneOf(BlobListingDetails.class), null, null)) {
+            final Path objectKey = Paths.get(containerPattern.matcher(listBlobItem.getUri().getPath()).replaceFirst(""));
+
+            if (listBlobItem instanceof CloudBlobDirectory) {
+                subPrefixConsumer.accept(objectKey);
+            } else {
+                consumer.accept(objectKeyToRemoteReference(objectKey));
+            }
+        }
+    }
+
     @Override
     public void cleanup() {
         // Nothing to cleanup
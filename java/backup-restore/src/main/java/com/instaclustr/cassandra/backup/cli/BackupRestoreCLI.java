@@ -1,5 +1,6 @@
 package com.instaclustr.cassandra.backup.cli;
 
+import javax.management.MBeanServerConnection;
 import javax.validation.ConstraintViolation;
 import javax.validation.Validation;
 import javax.validation.ValidationException;
@@ -31,7 +32,7 @@ import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Spec;
 
-@Command(subcommands = {BackupApplication.class, RestoreApplication.class, CommitLogBackupApplication.class, CommitLogRestoreApplication.class},
+@Command(subcommands = {BackupApplication.class, IncrementalBackupApplication.class, RestoreApplication.class, CommitLogBackupApplication.class, CommitLogRestoreApplication.class, VerifyBackupApplication.class},
          synopsisSubcommandLabel = "COMMAND",
          versionProvider = BackupRestoreCLI.class
 )
@@ -72,6 +73,7 @@ public class BackupRestoreCLI extends CLIApplication implements Runnable {
                 @Override
                 protected void configure() {
                     bind(StorageServiceMBean.class).toProvider(() -> null);
+                    bind(MBeanServerConnection.class).toProvider(() -> null);
                 }
             });
         }
@@ -0,0 +1,67 @@
+package com.instaclustr.cassandra.backup.cli;
+
+import static com.instaclustr.cassandra.backup.cli.BackupRestoreCLI.init;
+import static com.instaclustr.picocli.CLIApplication.execute;
+import static com.instaclustr.picocli.JarManifestVersionProvider.logCommandVersionInformation;
+import static org.awaitility.Awaitility.await;
+
+import com.google.inject.Inject;
+import com.instaclustr.cassandra.backup.impl.backup.IncrementalBackupOperationRequest;
+import com.instaclustr.picocli.CassandraJMXSpec;
+import com.instaclustr.operations.Operation;
+import com.instaclustr.operations.OperationsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Mixin;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Spec;
+
+@Command(name = "incremental-backup",
+         mixinStandardHelpOptions = true,
+         description = "Upload SSTables hard linked by Cassandra's incremental backups since the last incremental backup to remote storage, " +
+                 "on top of a previous full or incremental backup. Enables incremental backups if they are not enabled yet. " +
+                 "Defaults to all keyspaces and their column families, " +
+                 "but may be restricted to specific keyspaces or a single column-family.",
+         sortOptions = false,
+         versionProvider = BackupRestoreCLI.class
+)
+public class IncrementalBackupApplication implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalBackupApplication.class);
+
+    @Spec
+    private CommandSpec spec;
+
+    @Mixin
+    private CassandraJMXSpec jmxSpec;
+
+    @Mixin
+    private IncrementalBackupOperationRequest request;
+
+    @Inject
+    private OperationsService operationsService;
+
+    public static void main(String[] args) {
+        System.exit(execute(new IncrementalBackupApplication(), args));
+    }
+
+    @Override
+    public void run() {
+        logCommandVersionInformation(spec);
+
+        if (request.offlineSnapshot) {
+            init(this, null, request, logger);
+        } else {
+            init(this, jmxSpec, request, logger);
+        }
+
+        final Operation operation = operationsService.submitOperationRequest(request);
+
+        await().forever().until(() -> operation.state.isTerminalState());
+
+        if (operation.state == Operation.State.FAILED) {
+            throw new IllegalStateException("Incremental backup operation was not successful.");
+        }
+    }
+}
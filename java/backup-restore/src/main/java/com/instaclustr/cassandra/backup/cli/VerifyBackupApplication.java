@@ -0,0 +1,56 @@
+package com.instaclustr.cassandra.backup.cli;
+
+import static com.instaclustr.cassandra.backup.cli.BackupRestoreCLI.init;
+import static com.instaclustr.picocli.CLIApplication.execute;
+import static com.instaclustr.picocli.JarManifestVersionProvider.logCommandVersionInformation;
+import static org.awaitility.Awaitility.await;
+
+import com.google.inject.Inject;
+import com.instaclustr.cassandra.backup.impl.verify.VerifyBackupOperationRequest;
+import com.instaclustr.operations.Operation;
+import com.instaclustr.operations.OperationsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Mixin;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Spec;
+
+@Command(name = "verify-backup",
+         mixinStandardHelpOptions = true,
+         description = "Verify that all files of a backup exist in the storage location, optionally checking the checksums of a sample of them.",
+         sortOptions = false,
+         versionProvider = BackupRestoreCLI.class
+)
+public class VerifyBackupApplication implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(VerifyBackupApplication.class);
+
+    @Spec
+    private CommandSpec spec;
+
+    @Mixin
+    private VerifyBackupOperationRequest request;
+
+    @Inject
+    private OperationsService operationsService;
+
+    public static void main(String[] args) {
+        System.exit(execute(new VerifyBackupApplication(), args));
+    }
+
+    @Override
+    public void run() {
+        logCommandVersionInformation(spec);
+
+        init(this, null, request, logger);
+
+        final Operation operation = operationsService.submitOperationRequest(request);
+
+        await().forever().until(() -> operation.state.isTerminalState());
+
+        if (operation.state == Operation.State.FAILED) {
+            throw new IllegalStateException("Backup verification was not successful.");
+        }
+    }
+}
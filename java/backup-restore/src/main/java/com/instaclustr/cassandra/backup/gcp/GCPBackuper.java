@@ -3,9 +3,11 @@ package com.instaclustr.cassandra.backup.gcp;
 import java.io.InputStream;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 
 import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.Blob;
 import com.google.cloud.storage.BlobId;
 import com.google.cloud.storage.BlobInfo;
 import com.google.cloud.storage.Storage;
@@ -67,6 +69,17 @@ public class GCPBackuper extends Backuper {
         }
     }
 
+    @Override
+    public InputStream openRemoteObject(final RemoteObjectReference object) throws NoSuchFileException {
+        final Blob blob = storage.get(((GCPRemoteObjectReference) object).blobId);
+
+        if (blob == null) {
+            throw new NoSuchFileException(object.canonicalPath);
+        }
+
+        return Channels.newInputStream(blob.reader());
+    }
+
     @Override
     public void uploadFile(final long size,
                            final InputStream localFileStream,
@@ -1,7 +1,9 @@
 package com.instaclustr.cassandra.backup.gcp;
 
+import java.io.InputStream;
 import java.nio.channels.Channels;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.function.Consumer;
@@ -13,6 +15,7 @@ import com.google.cloud.storage.Blob;
 import com.google.cloud.storage.BlobId;
 import com.google.cloud.storage.Storage;
 import com.google.cloud.storage.Storage.BlobListOption;
+import com.google.common.io.ByteStreams;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import com.instaclustr.cassandra.backup.gcp.GCPModule.StorageProvider;
@@ -20,6 +23,7 @@ import com.instaclustr.cassandra.backup.impl.RemoteObjectReference;
 import com.instaclustr.cassandra.backup.impl.restore.RestoreCommitLogsOperationRequest;
 import com.instaclustr.cassandra.backup.impl.restore.RestoreOperationRequest;
 import com.instaclustr.cassandra.backup.impl.restore.Restorer;
+import com.instaclustr.cassandra.backup.impl.verify.VerifyBackupOperationRequest;
 import com.instaclustr.threading.Executors.ExecutorServiceSupplier;
 
 public class GCPRestorer extends Restorer {
@@ -42,6 +46,14 @@ public class GCPRestorer extends Restorer {
         this.storage = storage.get();
     }
 
+    @AssistedInject
+    public GCPRestorer(final StorageProvider storage,
+                       final ExecutorServiceSupplier executorServiceSupplier,
+                       @Assisted final VerifyBackupOperationRequest request) {
+        super(request, executorServiceSupplier);
+        this.storage = storage.get();
+    }
+
     @Override
     public RemoteObjectReference objectKeyToRemoteReference(final Path objectKey) {
         // objectKey is kept simple (e.g. "manifests/autosnap-123") so that it directly reflects the local path
@@ -51,13 +63,38 @@ public class GCPRestorer extends Restorer {
     @Override
     public void downloadFile(final Path localFile, final RemoteObjectReference objectReference) throws Exception {
         final BlobId blobId = ((GCPRemoteObjectReference) objectReference).blobId;
-        Files.createDirectories(localFile);
+        Files.createDirectories(localFile.getParent());
 
         try (final ReadChannel inputChannel = storage.reader(blobId)) {
             Files.copy(Channels.newInputStream(inputChannel), localFile);
         }
     }
 
+    @Override
+    public long getRemoteObjectSize(final RemoteObjectReference objectReference) throws NoSuchFileException {
+        final BlobId blobId = ((GCPRemoteObjectReference) objectReference).blobId;
+        final Blob blob = storage.get(blobId);
+
+        if (blob == null) {
+            throw new NoSuchFileException(objectReference.canonicalPath);
+        }
+
+        return blob.getSize();
+    }
+
+    @Override
+    public InputStream openRemoteObject(final RemoteObjectReference objectReference) {
+        return Channels.newInputStream(storage.reader(((GCPRemoteObjectReference) objectReference).blobId));
+    }
+
+    @Override
+    public InputStream openRemoteObjectRange(final RemoteObjectReference objectReference, final long offset, final long length) throws Exception {
+        final ReadChannel inputChannel = storage.reader(((GCPRemoteObjectReference) objectReference).blobId);
+        inputChannel.seek(offset);
+
+        return ByteStreams.limit(Channels.newInputStream(inputChannel), length);
+    }
+
     @Override
     public void consumeFiles(final RemoteObjectReference prefix, final Consumer<RemoteObjectReference> consumer) {
         final GCPRemoteObjectReference gcpRemoteObjectReference = (GCPRemoteObjectReference) prefix;
@@ -74,6 +111,30 @@ public class GCPRestorer extends Restorer {
         });
     }
 
+    @Override
+    public void consumeDirectory(final RemoteObjectReference prefix,
+                                 final Consumer<RemoteObjectReference> consumer,
+                                 final Consumer<Path> subPrefixConsumer) {
+        final GCPRemoteObjectReference gcpRemoteObjectReference = (GCPRemoteObjectReference) prefix;
+
+        final Page<Blob> storagePage = storage.list(gcpRemoteObjectReference.blobId.getBucket(),
+                                                    BlobListOption.prefix(request.storageLocation.nodeId + "/" + gcpRemoteObjectReference.getObjectKey() + "/"),
+                                                    BlobListOption.currentDirectory());
+
+        final Pattern nodeIdPattern = Pattern.compile(request.storageLocation.nodeId + "/");
+
+        // sub-prefixes are listed as blobs with names ending with the delimiter
+        storagePage.iterateAll().iterator().forEachRemaining(blob -> {
+            final Path objectKey = Paths.get(nodeIdPattern.matcher(blob.getName()).replaceFirst(""));
+
+            if (blob.getName().endsWith("/")) {
+                subPrefixConsumer.accept(objectKey);
+            } else {
+                consumer.accept(objectKeyToRemoteReference(objectKey));
+            }
+        });
+    }
+
     @Override
     public void cleanup() throws Exception {
         // Nothing to cleanup
@@ -6,6 +6,7 @@ import com.instaclustr.cassandra.backup.azure.AzureModule;
 import com.instaclustr.cassandra.backup.gcp.GCPModule;
 import com.instaclustr.cassandra.backup.impl.backup.BackupModule;
 import com.instaclustr.cassandra.backup.impl.restore.RestoreModule;
+import com.instaclustr.cassandra.backup.impl.verify.VerifyModule;
 import com.instaclustr.cassandra.backup.local.LocalFileModule;
 
 public class BackupRestoreModule extends AbstractModule {
@@ -17,5 +18,6 @@ public class BackupRestoreModule extends AbstractModule {
         install(new LocalFileModule());
         install(new BackupModule());
         install(new RestoreModule());
+        install(new VerifyModule());
     }
 }
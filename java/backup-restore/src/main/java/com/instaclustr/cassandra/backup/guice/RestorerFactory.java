@@ -3,8 +3,10 @@ package com.instaclustr.cassandra.backup.guice;
 import com.instaclustr.cassandra.backup.impl.restore.RestoreCommitLogsOperationRequest;
 import com.instaclustr.cassandra.backup.impl.restore.RestoreOperationRequest;
 import com.instaclustr.cassandra.backup.impl.restore.Restorer;
+import com.instaclustr.cassandra.backup.impl.verify.VerifyBackupOperationRequest;
 
 public interface RestorerFactory<RESTORER extends Restorer> {
     RESTORER createRestorer(final RestoreOperationRequest restoreOperationRequest);
     RESTORER createCommitLogRestorer(final RestoreCommitLogsOperationRequest restoreCommitLogsOperationRequest);
+    RESTORER createVerifyBackupRestorer(final VerifyBackupOperationRequest verifyBackupOperationRequest);
 }
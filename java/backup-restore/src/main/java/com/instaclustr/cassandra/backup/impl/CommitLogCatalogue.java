@@ -0,0 +1,209 @@
+package com.instaclustr.cassandra.backup.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Catalogue of the commit log segments of a node, by hourly buckets.
+ * <p>
+ * Segments are stored under the key prefix of the hour of their timestamp, in form
+ * {@code commitlog/<yyyyMMddHH>/CommitLog-<version>-<id>.log.<timestamp>}. The catalogue records, for every bucket
+ * any segment was stored in, the first and last timestamp and the lowest and highest id of its segments, so a
+ * point-in-time restore lists only buckets overlapping the restored time range. It is stored under {@link #CATALOGUE_KEY},
+ * one line per bucket in form {@code <bucket> <first timestamp> <last timestamp> <lowest id> <highest id>}.
+ * <p>
+ * Backups keep the catalogue in {@code var/lib/backup-restore/commitlog-catalogue} of the shared container path, merge
+ * it with the stored one and upload it whenever segments are added. The catalogue covers segments from its first
+ * timestamp on; earlier segments, e.g. stored before the catalogue was lost, or without buckets, are found by listing
+ * all of them, as are segments of a time range whose buckets skip segment ids.
+ */
+public class CommitLogCatalogue {
+
+    public static final Path COMMIT_LOGS_KEY = Paths.get("commitlog");
+    public static final Path CATALOGUE_KEY = COMMIT_LOGS_KEY.resolve("catalogue");
+
+    /**
+     * Key of a stored segment, the name of the segment file and its timestamp as the first and second group.
+     */
+    public static final Pattern SEGMENT_KEY_PATTERN = Pattern.compile(".*(CommitLog-\\d+-\\d+\\.log)\\.(\\d+)(\\.[a-z0-9]+)?");
+
+    private static final DateTimeFormatter BUCKET_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHH").withZone(ZoneOffset.UTC);
+
+    // bucket -> first and last timestamp, lowest and highest id of its segments, ordered by time
+    private final TreeMap<String, long[]> buckets = new TreeMap<>();
+
+    /**
+     * @return key of the segment file with given timestamp
+     */
+    public static Path segmentKey(final Path segment, final long timestamp) {
+        return COMMIT_LOGS_KEY.resolve(bucket(timestamp)).resolve(segment.getFileName().toString() + "." + timestamp);
+    }
+
+    private static String bucket(final long timestamp) {
+        return BUCKET_FORMAT.format(Instant.ofEpochMilli(timestamp));
+    }
+
+    /**
+     * @return local file of the catalogue of the storage location
+     */
+    public static Path localFile(final Path sharedContainerPath, final StorageLocation storageLocation) {
+        return StateFiles.stateFile(sharedContainerPath, "commitlog-catalogue", storageLocation);
+    }
+
+    /**
+     * @return catalogue of the file, empty if it does not exist
+     */
+    public static CommitLogCatalogue load(final Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return new CommitLogCatalogue();
+        }
+
+        try (final InputStream stream = Files.newInputStream(file)) {
+            return read(stream);
+        }
+    }
+
+    public static CommitLogCatalogue read(final InputStream stream) throws IOException {
+        final CommitLogCatalogue catalogue = new CommitLogCatalogue();
+
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(stream, UTF_8))) {
+            StateFiles.read(reader, 5, parts -> catalogue.buckets.put(parts[0], new long[]{
+                    Long.parseLong(parts[1]),
+                    Long.parseLong(parts[2]),
+                    Long.parseLong(parts[3]),
+                    Long.parseLong(parts[4])
+            }));
+        }
+
+        return catalogue;
+    }
+
+    /**
+     * Writes the catalogue to the file, replacing it atomically.
+     */
+    public synchronized void save(final Path file) throws IOException {
+        StateFiles.write(file, writer -> buckets.forEach((bucket, range) -> writer.printf("%s %d %d %d %d%n", bucket, range[0], range[1], range[2], range[3])));
+    }
+
+    /**
+     * Records a stored segment under the bucket of its timestamp.
+     *
+     * @param segmentKey key of the segment, see {@link #segmentKey(Path, long)}
+     */
+    public synchronized void add(final Path segmentKey) {
+        final Matcher matcher = SEGMENT_KEY_PATTERN.matcher(segmentKey.toString());
+
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException(String.format("%s is not a key of a commit log segment", segmentKey));
+        }
+
+        final long timestamp = Long.parseLong(matcher.group(2));
+        final long id = segmentId(matcher.group(1));
+
+        add(bucket(timestamp), new long[]{timestamp, timestamp, id, id});
+    }
+
+    /**
+     * Adds the buckets of the other catalogue, e.g. of the stored one, to this one.
+     */
+    public synchronized void merge(final CommitLogCatalogue other) {
+        final Map<String, long[]> otherBuckets;
+
+        synchronized (other) {
+            otherBuckets = new TreeMap<>(other.buckets);
+        }
+
+        otherBuckets.forEach((bucket, range) -> add(bucket, range.clone()));
+    }
+
+    private void add(final String bucket, final long[] added) {
+        buckets.merge(bucket, added, (range, other) -> {
+            range[0] = Math.min(range[0], other[0]);
+            range[1] = Math.max(range[1], other[1]);
+            range[2] = Math.min(range[2], other[2]);
+            range[3] = Math.max(range[3], other[3]);
+            return range;
+        });
+    }
+
+    /**
+     * @return true if all segments from the timestamp on are in buckets of the catalogue
+     */
+    public synchronized boolean covers(final long timestamp) {
+        return !buckets.isEmpty() && buckets.firstEntry().getValue()[0] <= timestamp;
+    }
+
+    /**
+     * @return keys of buckets with segments of timestamps between {@code start} and {@code end}, and of the first
+     * bucket with a segment past {@code end}, which is needed as it holds mutations up to its timestamp, or empty if
+     * the catalogue does not cover {@code start}, or the ids of segments in these buckets and the one before them are
+     * not contiguous, e.g. as a segment was stored without being catalogued, or Cassandra was restarted in between
+     */
+    public synchronized Optional<List<Path>> bucketKeys(final long start, final long end) {
+        if (!covers(start)) {
+            return Optional.empty();
+        }
+
+        final List<Path> keys = new ArrayList<>();
+        long[] previous = null;
+        long highestId = Long.MIN_VALUE;
+
+        // buckets are ordered by time, so the first bucket with a segment past the end is the last one needed
+        for (final Map.Entry<String, long[]> bucket : buckets.entrySet()) {
+            final long[] range = bucket.getValue();
+
+            if (range[1] >= start) {
+                if (keys.isEmpty() && previous != null) {
+                    highestId = previous[3];
+                }
+
+                if (highestId != Long.MIN_VALUE && range[2] > highestId + 1) {
+                    return Optional.empty();
+                }
+
+                highestId = Math.max(highestId, range[3]);
+                keys.add(COMMIT_LOGS_KEY.resolve(bucket.getKey()));
+            }
+
+            if (range[1] > end) {
+                break;
+            }
+
+            previous = range;
+        }
+
+        return Optional.of(keys);
+    }
+
+    /**
+     * @return id of the segment, from its file name in form CommitLog-&lt;version&gt;-&lt;id&gt;.log
+     */
+    public static long segmentId(final String segment) {
+        return Long.parseLong(segment.substring(segment.lastIndexOf('-') + 1, segment.length() - ".log".length()));
+    }
+
+    /**
+     * @return timestamp of the segment of the key, or -1 if it is not a key of a segment
+     */
+    public static long segmentTimestamp(final Path key) {
+        final Matcher matcher = SEGMENT_KEY_PATTERN.matcher(key.toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(2)) : -1;
+    }
+}
@@ -0,0 +1,96 @@
+package com.instaclustr.cassandra.backup.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Stream of the data of an underlying stream, compressed as it is read.
+ * <p>
+ * Data are read from the underlying stream a buffer at a time and written through the compressing stream of the codec
+ * into an in-memory buffer, which is then served to readers, so memory usage does not depend on the size of the data.
+ */
+class CompressingInputStream extends InputStream {
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private static class Buffer extends ByteArrayOutputStream {
+        Buffer() {
+            super(BUFFER_SIZE);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+
+    private final InputStream in;
+    private final Buffer compressed = new Buffer();
+    private final OutputStream compressor;
+    private final byte[] uncompressed = new byte[BUFFER_SIZE];
+
+    private int position;
+    private boolean finished;
+
+    CompressingInputStream(final InputStream in, final CompressionCodec codec) throws IOException {
+        this.in = in;
+        this.compressor = codec.compress(compressed);
+    }
+
+    /**
+     * @return false if all data were compressed and read
+     */
+    private boolean fill() throws IOException {
+        while (position == compressed.size()) {
+            if (finished) {
+                return false;
+            }
+
+            compressed.reset();
+            position = 0;
+
+            final int read = in.read(uncompressed);
+
+            if (read == -1) {
+                // flushes the last block and trailer of the codec
+                compressor.close();
+                finished = true;
+            } else {
+                compressor.write(uncompressed, 0, read);
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+
+        return compressed.array()[position++] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        if (!fill()) {
+            return -1;
+        }
+
+        final int read = Math.min(len, compressed.size() - position);
+        System.arraycopy(compressed.array(), position, b, off, read);
+        position += read;
+
+        return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
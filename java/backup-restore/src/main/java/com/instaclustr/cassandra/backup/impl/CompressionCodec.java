@@ -0,0 +1,100 @@
+package com.instaclustr.cassandra.backup.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
+
+/**
+ * Codec files are compressed with on their way to the remote storage.
+ * <p>
+ * A compressed file is stored under its key with the extension of the codec appended, so objects compressed differently
+ * never share a key, and the codec is recorded in its manifest line.
+ */
+public enum CompressionCodec {
+    NONE(null) {
+        @Override
+        OutputStream compress(final OutputStream out) {
+            return out;
+        }
+
+        @Override
+        public InputStream decompress(final InputStream in) {
+            return in;
+        }
+
+        @Override
+        public InputStream compressingStream(final InputStream in) {
+            return in;
+        }
+    },
+    GZIP("gz") {
+        @Override
+        OutputStream compress(final OutputStream out) throws IOException {
+            return new GZIPOutputStream(out, CompressingInputStream.BUFFER_SIZE);
+        }
+
+        @Override
+        public InputStream decompress(final InputStream in) throws IOException {
+            return new GZIPInputStream(in, CompressingInputStream.BUFFER_SIZE);
+        }
+    },
+    LZ4("lz4") {
+        @Override
+        OutputStream compress(final OutputStream out) {
+            return new LZ4BlockOutputStream(out);
+        }
+
+        @Override
+        public InputStream decompress(final InputStream in) {
+            return new LZ4BlockInputStream(in);
+        }
+    };
+
+    public final String extension;
+
+    CompressionCodec(final String extension) {
+        this.extension = extension;
+    }
+
+    abstract OutputStream compress(final OutputStream out) throws IOException;
+
+    /**
+     * @return stream of the data of {@code in} as decompressed by this codec
+     */
+    public abstract InputStream decompress(final InputStream in) throws IOException;
+
+    /**
+     * @return stream of the data of {@code in} as compressed by this codec, compressed as it is read
+     */
+    public InputStream compressingStream(final InputStream in) throws IOException {
+        return new CompressingInputStream(in, this);
+    }
+
+    /**
+     * @return key an object of given key is stored under once compressed by this codec
+     */
+    public Path compressedKey(final Path key) {
+        return extension == null ? key : key.resolveSibling(key.getFileName() + "." + extension);
+    }
+
+    /**
+     * @return codec of an object stored under given key, derived from its extension
+     */
+    public static CompressionCodec forKey(final Path key) {
+        final String fileName = key.getFileName().toString();
+
+        for (final CompressionCodec codec : values()) {
+            if (codec.extension != null && fileName.endsWith("." + codec.extension)) {
+                return codec;
+            }
+        }
+
+        return NONE;
+    }
+}
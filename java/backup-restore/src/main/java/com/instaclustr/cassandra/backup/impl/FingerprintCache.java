@@ -0,0 +1,269 @@
+package com.instaclustr.cassandra.backup.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of SSTable hashes, as computed by {@link SSTableUtils#sstableHash(Path)}, so each SSTable is hashed only
+ * once rather than once per component file, and not again by later backups or restores as long as it is unchanged.
+ * It caches the {@link Fingerprint} of the content of single files the same way.
+ * <p>
+ * An SSTable is identified by the name, inode, size and modification time of its Data.db file, a file by its own.
+ * The path is deliberately left out, as snapshots are hard links to the live SSTables, so every snapshot of an SSTable
+ * and the SSTable itself share the same hash. The inode is replaced by the path on filesystems without one.
+ * <p>
+ * The cache is stored in {@code var/lib/backup-restore/fingerprints} of the shared container path, each line in form
+ * {@code <lastUsed> <size> <lastModified> <hash> <key>}, and {@code var/lib/backup-restore/content-fingerprints},
+ * each line in form {@code <lastUsed> <size> <lastModified> <sha256> <crc32> <key>}, with {@code -} for the SHA-256 of
+ * files only checksummed. Files not used for a week are dropped from it.
+ */
+public class FingerprintCache {
+    private static final Logger logger = LoggerFactory.getLogger(FingerprintCache.class);
+
+    private static final long RETENTION_MILLIS = TimeUnit.DAYS.toMillis(7);
+    private static final String NO_SHA256 = "-";
+
+    private static class Entry {
+        final long lastUsed;
+        final long size;
+        final long lastModified;
+        final String hash;
+
+        Entry(final long lastUsed, final long size, final long lastModified, final String hash) {
+            this.lastUsed = lastUsed;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * SHA-256 and CRC32 of the content of a file, the SHA-256 null if it was only checksummed.
+     */
+    public static class Fingerprint {
+        public final String sha256;
+        public final long crc32;
+
+        Fingerprint(final String sha256, final long crc32) {
+            this.sha256 = sha256;
+            this.crc32 = crc32;
+        }
+    }
+
+    private static class ContentEntry {
+        final long lastUsed;
+        final long size;
+        final long lastModified;
+        final Fingerprint fingerprint;
+
+        ContentEntry(final long lastUsed, final long size, final long lastModified, final Fingerprint fingerprint) {
+            this.lastUsed = lastUsed;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private final Path cacheFile;
+    private final Path contentCacheFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, ContentEntry> contentEntries = new ConcurrentHashMap<>();
+
+    private FingerprintCache(final Path cacheFile, final Path contentCacheFile) {
+        this.cacheFile = cacheFile;
+        this.contentCacheFile = contentCacheFile;
+    }
+
+    /**
+     * @return cache living only as long as the returned instance
+     */
+    public static FingerprintCache inMemory() {
+        return new FingerprintCache(null, null);
+    }
+
+    /**
+     * @return cache persisted in the shared container path, with the SSTables and files hashed by previous runs
+     */
+    public static FingerprintCache forSharedContainerPath(final Path sharedContainerPath) {
+        final FingerprintCache cache = new FingerprintCache(StateFiles.stateFile(sharedContainerPath, "fingerprints"),
+                                                            StateFiles.stateFile(sharedContainerPath, "content-fingerprints"));
+        cache.load();
+        return cache;
+    }
+
+    /**
+     * @param path any component file of an SSTable
+     * @return hash of the SSTable the file belongs to
+     */
+    public String sstableHash(final Path path) throws IOException {
+        final Path dataFile = SSTableUtils.dataFile(path);
+
+        final BasicFileAttributes attributes;
+
+        try {
+            attributes = Files.readAttributes(dataFile, BasicFileAttributes.class);
+        } catch (final NoSuchFileException ex) {
+            // nothing to identify the SSTable by, it is only hashed if it has a digest
+            return SSTableUtils.sstableHash(path);
+        }
+
+        final String key = fileKey(dataFile, attributes);
+        final long size = attributes.size();
+        final long lastModified = attributes.lastModifiedTime().toMillis();
+
+        final Entry entry = entries.get(key);
+
+        if (entry != null && entry.size == size && entry.lastModified == lastModified) {
+            if (isPersisted()) {
+                entries.put(key, new Entry(System.currentTimeMillis(), size, lastModified, entry.hash));
+            }
+
+            return entry.hash;
+        }
+
+        final String hash = SSTableUtils.sstableHash(path);
+
+        entries.put(key, new Entry(System.currentTimeMillis(), size, lastModified, hash));
+
+        return hash;
+    }
+
+    /**
+     * @return fingerprint of the content of the file, read only if it changed since it was last fingerprinted
+     */
+    public Fingerprint fingerprint(final Path file) throws IOException {
+        return fingerprint(file, true);
+    }
+
+    /**
+     * @return CRC32 of the content of the file, read only if it changed since it was last checksummed or fingerprinted
+     */
+    public long crc32(final Path file) throws IOException {
+        return fingerprint(file, false).crc32;
+    }
+
+    private Fingerprint fingerprint(final Path file, final boolean withSha256) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+
+        final String key = fileKey(file, attributes);
+        final long size = attributes.size();
+        final long lastModified = attributes.lastModifiedTime().toMillis();
+
+        final ContentEntry entry = contentEntries.get(key);
+
+        if (entry != null && entry.size == size && entry.lastModified == lastModified && (!withSha256 || entry.fingerprint.sha256 != null)) {
+            if (isPersisted()) {
+                contentEntries.put(key, new ContentEntry(System.currentTimeMillis(), size, lastModified, entry.fingerprint));
+            }
+
+            return entry.fingerprint;
+        }
+
+        final Hasher sha256 = withSha256 ? Hashing.sha256().newHasher() : null;
+        final CRC32 crc32 = new CRC32();
+        final byte[] buffer = new byte[64 * 1024];
+        long read = 0;
+
+        try (final InputStream stream = Files.newInputStream(file)) {
+            int count;
+            while ((count = stream.read(buffer)) != -1) {
+                if (sha256 != null) {
+                    sha256.putBytes(buffer, 0, count);
+                }
+
+                crc32.update(buffer, 0, count);
+                read += count;
+            }
+        }
+
+        final Fingerprint fingerprint = new Fingerprint(sha256 == null ? null : sha256.hash().toString(), crc32.getValue());
+
+        // a file changed while read is fingerprinted again next time
+        if (read == size && Files.getLastModifiedTime(file).toMillis() == lastModified) {
+            contentEntries.put(key, new ContentEntry(System.currentTimeMillis(), size, lastModified, fingerprint));
+        }
+
+        return fingerprint;
+    }
+
+    private static String fileKey(final Path file, final BasicFileAttributes attributes) {
+        return attributes.fileKey() == null
+                ? file.toAbsolutePath().toString()
+                : file.getFileName() + "@" + attributes.fileKey();
+    }
+
+    private boolean isPersisted() {
+        return cacheFile != null;
+    }
+
+    private void load() {
+        final long now = System.currentTimeMillis();
+
+        try {
+            StateFiles.read(cacheFile, 5, lineArray -> {
+                final Entry entry = new Entry(Long.parseLong(lineArray[0]), Long.parseLong(lineArray[1]), Long.parseLong(lineArray[2]), lineArray[3]);
+
+                if (now - entry.lastUsed < RETENTION_MILLIS) {
+                    entries.put(lineArray[4], entry);
+                }
+            });
+
+            logger.info("Loaded {} SSTable fingerprints from {}.", entries.size(), cacheFile);
+        } catch (final IOException e) {
+            // the cache is only an optimisation, SSTables are hashed again without it
+            logger.warn("Failed to load SSTable fingerprints {}, ignoring them.", cacheFile, e);
+            entries.clear();
+        }
+
+        try {
+            StateFiles.read(contentCacheFile, 6, lineArray -> {
+                final ContentEntry entry = new ContentEntry(Long.parseLong(lineArray[0]), Long.parseLong(lineArray[1]), Long.parseLong(lineArray[2]),
+                                                            new Fingerprint(NO_SHA256.equals(lineArray[3]) ? null : lineArray[3], Long.parseLong(lineArray[4])));
+
+                if (now - entry.lastUsed < RETENTION_MILLIS) {
+                    contentEntries.put(lineArray[5], entry);
+                }
+            });
+        } catch (final IOException e) {
+            logger.warn("Failed to load file fingerprints {}, ignoring them.", contentCacheFile, e);
+            contentEntries.clear();
+        }
+    }
+
+    /**
+     * Persists the cache, if it is not in memory only.
+     */
+    public void save() {
+        if (!isPersisted()) {
+            return;
+        }
+
+        try {
+            StateFiles.write(cacheFile, writer -> entries.forEach((key, entry) -> writer.printf("%d %d %d %s %s%n", entry.lastUsed, entry.size, entry.lastModified, entry.hash, key)));
+        } catch (final IOException e) {
+            logger.warn("Failed to save SSTable fingerprints {}.", cacheFile, e);
+        }
+
+        try {
+            StateFiles.write(contentCacheFile, writer -> contentEntries.forEach((key, entry) -> writer.printf("%d %d %d %s %d %s%n",
+                                                                                                           entry.lastUsed, entry.size, entry.lastModified,
+                                                                                                           entry.fingerprint.sha256 == null ? NO_SHA256 : entry.fingerprint.sha256,
+                                                                                                           entry.fingerprint.crc32, key)));
+        } catch (final IOException e) {
+            logger.warn("Failed to save file fingerprints {}.", contentCacheFile, e);
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.instaclustr.cassandra.backup.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+
+/**
+ * Snapshot manifest as read by a restore, its files grouped by table.
+ * <p>
+ * A manifest is written either as text (see {@link ManifestEntry#toManifestLine()}) or in the binary format, told apart by
+ * the {@link #MAGIC} the binary format starts with. The binary format (version {@value #VERSION}) is
+ * <pre>
+ * magic, version byte
+ * parent tag           boolean present, UTF
+ * codecs               int count, UTF name of each
+ * tables               int count, for each: UTF table key, int entry count, int block length
+ * blocks               deflated block of each table, in order of tables, each entry of a block in form
+ *                      UTF path relative to the table key, byte flags, [UTF storage key], var-long size, byte codec, [int CRC32]
+ * </pre>
+ * where the table key is {@code data/<keyspace>/<table>} for SSTables, or the directory of any other file. Paths are thus
+ * stored once per table rather than once per file, and a block is inflated only once entries of its table are asked for,
+ * so a restore of some tables does not decode entries of all the others.
+ * <p>
+ * Lines of a text manifest are likewise indexed by table as it is read, and parsed only once entries of their table
+ * are asked for.
+ * <p>
+ * Entries of a manifest have no local file, until restored by {@link ManifestEntry#locatedAt(Path)}.
+ */
+public class Manifest {
+    public static final byte[] MAGIC = {(byte) 0x89, 'M', 'F', 'T'};
+    public static final int VERSION = 1;
+
+    private static final int STORAGE_KEY_FLAG = 1;
+    private static final int CHECKSUM_FLAG = 2;
+
+    private final String parentTag;
+    private final Map<Path, Supplier<List<ManifestEntry>>> tables;
+
+    private Manifest(final String parentTag, final Map<Path, Supplier<List<ManifestEntry>>> tables) {
+        this.parentTag = parentTag;
+        this.tables = tables;
+    }
+
+    /**
+     * @return tag of the snapshot this manifest builds upon, see {@link ManifestEntry#PARENT_DIRECTIVE}, or null
+     */
+    public String getParentTag() {
+        return parentTag;
+    }
+
+    /**
+     * @return keys of all tables of the manifest, e.g. {@code data/<keyspace>/<table>}
+     */
+    public Set<Path> getTables() {
+        return Collections.unmodifiableSet(tables.keySet());
+    }
+
+    /**
+     * @return entries of the table, empty if there is no such table in the manifest
+     */
+    public List<ManifestEntry> getEntries(final Path table) {
+        final Supplier<List<ManifestEntry>> entries = tables.get(table);
+
+        return entries == null ? Collections.emptyList() : entries.get();
+    }
+
+    /**
+     * @return entries of all tables of the manifest
+     */
+    public Stream<ManifestEntry> entries() {
+        return tables.values().stream().flatMap(entries -> entries.get().stream());
+    }
+
+    /**
+     * @return key of the table the object belongs to, {@code data/<keyspace>/<table>} for SSTables, its directory otherwise
+     */
+    public static Path table(final Path objectKey) {
+        return objectKey.subpath(0, Math.max(1, Math.min(3, objectKey.getNameCount() - 1)));
+    }
+
+    public static Manifest read(final Path manifestFile) throws IOException {
+        final byte[] bytes = Files.readAllBytes(manifestFile);
+
+        if (bytes.length >= MAGIC.length && Arrays.equals(Arrays.copyOf(bytes, MAGIC.length), MAGIC)) {
+            return readBinary(bytes);
+        }
+
+        return readText(new String(bytes, UTF_8));
+    }
+
+    private static Manifest readText(final String manifest) {
+        // lines of each table, parsed only once entries of the table are asked for
+        final Map<String, List<String>> tables = new LinkedHashMap<>();
+        String parentTag = null;
+
+        // lines of a table follow each other, so the key of the table is rarely extracted from a line
+        String table = null;
+        List<String> tableLines = null;
+
+        for (final String line : manifest.split("\n")) {
+            final String trimmedLine = line.trim();
+
+            if (trimmedLine.isEmpty()) {
+                continue;
+            }
+
+            if (trimmedLine.startsWith(ManifestEntry.DIRECTIVE_PREFIX)) {
+                if (line.startsWith(ManifestEntry.PARENT_DIRECTIVE)) {
+                    parentTag = line.substring(ManifestEntry.PARENT_DIRECTIVE.length()).trim();
+                }
+
+                continue;
+            }
+
+            final int keyStart = trimmedLine.indexOf(' ') + 1;
+
+            if (keyStart == 0) {
+                throw new IllegalArgumentException(String.format("Invalid snapshot manifest line: %s", line));
+            }
+
+            final int keyEnd = trimmedLine.indexOf(' ', keyStart) < 0 ? trimmedLine.length() : trimmedLine.indexOf(' ', keyStart);
+            final int tableEnd = tableEnd(trimmedLine, keyStart, keyEnd);
+
+            if (table == null || table.length() != tableEnd - keyStart || !trimmedLine.startsWith(table, keyStart)) {
+                table = trimmedLine.substring(keyStart, tableEnd);
+                tableLines = tables.computeIfAbsent(table, key -> new ArrayList<>());
+            }
+
+            tableLines.add(trimmedLine);
+        }
+
+        final Map<Path, Supplier<List<ManifestEntry>>> suppliers = new LinkedHashMap<>();
+        tables.forEach((key, lines) -> suppliers.put(Paths.get(key), Suppliers.memoize(() -> parseLines(lines))));
+
+        return new Manifest(parentTag, suppliers);
+    }
+
+    /**
+     * @return end of the key of the table in the object key between {@code keyStart} and {@code keyEnd}, see {@link #table(Path)}
+     */
+    private static int tableEnd(final String line, final int keyStart, final int keyEnd) {
+        int end = keyStart;
+
+        for (int names = 0; names < 3; names++) {
+            final int slash = line.indexOf('/', end + 1);
+
+            if (slash < 0 || slash >= keyEnd) {
+                // the file name itself is not part of the table key, unless there is nothing else
+                return names == 0 ? keyEnd : end;
+            }
+
+            end = slash;
+        }
+
+        return end;
+    }
+
+    private static List<ManifestEntry> parseLines(final List<String> lines) {
+        final List<ManifestEntry> entries = new ArrayList<>(lines.size());
+
+        for (final String line : lines) {
+            final String[] lineArray = line.split(" ");
+
+            entries.add(new ManifestEntry(Paths.get(lineArray[1]),
+                                          ManifestEntry.parseStorageKey(lineArray),
+                                          null,
+                                          ManifestEntry.Type.FILE,
+                                          Long.parseLong(lineArray[0]),
+                                          ManifestEntry.parseCodec(lineArray)));
+        }
+
+        return entries;
+    }
+
+    private static Manifest readBinary(final byte[] bytes) throws IOException {
+        final ByteArrayInputStream stream = new ByteArrayInputStream(bytes, MAGIC.length, bytes.length - MAGIC.length);
+        final DataInputStream header = new DataInputStream(stream);
+
+        final int version = header.readUnsignedByte();
+
+        if (version != VERSION) {
+            throw new IOException(String.format("Unsupported version %d of binary manifest, only version %d is supported.", version, VERSION));
+        }
+
+        final String parentTag = header.readBoolean() ? header.readUTF() : null;
+
+        final CompressionCodec[] codecs = new CompressionCodec[header.readInt()];
+
+        for (int i = 0; i < codecs.length; i++) {
+            codecs[i] = CompressionCodec.valueOf(header.readUTF());
+        }
+
+        final int tableCount = header.readInt();
+        final Path[] tableKeys = new Path[tableCount];
+        final int[] entryCounts = new int[tableCount];
+        final int[] blockLengths = new int[tableCount];
+
+        for (int i = 0; i < tableCount; i++) {
+            tableKeys[i] = Paths.get(header.readUTF());
+            entryCounts[i] = header.readInt();
+            blockLengths[i] = header.readInt();
+        }
+
+        // blocks start where the header ends
+        int blockOffset = bytes.length - stream.available();
+
+        final Map<Path, Supplier<List<ManifestEntry>>> tables = new LinkedHashMap<>();
+
+        for (int i = 0; i < tableCount; i++) {
+            final Path table = tableKeys[i];
+            final int entryCount = entryCounts[i];
+            final int offset = blockOffset;
+            final int length = blockLengths[i];
+
+            if (offset + length > bytes.length) {
+                throw new IOException(String.format("Binary manifest is truncated, block of table %s is missing.", table));
+            }
+
+            tables.put(table, Suppliers.memoize(() -> {
+                try {
+                    return readBlock(new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes, offset, length))), table, entryCount, codecs);
+                } catch (final IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }));
+
+            blockOffset += length;
+        }
+
+        return new Manifest(parentTag, tables);
+    }
+
+    private static List<ManifestEntry> readBlock(final DataInput block,
+                                                 final Path table,
+                                                 final int entryCount,
+                                                 final CompressionCodec[] codecs) throws IOException {
+        final List<ManifestEntry> entries = new ArrayList<>(entryCount);
+
+        for (int i = 0; i < entryCount; i++) {
+            final Path objectKey = table.resolve(block.readUTF());
+            final int flags = block.readUnsignedByte();
+            final Path storageKey = (flags & STORAGE_KEY_FLAG) != 0 ? Paths.get(block.readUTF()) : objectKey;
+            final long size = readVarLong(block);
+            final CompressionCodec codec = codecs[block.readUnsignedByte()];
+
+            final ManifestEntry entry = new ManifestEntry(objectKey, storageKey, null, ManifestEntry.Type.FILE, size, codec);
+
+            if ((flags & CHECKSUM_FLAG) != 0) {
+                entry.setChecksum(Integer.toUnsignedLong(block.readInt()));
+            }
+
+            entries.add(entry);
+        }
+
+        return entries;
+    }
+
+    /**
+     * Writes entries to the manifest file in the binary format.
+     *
+     * @param parentTag tag of the snapshot the manifest builds upon, or null
+     */
+    public static void writeBinary(final Path manifestFile, final String parentTag, final Collection<ManifestEntry> entries) throws IOException {
+        final Map<Path, List<ManifestEntry>> tables = new LinkedHashMap<>();
+
+        entries.forEach(entry -> tables.computeIfAbsent(table(entry.objectKey), table -> new ArrayList<>()).add(entry));
+
+        final List<byte[]> blocks = new ArrayList<>(tables.size());
+
+        for (final Map.Entry<Path, List<ManifestEntry>> table : tables.entrySet()) {
+            final ByteArrayOutputStream block = new ByteArrayOutputStream();
+
+            try (final DataOutputStream blockStream = new DataOutputStream(new DeflaterOutputStream(block))) {
+                for (final ManifestEntry entry : table.getValue()) {
+                    writeEntry(blockStream, table.getKey(), entry);
+                }
+            }
+
+            blocks.add(block.toByteArray());
+        }
+
+        try (final OutputStream stream = Files.newOutputStream(manifestFile);
+             final DataOutputStream header = new DataOutputStream(stream)) {
+            header.write(MAGIC);
+            header.writeByte(VERSION);
+
+            header.writeBoolean(parentTag != null);
+
+            if (parentTag != null) {
+                header.writeUTF(parentTag);
+            }
+
+            header.writeInt(CompressionCodec.values().length);
+
+            for (final CompressionCodec codec : CompressionCodec.values()) {
+                header.writeUTF(codec.name());
+            }
+
+            header.writeInt(tables.size());
+
+            int i = 0;
+
+            for (final Map.Entry<Path, List<ManifestEntry>> table : tables.entrySet()) {
+                header.writeUTF(table.getKey().toString());
+                header.writeInt(table.getValue().size());
+                header.writeInt(blocks.get(i++).length);
+            }
+
+            for (final byte[] block : blocks) {
+                header.write(block);
+            }
+        }
+    }
+
+    private static void writeEntry(final DataOutput block, final Path table, final ManifestEntry entry) throws IOException {
+        final long checksum = entry.getChecksum();
+        final boolean hasStorageKey = !entry.storageKey.equals(entry.objectKey);
+
+        block.writeUTF(table.relativize(entry.objectKey).toString());
+        block.writeByte((hasStorageKey ? STORAGE_KEY_FLAG : 0) | (checksum != ManifestEntry.NO_CHECKSUM ? CHECKSUM_FLAG : 0));
+
+        if (hasStorageKey) {
+            block.writeUTF(entry.storageKey.toString());
+        }
+
+        writeVarLong(block, entry.size);
+        block.writeByte(entry.codec.ordinal());
+
+        if (checksum != ManifestEntry.NO_CHECKSUM) {
+            block.writeInt((int) checksum);
+        }
+    }
+
+    private static void writeVarLong(final DataOutput output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        output.writeByte((int) value);
+    }
+
+    private static long readVarLong(final DataInput input) throws IOException {
+        long value = 0;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            final int b = input.readUnsignedByte();
+
+            value |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Malformed size in binary manifest.");
+    }
+}
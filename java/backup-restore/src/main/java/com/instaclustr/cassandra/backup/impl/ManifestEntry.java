@@ -3,6 +3,7 @@ package com.instaclustr.cassandra.backup.impl;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import com.google.common.base.MoreObjects;
 
@@ -12,36 +13,161 @@ public class ManifestEntry {
         MANIFEST_FILE
     }
 
-    public final Path objectKey, localFile;
+    private static final String BLOB_ATTRIBUTE = "blob=";
+    private static final String CODEC_ATTRIBUTE = "codec=";
+
+    /**
+     * Manifest lines starting with this prefix are directives rather than entries.
+     */
+    public static final String DIRECTIVE_PREFIX = "#";
+
+    /**
+     * Directive of an incremental manifest naming the manifest it builds upon, in form {@code #parent <snapshotTag>}.
+     */
+    public static final String PARENT_DIRECTIVE = DIRECTIVE_PREFIX + "parent ";
+
+    /**
+     * Checksum of a file whose content is not known, e.g. as it changed size while it was backed up, or of entries
+     * of manifests written before checksums were recorded.
+     */
+    public static final long NO_CHECKSUM = -1;
+
+    /**
+     * objectKey is the key of the file as recorded in the manifest, storageKey is the key the file is actually stored under.
+     * They differ only for files kept in the content-addressed store, see {@link StorageInteractor#BLOBS_ROOT}.
+     */
+    public final Path objectKey, storageKey, localFile;
     public final long size;
     public final Type type;
 
+    /**
+     * Codec the file is stored compressed with, size is always the uncompressed size of the file.
+     */
+    public final CompressionCodec codec;
+
+    /**
+     * CRC32 of the uncompressed file, recorded as the manifest is generated or the file uploaded, {@link #NO_CHECKSUM} if it is not known.
+     */
+    private volatile long checksum = NO_CHECKSUM;
+
     public ManifestEntry(final Path objectKey,
                          final Path localFile,
                          final Type type) throws IOException {
-        this.objectKey = objectKey;
-        this.localFile = localFile;
-        this.size = Files.size(localFile);
-        this.type = type;
+        this(objectKey, objectKey, localFile, type, Files.size(localFile));
+    }
+
+    public ManifestEntry(final Path objectKey,
+                         final Path localFile,
+                         final Type type,
+                         final long size) {
+        this(objectKey, objectKey, localFile, type, size);
     }
 
     public ManifestEntry(final Path objectKey,
+                         final Path storageKey,
                          final Path localFile,
                          final Type type,
                          final long size) {
+        this(objectKey, storageKey, localFile, type, size, CompressionCodec.NONE);
+    }
+
+    public ManifestEntry(final Path objectKey,
+                         final Path storageKey,
+                         final Path localFile,
+                         final Type type,
+                         final long size,
+                         final CompressionCodec codec) {
         this.objectKey = objectKey;
+        this.storageKey = storageKey;
         this.localFile = localFile;
         this.size = size;
         this.type = type;
+        this.codec = codec;
+    }
+
+    /**
+     * @return this entry, stored compressed with the codec under the key with the extension of the codec appended
+     */
+    public ManifestEntry compressedWith(final CompressionCodec codec) {
+        if (codec == CompressionCodec.NONE) {
+            return this;
+        }
+
+        return new ManifestEntry(objectKey, codec.compressedKey(storageKey), localFile, type, size, codec);
+    }
+
+    /**
+     * @return this entry, restored to the local file
+     */
+    public ManifestEntry locatedAt(final Path localFile) {
+        final ManifestEntry entry = new ManifestEntry(objectKey, storageKey, localFile, type, size, codec);
+        entry.checksum = checksum;
+        return entry;
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(final long checksum) {
+        this.checksum = checksum;
+    }
+
+    /**
+     * @return line of the snapshot manifest in form {@code <size> <objectKey>[ blob=<storageKey>][ codec=<codec>]}
+     */
+    public String toManifestLine() {
+        final StringBuilder line = new StringBuilder().append(size).append(' ').append(objectKey);
+
+        if (!storageKey.equals(objectKey)) {
+            line.append(' ').append(BLOB_ATTRIBUTE).append(storageKey);
+        }
+
+        if (codec != CompressionCodec.NONE) {
+            line.append(' ').append(CODEC_ATTRIBUTE).append(codec);
+        }
+
+        return line.toString();
+    }
+
+    /**
+     * @param manifestLine line of the snapshot manifest, split on spaces
+     * @return key the file of the manifest line is stored under
+     */
+    public static Path parseStorageKey(final String[] manifestLine) {
+        for (int i = 2; i < manifestLine.length; i++) {
+            if (manifestLine[i].startsWith(BLOB_ATTRIBUTE)) {
+                return Paths.get(manifestLine[i].substring(BLOB_ATTRIBUTE.length()));
+            }
+        }
+
+        return Paths.get(manifestLine[1]);
+    }
+
+    /**
+     * @param manifestLine line of the snapshot manifest, split on spaces
+     * @return codec the file of the manifest line is stored compressed with
+     */
+    public static CompressionCodec parseCodec(final String[] manifestLine) {
+        for (int i = 2; i < manifestLine.length; i++) {
+            if (manifestLine[i].startsWith(CODEC_ATTRIBUTE)) {
+                return CompressionCodec.valueOf(manifestLine[i].substring(CODEC_ATTRIBUTE.length()));
+            }
+        }
+
+        return CompressionCodec.NONE;
     }
 
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
                 .add("objectKey", objectKey.toAbsolutePath())
-                .add("localFile", localFile.toAbsolutePath().toString())
+                .add("storageKey", storageKey)
+                .add("localFile", localFile == null ? null : localFile.toAbsolutePath().toString())
                 .add("type", type)
                 .add("size", size)
+                .add("codec", codec)
+                .add("checksum", checksum)
                 .toString();
     }
 }
@@ -0,0 +1,15 @@
+package com.instaclustr.cassandra.backup.impl;
+
+/**
+ * Format a snapshot manifest is written in, see {@link Manifest}. Manifests of either format are read regardless.
+ */
+public enum ManifestFormat {
+    /**
+     * Line per file in form {@code <size> <objectKey>[ blob=<storageKey>][ codec=<codec>]}, after directives.
+     */
+    TEXT,
+    /**
+     * Versioned binary manifest, files grouped by table in separately compressed blocks, with their checksums.
+     */
+    BINARY
+}
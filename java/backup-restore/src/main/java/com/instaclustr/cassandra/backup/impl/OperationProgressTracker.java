@@ -3,9 +3,13 @@ package com.instaclustr.cassandra.backup.impl;
 import com.instaclustr.operations.Operation;
 import com.instaclustr.operations.OperationRequest;
 
+/**
+ * Tracks progress of uploads or downloads of an operation. The operation may be null if they are not part of one,
+ * e.g. uploads of a service.
+ */
 public class OperationProgressTracker {
     private final Operation<? extends OperationRequest> operation;
-    private final int eventsToComplete;
+    private int eventsToComplete;
     private int eventsCompleted = 0;
 
     public OperationProgressTracker(final Operation<? extends OperationRequest> operation,
@@ -18,11 +22,30 @@ public class OperationProgressTracker {
         this.eventsToComplete = eventsToComplete;
     }
 
+    /**
+     * Creates a tracker for which the number of events is not known up-front, e.g. because files are
+     * uploaded while the manifest is still being generated. Events have to be announced via {@link #expect(int)}.
+     */
+    public OperationProgressTracker(final Operation<? extends OperationRequest> operation) {
+        this.operation = operation;
+        this.eventsToComplete = 0;
+    }
+
+    public synchronized void expect(final int events) {
+        this.eventsToComplete += events;
+    }
+
     public synchronized void update() {
-        this.operation.progress = (float) ++eventsCompleted / (float) eventsToComplete;
+        ++eventsCompleted;
+
+        if (operation != null && eventsToComplete > 0) {
+            this.operation.progress = Math.min(1.0f, (float) eventsCompleted / (float) eventsToComplete);
+        }
     }
 
     public void complete() {
-        this.operation.progress = 1.0f;
+        if (operation != null) {
+            this.operation.progress = 1.0f;
+        }
     }
 }
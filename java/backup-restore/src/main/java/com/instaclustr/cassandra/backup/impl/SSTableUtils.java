@@ -1,16 +1,16 @@
 package com.instaclustr.cassandra.backup.impl;
 
-import static java.lang.Math.toIntExact;
-
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -66,31 +66,58 @@ public class SSTableUtils {
     public static String calculateChecksum(final Path filePath) throws IOException {
         try (final FileChannel fileChannel = FileChannel.open(filePath)) {
 
-            int bytesStart;
-            int bytesPerChecksum = 10 * 1024 * 1024;
-
             // Get last 10 megabytes of file to use for checksum
-            if (fileChannel.size() >= bytesPerChecksum) {
-                bytesStart = toIntExact(fileChannel.size()) - bytesPerChecksum;
-            } else {
-                bytesStart = 0;
-                bytesPerChecksum = (int) fileChannel.size();
-            }
-
-            fileChannel.position(bytesStart);
-            final ByteBuffer bytesToChecksum = ByteBuffer.allocate(bytesPerChecksum);
-            int bytesRead = fileChannel.read(bytesToChecksum, bytesStart);
+            final long bytesPerChecksum = Math.min(fileChannel.size(), 10 * 1024 * 1024);
+            final long bytesStart = fileChannel.size() - bytesPerChecksum;
 
-            assert (bytesRead == bytesPerChecksum);
+            // mapped rather than read into a heap buffer, so no buffer of up to 10 megabytes is allocated per call
+            final MappedByteBuffer bytesToChecksum = fileChannel.map(FileChannel.MapMode.READ_ONLY, bytesStart, bytesPerChecksum);
 
             // Adler32 because it's faster than SHA / MD5 and Cassandra uses it - https://issues.apache.org/jira/browse/CASSANDRA-5862
             final Adler32 adler32 = new Adler32();
-            adler32.update(bytesToChecksum.array());
+            adler32.update(bytesToChecksum);
 
             return String.valueOf(adler32.getValue());
         }
     }
 
+    /**
+     * @return Data.db component of the SSTable the file belongs to
+     */
+    static Path dataFile(final Path path) {
+        final Matcher matcher = SSTABLE_RE.matcher(path.getFileName().toString());
+        if (!matcher.matches()) {
+            throw new IllegalStateException("Can't resolve Data.db of " + path + ": doesn't taste like sstable");
+        }
+
+        return path.resolveSibling(matcher.group(SSTABLE_PREFIX_IDX) + "-Data.db");
+    }
+
+    /**
+     * @param objectKey         key of a Data.db component, data/keyspace/table/generation-hash/file
+     * @param backedUpObjectKeys keys of all backed up files
+     * @return CRC32 of the Data.db component, when the hash of its SSTable was taken from a Digest.crc32 component,
+     * which holds the CRC32 of the whole Data.db
+     */
+    public static OptionalLong dataCrc32(final Path objectKey, final Set<Path> backedUpObjectKeys) {
+        final Matcher matcher = SSTABLE_RE.matcher(objectKey.getFileName().toString());
+        if (!matcher.matches() || !objectKey.getFileName().toString().endsWith("-Data.db")) {
+            return OptionalLong.empty();
+        }
+
+        if (!backedUpObjectKeys.contains(objectKey.resolveSibling(matcher.group(SSTABLE_PREFIX_IDX) + "-Digest.crc32"))) {
+            return OptionalLong.empty();
+        }
+
+        final String hash = objectKey.getParent().getFileName().toString();
+
+        try {
+            return OptionalLong.of(Long.parseLong(hash.substring(hash.indexOf('-') + 1)));
+        } catch (final NumberFormatException e) {
+            return OptionalLong.empty();
+        }
+    }
+
     /**
      * Traverses the {@code tablePath} directory and generates a stream of ManifestEntry to be uploaded to the {@code tableBackupPath}
      * directory. It includes files which only belongs to sstables or secondary indexes.
@@ -101,6 +128,38 @@ public class SSTableUtils {
      * @throws IOException
      */
     public static Stream<ManifestEntry> ssTableManifest(Path tablePath, Path tableBackupPath) throws IOException {
+        return ssTableManifest(tablePath, tableBackupPath, null);
+    }
+
+    /**
+     * As {@link #ssTableManifest(Path, Path)}, but when {@code tableBlobPath} is not null, files are stored under it
+     * in content-addressed form, {@code <sha256>/<size>-<component>}, instead of under their key in {@code tableBackupPath}.
+     * The same SSTable file backed up by any node of a cluster resolves to the same key, so it is stored only once.
+     *
+     * @param tablePath
+     * @param tableBackupPath
+     * @param tableBlobPath
+     * @return
+     * @throws IOException
+     */
+    public static Stream<ManifestEntry> ssTableManifest(Path tablePath, Path tableBackupPath, Path tableBlobPath) throws IOException {
+        return ssTableManifest(tablePath, tableBackupPath, tableBlobPath, FingerprintCache.inMemory(), false);
+    }
+
+    /**
+     * As {@link #ssTableManifest(Path, Path, Path)}, taking hashes of SSTables and files from the {@code fingerprintCache}.
+     * Files are read to record their CRC32 in their entries only if {@code checksummed}, and to compute their SHA-256
+     * only if stored in content-addressed form.
+     *
+     * @param tablePath
+     * @param tableBackupPath
+     * @param tableBlobPath
+     * @param fingerprintCache
+     * @param checksummed
+     * @return
+     * @throws IOException
+     */
+    public static Stream<ManifestEntry> ssTableManifest(Path tablePath, Path tableBackupPath, Path tableBlobPath, FingerprintCache fingerprintCache, boolean checksummed) throws IOException {
 
         return Files.list(tablePath)
                 .flatMap(path -> {
@@ -112,7 +171,7 @@ public class SSTableUtils {
                 .filter(path -> SSTABLE_RE.matcher(path.getFileName().toString()).matches())
                 .map(path -> {
                     try {
-                        final String hash = sstableHash(path);
+                        final String hash = fingerprintCache.sstableHash(path);
                         final Path tableRelative = tablePath.relativize(path);
                         final Path parent = tableRelative.getParent();
                         Path backupPath = tableBackupPath;
@@ -120,13 +179,56 @@ public class SSTableUtils {
                             backupPath = backupPath.resolve(parent);
                         }
                         backupPath = backupPath.resolve(hash).resolve(tableRelative.getFileName());
-                        return new ManifestEntry(backupPath, path, ManifestEntry.Type.FILE);
+
+                        if (tableBlobPath == null) {
+                            final ManifestEntry entry = new ManifestEntry(backupPath, path, ManifestEntry.Type.FILE);
+                            if (checksummed) {
+                                entry.setChecksum(fingerprintCache.crc32(path));
+                            }
+                            return entry;
+                        }
+
+                        final long size = Files.size(path);
+                        final FingerprintCache.Fingerprint fingerprint = fingerprintCache.fingerprint(path);
+                        Path blobPath = parent == null ? tableBlobPath : tableBlobPath.resolve(parent);
+                        blobPath = blobPath.resolve(fingerprint.sha256).resolve(size + "-" + sstableComponent(path));
+                        final ManifestEntry entry = new ManifestEntry(backupPath, blobPath, path, ManifestEntry.Type.FILE, size);
+                        if (checksummed) {
+                            entry.setChecksum(fingerprint.crc32);
+                        }
+                        return entry;
                     } catch (IOException e) {
                         throw new UncheckedIOException(e);
                     }
                 });
     }
 
+    /**
+     * @return component of the SSTable the file belongs to, e.g. "Data.db" for "mc-1-big-Data.db"
+     */
+    private static String sstableComponent(Path path) {
+        final String fileName = path.getFileName().toString();
+        final Matcher matcher = SSTABLE_RE.matcher(fileName);
+        if (!matcher.matches()) {
+            throw new IllegalStateException("Can't resolve SSTable component of " + path + ": doesn't taste like sstable");
+        }
+
+        return fileName.substring(matcher.group(SSTABLE_PREFIX_IDX).length() + 1);
+    }
+
+    /**
+     * @return true if the file is the Data.db component of an SSTable of a table with compression enabled,
+     * i.e. there is a CompressionInfo.db component next to it
+     */
+    public static boolean isCompressedData(Path path) {
+        final Matcher matcher = SSTABLE_RE.matcher(path.getFileName().toString());
+        if (!matcher.matches() || !path.getFileName().toString().endsWith("-Data.db")) {
+            return false;
+        }
+
+        return Files.exists(path.resolveSibling(matcher.group(SSTABLE_PREFIX_IDX) + "-CompressionInfo.db"));
+    }
+
     public static Map<String, List<Path>> listSSTables(Path table) throws IOException {
         return Files.list(table)
                 .filter(path -> SSTABLE_RE.matcher(path.getFileName().toString()).matches())
@@ -0,0 +1,106 @@
+package com.instaclustr.cassandra.backup.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.Consumer;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * Local state kept between runs in {@code var/lib/backup-restore} of the shared container path, e.g. indexes and
+ * journals, each a text file of lines with space separated fields, the last of which may contain spaces.
+ * <p>
+ * Files are written to a temporary file first and renamed over the previous one, so a crash never leaves a
+ * partially written file behind.
+ */
+public final class StateFiles {
+
+    private static final Path STATE_DIRECTORY = Paths.get("var/lib/backup-restore");
+
+    @FunctionalInterface
+    public interface LineConsumer {
+        void accept(String[] fields) throws IOException;
+    }
+
+    private StateFiles() {
+    }
+
+    /**
+     * @return state file of given name
+     */
+    public static Path stateFile(final Path sharedContainerPath, final String name) {
+        return sharedContainerPath.resolve(STATE_DIRECTORY).resolve(name);
+    }
+
+    /**
+     * @return state file of given name kept per storage location, named by the hash of the location
+     */
+    public static Path stateFile(final Path sharedContainerPath, final String name, final StorageLocation storageLocation) {
+        return stateFile(sharedContainerPath, name).resolve(Hashing.sha256().hashString(storageLocation.rawLocation, UTF_8).toString());
+    }
+
+    /**
+     * Reads the lines of the file, if it exists.
+     *
+     * @throws IOException if the file could not be read, or a line of it does not have given number of fields
+     */
+    public static void read(final Path file, final int fields, final LineConsumer consumer) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        try (final BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+            read(reader, fields, consumer);
+        }
+    }
+
+    /**
+     * Reads the lines of the reader.
+     *
+     * @throws IOException if the reader failed, or a line does not have given number of fields
+     */
+    public static void read(final BufferedReader reader, final int fields, final LineConsumer consumer) throws IOException {
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            final String[] lineArray = line.split(" ", fields);
+
+            if (lineArray.length != fields) {
+                throw new IOException(String.format("Malformed line: %s", line));
+            }
+
+            try {
+                consumer.accept(lineArray);
+            } catch (final NumberFormatException ex) {
+                throw new IOException(String.format("Malformed line: %s", line), ex);
+            }
+        }
+    }
+
+    /**
+     * Writes the file, replacing the previous one atomically.
+     */
+    public static void write(final Path file, final Consumer<PrintWriter> content) throws IOException {
+        Files.createDirectories(file.getParent());
+
+        final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(tempFile, UTF_8))) {
+            content.accept(writer);
+
+            if (writer.checkError()) {
+                throw new IOException("Failed to write " + tempFile);
+            }
+        }
+
+        Files.move(tempFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+}
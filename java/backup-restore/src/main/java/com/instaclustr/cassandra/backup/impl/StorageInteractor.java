@@ -6,6 +6,12 @@ import java.nio.file.Paths;
 
 public abstract class StorageInteractor implements AutoCloseable {
 
+    /**
+     * Root of the content-addressed store. Objects under it are shared by all nodes of a cluster, so they are resolved
+     * under the cluster rather than under the node.
+     */
+    public static final Path BLOBS_ROOT = Paths.get("blobs");
+
     private final StorageLocation storageLocation;
 
     public abstract RemoteObjectReference objectKeyToRemoteReference(final Path objectKey) throws Exception;
@@ -15,6 +21,10 @@ public abstract class StorageInteractor implements AutoCloseable {
     }
 
     public String resolveRemotePath(final Path objectKey) {
+        if (objectKey.startsWith(BLOBS_ROOT)) {
+            return Paths.get(storageLocation.clusterId).resolve(objectKey).toString();
+        }
+
         return Paths.get(storageLocation.clusterId).resolve(storageLocation.nodeId).resolve(objectKey).toString();
     }
 
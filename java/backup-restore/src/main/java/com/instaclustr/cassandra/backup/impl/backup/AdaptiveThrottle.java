@@ -0,0 +1,204 @@
+package com.instaclustr.cassandra.backup.impl.backup;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static jmx.org.apache.cassandra.CassandraObjectNames.CLIENT_READ_LATENCY;
+import static jmx.org.apache.cassandra.CassandraObjectNames.CLIENT_WRITE_LATENCY;
+import static jmx.org.apache.cassandra.CassandraObjectNames.PENDING_COMPACTIONS;
+import static jmx.org.apache.cassandra.CassandraObjectNames.STORAGE_SERVICE_MBEAN_NAME;
+
+import javax.management.MBeanServerConnection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Provider;
+import com.instaclustr.measure.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scales the upload bandwidth and the number of concurrent uploads of an operation with the health of the node,
+ * sampled over JMX. Uploads back off by half while the node is unhealthy, and recover by a tenth of their range
+ * per sample once it is healthy again.
+ */
+public final class AdaptiveThrottle implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveThrottle.class);
+
+    private static final long SAMPLE_PERIOD_SECONDS = 10;
+    private static final double RECOVERY_STEP = 0.1;
+
+    private static final int DEFAULT_MAX_PENDING_COMPACTIONS = 100;
+    private static final Time DEFAULT_MAX_CLIENT_LATENCY = new Time(100L, MILLISECONDS);
+
+    private final MBeanServerConnection connection;
+    private final Backuper backuper;
+    private final int maxPendingCompactions;
+    private final double maxClientLatencyMicros;
+    private final int maxConnections;
+    private final ResizableSemaphore connections;
+    private final ScheduledExecutorService sampler;
+
+    // 0 when uploads are throttled to their lower bounds, 1 when to their upper bounds
+    private volatile double scale = 1;
+    private int connectionLimit;
+
+    AdaptiveThrottle(final BaseBackupOperationRequest request,
+                     final MBeanServerConnection connection,
+                     final Backuper backuper) {
+        this.connection = connection;
+        this.backuper = backuper;
+        this.maxPendingCompactions = request.maxPendingCompactions == null ? DEFAULT_MAX_PENDING_COMPACTIONS : request.maxPendingCompactions;
+        this.maxClientLatencyMicros = toMicros(request.maxClientLatency == null ? DEFAULT_MAX_CLIENT_LATENCY : request.maxClientLatency);
+        this.maxConnections = request.concurrentConnections;
+        this.connections = new ResizableSemaphore(maxConnections);
+        this.connectionLimit = maxConnections;
+        this.sampler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("adaptive-throttle-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Starts throttling uploads of the backuper adaptively, if the request asks for it.
+     *
+     * @return the started throttle, to be closed once the operation is done, or null if uploads are not throttled adaptively
+     */
+    public static AdaptiveThrottle start(final BaseBackupOperationRequest request,
+                                         final Provider<MBeanServerConnection> connectionProvider,
+                                         final Backuper backuper) {
+        if (!request.adaptiveThrottle) {
+            return null;
+        }
+
+        final MBeanServerConnection connection = connectionProvider == null ? null : connectionProvider.get();
+
+        if (connection == null) {
+            logger.warn("Adaptive throttle needs a JMX connection to Cassandra, uploads will not be throttled adaptively.");
+            return null;
+        }
+
+        if (request.bandwidth == null && request.duration == null) {
+            logger.warn("Neither bandwidth nor duration is set, only the number of concurrent uploads will be throttled adaptively{}.",
+                        request.minBandwidth == null ? "" : ", min bandwidth is ignored");
+        }
+
+        final AdaptiveThrottle throttle = new AdaptiveThrottle(request, connection, backuper);
+
+        backuper.setAdaptiveThrottle(throttle);
+        throttle.sampler.scheduleWithFixedDelay(throttle::sample, 0, SAMPLE_PERIOD_SECONDS, TimeUnit.SECONDS);
+
+        return throttle;
+    }
+
+    /**
+     * @return rate between the lower and the upper bound, according to the current health of the node
+     */
+    double rate(final double minRate, final double maxRate) {
+        return minRate + (maxRate - minRate) * scale;
+    }
+
+    void acquireConnection() throws InterruptedException {
+        connections.acquire();
+    }
+
+    void releaseConnection() {
+        connections.release();
+    }
+
+    /**
+     * @return number of uploads which may start right away, negative if more are in progress than currently allowed
+     */
+    int availableConnections() {
+        return connections.availablePermits();
+    }
+
+    /**
+     * Samples the health of the node and scales uploads accordingly, called periodically once started.
+     */
+    void sample() {
+        final String unhealthyReason;
+
+        try {
+            unhealthyReason = unhealthyReason();
+        } catch (final Exception ex) {
+            logger.warn("Failed to sample the health of the node, keeping the upload throttle as it is.", ex);
+            return;
+        }
+
+        final double previousScale = scale;
+
+        if (unhealthyReason != null) {
+            // halving is stopped once uploads are close enough to their lower bounds
+            scale = scale > RECOVERY_STEP / 4 ? scale / 2 : 0;
+        } else {
+            scale = Math.min(1, scale + RECOVERY_STEP);
+        }
+
+        if (scale == previousScale) {
+            return;
+        }
+
+        if (unhealthyReason != null) {
+            logger.info("Backing uploads off to {}% of their range, {}.", Math.round(scale * 100), unhealthyReason);
+        } else {
+            logger.info("Node is healthy, recovering uploads to {}% of their range.", Math.round(scale * 100));
+        }
+
+        resizeConnections(1 + (int) Math.round((maxConnections - 1) * scale));
+        backuper.updateRateLimiter();
+    }
+
+    private String unhealthyReason() throws Exception {
+        final String operationMode = (String) connection.getAttribute(STORAGE_SERVICE_MBEAN_NAME, "OperationMode");
+
+        if (!"NORMAL".equals(operationMode)) {
+            return String.format("node is in %s mode", operationMode);
+        }
+
+        final int pendingCompactions = ((Number) connection.getAttribute(PENDING_COMPACTIONS, "Value")).intValue();
+
+        if (pendingCompactions > maxPendingCompactions) {
+            return String.format("%d compactions are pending", pendingCompactions);
+        }
+
+        // client request latencies are in microseconds
+        final double readLatency = ((Number) connection.getAttribute(CLIENT_READ_LATENCY, "99thPercentile")).doubleValue();
+        final double writeLatency = ((Number) connection.getAttribute(CLIENT_WRITE_LATENCY, "99thPercentile")).doubleValue();
+
+        if (Math.max(readLatency, writeLatency) > maxClientLatencyMicros) {
+            return String.format("99th percentile of client latency is %.0f us for reads and %.0f us for writes", readLatency, writeLatency);
+        }
+
+        return null;
+    }
+
+    private void resizeConnections(final int limit) {
+        if (limit > connectionLimit) {
+            connections.release(limit - connectionLimit);
+        } else if (limit < connectionLimit) {
+            // uploads in progress are not interrupted, new ones wait until enough of them completed
+            connections.reducePermits(connectionLimit - limit);
+        }
+
+        connectionLimit = limit;
+    }
+
+    private static double toMicros(final Time time) {
+        return (double) time.unit.toMicros(time.value);
+    }
+
+    @Override
+    public void close() {
+        sampler.shutdownNow();
+    }
+
+    private static final class ResizableSemaphore extends Semaphore {
+        ResizableSemaphore(final int permits) {
+            super(permits);
+        }
+
+        @Override
+        protected void reducePermits(final int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
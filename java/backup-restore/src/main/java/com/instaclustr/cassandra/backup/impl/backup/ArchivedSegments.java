@@ -0,0 +1,122 @@
+package com.instaclustr.cassandra.backup.impl.backup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.io.ByteStreams;
+import com.instaclustr.cassandra.backup.impl.ManifestEntry;
+import com.instaclustr.cassandra.backup.impl.StateFiles;
+import com.instaclustr.io.ChecksummingInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local record of commit log segments archived to a storage location, by their name, size and CRC32.
+ * <p>
+ * A segment archived again with the same content, e.g. as it was touched without being written to, or archived by
+ * a later commit log backup, is not uploaded again: its earlier upload, under the key of its earlier timestamp,
+ * holds the same mutations. A segment is read to compute its checksum only if one of the same name and size was
+ * archived before, any other is uploaded right away and its checksum recorded once it is uploaded.
+ * <p>
+ * The record is stored in {@code var/lib/backup-restore/archived-commitlogs} of the shared container path, one file
+ * per storage location, each line in form {@code <archivedAt> <size> <checksum> <name>}. Segments archived more than
+ * a week ago are dropped from it.
+ */
+public class ArchivedSegments {
+    private static final Logger logger = LoggerFactory.getLogger(ArchivedSegments.class);
+
+    private static final long RETENTION_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    private static class Entry {
+        final long archivedAt;
+        final long size;
+        final long checksum;
+
+        Entry(final long archivedAt, final long size, final long checksum) {
+            this.archivedAt = archivedAt;
+            this.size = size;
+            this.checksum = checksum;
+        }
+    }
+
+    private final Path recordFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private ArchivedSegments(final Path recordFile) {
+        this.recordFile = recordFile;
+    }
+
+    /**
+     * @return record of segments archived to the storage location of the request
+     */
+    public static ArchivedSegments forRequest(final BaseBackupOperationRequest request) {
+        final ArchivedSegments archivedSegments = new ArchivedSegments(StateFiles.stateFile(request.sharedContainerPath,
+                                                                                              "archived-commitlogs",
+                                                                                              request.storageLocation));
+        archivedSegments.load();
+        return archivedSegments;
+    }
+
+    /**
+     * @return true if the local file of the entry was archived before with the same content
+     */
+    public boolean isArchived(final ManifestEntry entry) throws IOException {
+        final Entry archived = entries.get(entry.localFile.getFileName().toString());
+
+        if (archived == null || archived.size != entry.size) {
+            return false;
+        }
+
+        try (final ChecksummingInputStream stream = new ChecksummingInputStream(Files.newInputStream(entry.localFile))) {
+            return ByteStreams.exhaust(stream) == archived.size && stream.getChecksum() == archived.checksum;
+        }
+    }
+
+    /**
+     * Records uploaded entries by their checksums. Entries without one, e.g. as their file grew while uploaded,
+     * are not recorded.
+     */
+    public void record(final Collection<ManifestEntry> uploadedEntries) {
+        final long now = System.currentTimeMillis();
+
+        for (final ManifestEntry entry : uploadedEntries) {
+            if (entry.getChecksum() != ManifestEntry.NO_CHECKSUM) {
+                entries.put(entry.localFile.getFileName().toString(), new Entry(now, entry.size, entry.getChecksum()));
+            }
+        }
+    }
+
+    private void load() {
+        final long now = System.currentTimeMillis();
+
+        try {
+            StateFiles.read(recordFile, 4, lineArray -> {
+                final Entry entry = new Entry(Long.parseLong(lineArray[0]), Long.parseLong(lineArray[1]), Long.parseLong(lineArray[2]));
+
+                if (now - entry.archivedAt < RETENTION_MILLIS) {
+                    entries.put(lineArray[3], entry);
+                }
+            });
+        } catch (final IOException e) {
+            // the record is only an optimisation, every segment is uploaded without it
+            logger.warn("Failed to load archived commit log record {}, ignoring it.", recordFile, e);
+            entries.clear();
+        }
+    }
+
+    /**
+     * Persists the record.
+     */
+    public void save() {
+        try {
+            StateFiles.write(recordFile, writer -> entries.forEach((name, entry) -> writer.printf("%d %d %d %s%n", entry.archivedAt, entry.size, entry.checksum, name)));
+        } catch (final IOException e) {
+            logger.warn("Failed to save archived commit log record {}.", recordFile, e);
+        }
+    }
+}
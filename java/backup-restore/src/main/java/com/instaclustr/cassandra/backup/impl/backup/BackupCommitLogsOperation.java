@@ -1,19 +1,26 @@
 package com.instaclustr.cassandra.backup.impl.backup;
 
 import javax.inject.Inject;
+import javax.management.MBeanServerConnection;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.regex.Pattern;
 
+import com.google.inject.Provider;
 import com.google.inject.assistedinject.Assisted;
 import com.instaclustr.cassandra.backup.guice.BackuperFactory;
+import com.instaclustr.cassandra.backup.impl.CommitLogCatalogue;
+import com.instaclustr.cassandra.backup.impl.CompressionCodec;
 import com.instaclustr.cassandra.backup.impl.ManifestEntry;
 import com.instaclustr.cassandra.backup.impl.OperationProgressTracker;
+import com.instaclustr.cassandra.backup.impl.RemoteObjectReference;
 import com.instaclustr.io.GlobalLock;
 import com.instaclustr.operations.Operation;
 import org.slf4j.Logger;
@@ -23,12 +30,17 @@ public class BackupCommitLogsOperation extends Operation<BackupCommitLogsOperati
     private static final Logger logger = LoggerFactory.getLogger(BackupCommitLogsOperation.class);
     private static final String CASSANDRA_COMMIT_LOGS = "commitlog";
 
+    static final Pattern COMMIT_LOG_PATTERN = Pattern.compile("CommitLog-\\d+-\\d+\\.log");
+
+    private final Provider<MBeanServerConnection> mBeanServerConnectionProvider;
     private final Map<String, BackuperFactory> backuperFactoryMap;
 
     @Inject
-    public BackupCommitLogsOperation(final Map<String, BackuperFactory> backuperFactoryMap,
+    public BackupCommitLogsOperation(final Provider<MBeanServerConnection> mBeanServerConnectionProvider,
+                                     final Map<String, BackuperFactory> backuperFactoryMap,
                                      @Assisted final BackupCommitLogsOperationRequest request) {
         super(request);
+        this.mBeanServerConnectionProvider = mBeanServerConnectionProvider;
         this.backuperFactoryMap = backuperFactoryMap;
     }
 
@@ -40,28 +52,96 @@ public class BackupCommitLogsOperation extends Operation<BackupCommitLogsOperati
 
         // generate manifest (set of object keys and source files defining the upload)
         final Collection<ManifestEntry> manifest = new LinkedList<>(); // linked list to maintain order
-        final Pattern pattern = Pattern.compile("CommitLog-\\d+-\\d+\\.log");
-        final DirectoryStream.Filter<Path> filter = entry -> Files.isRegularFile(entry) && pattern.matcher(entry.getFileName().toString()).matches();
+        final DirectoryStream.Filter<Path> filter = entry -> Files.isRegularFile(entry) && COMMIT_LOG_PATTERN.matcher(entry.getFileName().toString()).matches();
 
         final Path commitLogArchiveDirectory = resolveCommitLogsPath(request);
-        final Path backupCommitLogRootKey = Paths.get(CASSANDRA_COMMIT_LOGS);
+        final ArchivedSegments archivedSegments = ArchivedSegments.forRequest(request);
 
         try (final DirectoryStream<Path> commitLogs = Files.newDirectoryStream(commitLogArchiveDirectory, filter);
-             final Backuper backuper = backuperFactoryMap.get(request.storageLocation.storageProvider).createCommitLogBackuper(request)) {
+             final Backuper backuper = backuperFactoryMap.get(request.storageLocation.storageProvider).createCommitLogBackuper(request);
+             final AdaptiveThrottle throttle = AdaptiveThrottle.start(request, mBeanServerConnectionProvider, backuper)) {
 
             for (final Path commitLog : commitLogs) {
-                // Append file modified date so we have some idea of the time range this commitlog covers
-                final Path bucketKey = backupCommitLogRootKey.resolve(commitLog.getFileName().toString() + "." + commitLog.toFile().lastModified());
-                manifest.add(new ManifestEntry(bucketKey, commitLog, ManifestEntry.Type.FILE));
+                final ManifestEntry entry = commitLogManifestEntry(commitLog, request.compression);
+
+                if (archivedSegments.isArchived(entry)) {
+                    logger.debug("Commit log segment {} was archived before with the same content, skipping it.", commitLog);
+                } else {
+                    manifest.add(entry);
+                }
             }
 
             logger.debug("{} files in manifest for commitlog backup.", manifest.size());
 
+            if (manifest.isEmpty()) {
+                return;
+            }
+
             backuper.uploadOrFreshenFiles(manifest, new OperationProgressTracker(this, manifest.size()));
+
+            // segments are recorded as archived only once they are catalogued, so they are archived again otherwise
+            addToCatalogue(request, backuper, manifest);
+
+            archivedSegments.record(manifest);
+            archivedSegments.save();
+        }
+    }
+
+    /**
+     * @return entry of an archived commit log segment, compressed with the codec
+     */
+    static ManifestEntry commitLogManifestEntry(final Path commitLog, final CompressionCodec compression) throws IOException {
+        // Append file modified date so we have some idea of the time range this commitlog covers
+        final Path bucketKey = CommitLogCatalogue.segmentKey(commitLog, commitLog.toFile().lastModified());
+        return new ManifestEntry(bucketKey, commitLog, ManifestEntry.Type.FILE).compressedWith(compression);
+    }
+
+    /**
+     * Records uploaded segments in the commit log catalogue of the storage location, merged with the stored catalogue,
+     * e.g. as the local one was lost, and uploads the catalogue.
+     */
+    static void addToCatalogue(final BackupCommitLogsOperationRequest request,
+                               final Backuper backuper,
+                               final Collection<ManifestEntry> segments) throws Exception {
+        // the catalogue is updated by both the operation and the archiver service, which may run in the same process
+        synchronized (CommitLogCatalogue.class) {
+            final Path catalogueFile = CommitLogCatalogue.localFile(request.sharedContainerPath, request.storageLocation);
+            final RemoteObjectReference catalogueObject = backuper.objectKeyToRemoteReference(CommitLogCatalogue.CATALOGUE_KEY);
+
+            CommitLogCatalogue catalogue;
+
+            try {
+                catalogue = CommitLogCatalogue.load(catalogueFile);
+            } catch (final IOException e) {
+                logger.warn("Failed to load commit log catalogue {}, starting a new one.", catalogueFile, e);
+                catalogue = new CommitLogCatalogue();
+            }
+
+            try (final InputStream stream = backuper.openRemoteObject(catalogueObject)) {
+                catalogue.merge(CommitLogCatalogue.read(stream));
+            } catch (final NoSuchFileException e) {
+                logger.info("No commit log catalogue stored yet, uploading a new one.");
+            } catch (final IOException e) {
+                // a malformed catalogue is replaced, restores list all segments not covered by the new one
+                logger.warn("Failed to read stored commit log catalogue, replacing it.", e);
+            }
+
+            for (final ManifestEntry segment : segments) {
+                catalogue.add(segment.objectKey);
+            }
+
+            catalogue.save(catalogueFile);
+
+            try (final InputStream stream = Files.newInputStream(catalogueFile)) {
+                backuper.uploadFile(Files.size(catalogueFile),
+                                    stream,
+                                    catalogueObject,
+                                    new OperationProgressTracker(null, 1));
+            }
         }
     }
 
-    private Path resolveCommitLogsPath(final BackupCommitLogsOperationRequest request) {
+    static Path resolveCommitLogsPath(final BackupCommitLogsOperationRequest request) {
         if (request.commitLogArchiveOverride != null && request.commitLogArchiveOverride.toFile().exists()) {
             return request.commitLogArchiveOverride;
         } else {
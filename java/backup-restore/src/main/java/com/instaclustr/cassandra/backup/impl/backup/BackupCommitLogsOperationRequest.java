@@ -5,6 +5,7 @@ import java.nio.file.Path;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.MoreObjects;
+import com.instaclustr.cassandra.backup.impl.CompressionCodec;
 import com.instaclustr.cassandra.backup.impl.StorageLocation;
 import com.instaclustr.measure.DataRate;
 import com.instaclustr.measure.Time;
@@ -29,8 +30,16 @@ public class BackupCommitLogsOperationRequest extends BaseBackupOperationRequest
                                             @JsonProperty("waitForLock") final boolean waitForLock,
                                             @JsonProperty("sharedContainerPath") final Path sharedContainerPath,
                                             @JsonProperty("cassandraDirectory") final Path cassandraDirectory,
+                                            @JsonProperty("freshnessWindow") final Time freshnessWindow,
+                                            @JsonProperty("compression") final CompressionCodec compression,
+                                            @JsonProperty("hardLinks") final boolean hardLinks,
+                                            @JsonProperty("nodeBandwidth") final DataRate nodeBandwidth,
+                                            @JsonProperty("adaptiveThrottle") final boolean adaptiveThrottle,
+                                            @JsonProperty("minBandwidth") final DataRate minBandwidth,
+                                            @JsonProperty("maxPendingCompactions") final Integer maxPendingCompactions,
+                                            @JsonProperty("maxClientLatency") final Time maxClientLatency,
                                             @JsonProperty("commitLogRestoreDirectory") final Path commitLogArchiveOverride) {
-        super(storageLocation, duration, bandwidth, concurrentConnections, waitForLock, sharedContainerPath, cassandraDirectory);
+        super(storageLocation, duration, bandwidth, concurrentConnections, waitForLock, sharedContainerPath, cassandraDirectory, freshnessWindow, compression, hardLinks, nodeBandwidth, adaptiveThrottle, minBandwidth, maxPendingCompactions, maxClientLatency);
         this.commitLogArchiveOverride = commitLogArchiveOverride;
     }
 
@@ -44,6 +53,14 @@ public class BackupCommitLogsOperationRequest extends BaseBackupOperationRequest
                 .add("waitForLock", waitForLock)
                 .add("sharedContainerPath", sharedContainerPath)
                 .add("cassandraDirectory", cassandraDirectory)
+                .add("freshnessWindow", freshnessWindow)
+                .add("compression", compression)
+                .add("hardLinks", hardLinks)
+                .add("nodeBandwidth", nodeBandwidth)
+                .add("adaptiveThrottle", adaptiveThrottle)
+                .add("minBandwidth", minBandwidth)
+                .add("maxPendingCompactions", maxPendingCompactions)
+                .add("maxClientLatency", maxClientLatency)
                 .add("commitLogRestoreDirectory", commitLogArchiveOverride)
                 .toString();
     }
@@ -16,5 +16,10 @@ public class BackupModule extends AbstractModule {
                                  "commitlog-backup",
                                  BackupCommitLogsOperationRequest.class,
                                  BackupCommitLogsOperation.class);
+
+        installOperationBindings(binder(),
+                                 "incremental-backup",
+                                 IncrementalBackupOperationRequest.class,
+                                 IncrementalBackupOperation.class);
     }
 }
@@ -1,35 +1,53 @@
 package com.instaclustr.cassandra.backup.impl.backup;
 
 import static java.lang.String.format;
-import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
 
 import javax.inject.Inject;
+import javax.management.MBeanServerConnection;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.MoreObjects;
-import com.google.common.base.Predicate;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Streams;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.inject.Provider;
 import com.google.inject.assistedinject.Assisted;
 import com.instaclustr.cassandra.backup.guice.BackuperFactory;
+import com.instaclustr.cassandra.backup.impl.FingerprintCache;
+import com.instaclustr.cassandra.backup.impl.Manifest;
 import com.instaclustr.cassandra.backup.impl.ManifestEntry;
+import com.instaclustr.cassandra.backup.impl.ManifestFormat;
 import com.instaclustr.cassandra.backup.impl.OperationProgressTracker;
 import com.instaclustr.cassandra.backup.impl.SSTableUtils;
+import com.instaclustr.cassandra.backup.impl.StorageInteractor;
 import com.instaclustr.io.GlobalLock;
 import com.instaclustr.operations.Operation;
 import com.instaclustr.operations.OperationRequest;
+import com.instaclustr.threading.Executors.ExecutorServiceSupplier;
 import jmx.org.apache.cassandra.service.StorageServiceMBean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,17 +55,26 @@ import org.slf4j.LoggerFactory;
 public class BackupOperation extends Operation<BackupOperationRequest> {
     private static final Logger logger = LoggerFactory.getLogger(BackupOperation.class);
 
+    // tables whose manifest is generated concurrently
+    private static final int MANIFEST_PARALLELISM = Math.max(4, Runtime.getRuntime().availableProcessors());
+
     private final Provider<StorageServiceMBean> storageServiceMBeanProvider;
+    private final Provider<MBeanServerConnection> mBeanServerConnectionProvider;
     private final Map<String, BackuperFactory> backuperFactoryMap;
+    private final ExecutorServiceSupplier executorServiceSupplier;
 
     @Inject
     public BackupOperation(
             final Provider<StorageServiceMBean> storageServiceMBeanProvider,
+            final Provider<MBeanServerConnection> mBeanServerConnectionProvider,
             final Map<String, BackuperFactory> backuperFactoryMap,
+            final ExecutorServiceSupplier executorServiceSupplier,
             @Assisted final BackupOperationRequest request) {
         super(request);
         this.storageServiceMBeanProvider = storageServiceMBeanProvider;
+        this.mBeanServerConnectionProvider = mBeanServerConnectionProvider;
         this.backuperFactoryMap = backuperFactoryMap;
+        this.executorServiceSupplier = executorServiceSupplier;
     }
 
     @Override
@@ -57,7 +84,7 @@ public class BackupOperation extends Operation<BackupOperationRequest> {
         new GlobalLock(request.sharedContainerPath).waitForLock(request.waitForLock);
 
         if (request.offlineSnapshot) {
-            executeUpload(ImmutableList.of());
+            executeUpload(ImmutableList.of(), dataFileDirectories(request, null));
 
             return;
         }
@@ -69,86 +96,229 @@ public class BackupOperation extends Operation<BackupOperationRequest> {
                                       new TakeSnapshotOperation.TakeSnapshotOperationRequest(request.keyspaces,
                                                                                              request.snapshotTag,
                                                                                              request.table)).run0();
-            executeUpload(storageServiceMBean.getTokens());
+            executeUpload(storageServiceMBean.getTokens(), dataFileDirectories(request, storageServiceMBean));
         } finally {
             new ClearSnapshotOperation(storageServiceMBean,
                                        new ClearSnapshotOperation.ClearSnapshotOperationRequest(request.snapshotTag)).run0();
         }
     }
 
-    private void executeUpload(List<String> tokens) throws Exception {
-        final Collection<ManifestEntry> manifest = generateManifest(request.keyspaces,
-                                                                    request.snapshotTag,
-                                                                    request.cassandraDirectory.resolve("data"));
-
-        Iterables.addAll(manifest, saveTokenList(tokens));
-        Iterables.addAll(manifest, saveManifest(manifest, request.snapshotTag));
+    private void executeUpload(final List<String> tokens, final List<Path> dataFileDirectories) throws Exception {
+        final Collection<KeyspaceColumnFamilySnapshot> keyspaceColumnFamilySnapshots = findKeyspaceColumnFamilySnapshots(request.keyspaces,
+                                                                                                                          request.snapshotTag,
+                                                                                                                          dataFileDirectories);
+
+        final Iterable<ManifestEntry> tokenList = saveTokenList(request, tokens);
+
+        try (final Backuper backuper = backuperFactoryMap.get(request.storageLocation.storageProvider).createBackuper(request);
+             final AdaptiveThrottle throttle = AdaptiveThrottle.start(request, mBeanServerConnectionProvider, backuper)) {
+            final OperationProgressTracker operationProgressTracker = new OperationProgressTracker(this);
+            final FingerprintCache fingerprintCache = FingerprintCache.forSharedContainerPath(request.sharedContainerPath);
+            final AtomicLong dataFiles = new AtomicLong();
+
+            final Stream<ManifestEntry> snapshotFiles = generateManifest(request, keyspaceColumnFamilySnapshots, fingerprintCache,
+                                                                                executorServiceSupplier).peek(manifestEntry -> {
+                if (manifestEntry.localFile.toString().contains("-Data.db")) {
+                    dataFiles.incrementAndGet();
+                }
+            });
+
+            final ManifestEntry manifest = uploadManifestFiles(request,
+                                                               backuper,
+                                                               operationProgressTracker,
+                                                               null,
+                                                               Stream.concat(snapshotFiles, Streams.stream(tokenList)),
+                                                               request.snapshotTag);
+
+            fingerprintCache.save();
+
+            if (!keyspaceColumnFamilySnapshots.isEmpty() && dataFiles.get() == 0) {
+                throw new IllegalStateException("No Data.db SSTables found in manifest. Aborting backup.");
+            }
 
-        try (final Backuper backuper = backuperFactoryMap.get(request.storageLocation.storageProvider).createBackuper(request)) {
-            backuper.uploadOrFreshenFiles(manifest, new OperationProgressTracker(this, manifest.size()));
+            // all files the manifest refers to are uploaded, so it is safe to upload the manifest itself
+            operationProgressTracker.expect(1);
+            backuper.uploadOrFreshenFiles(Stream.of(manifest), operationProgressTracker);
         }
     }
 
-    private Collection<ManifestEntry> generateManifest(
-            final List<String> keyspaces,
-            final String snapshotTag,
-            final Path cassandraDataDirectory) throws IOException {
-        // find files belonging to snapshot
-        final Map<String, ? extends Iterable<KeyspaceColumnFamilySnapshot>> snapshots = findKeyspaceColumnFamilySnapshots(cassandraDataDirectory);
+    /**
+     * @param storageServiceMBean storage service of the running node, or null if it is not running
+     * @return data file directories of the node, as requested, or as configured in Cassandra if it is running
+     */
+    static List<Path> dataFileDirectories(final BackupOperationRequest request, final StorageServiceMBean storageServiceMBean) {
+        if (!request.dataFileDirectories.isEmpty()) {
+            return request.dataFileDirectories;
+        }
 
-        final Iterable<KeyspaceColumnFamilySnapshot> keyspaceColumnFamilySnapshots = snapshots.get(snapshotTag);
+        if (storageServiceMBean == null) {
+            return ImmutableList.of(request.cassandraDirectory.resolve("data"));
+        }
 
-        if (keyspaceColumnFamilySnapshots == null) {
-            if (keyspaces != null && !keyspaces.isEmpty()) {
-                logger.warn("No keyspace column family snapshot directories were found for snapshot \"{}\" of {}", snapshotTag, Joiner.on(",").join(keyspaces));
-                return new LinkedList<>();
-            }
+        final List<Path> dataFileDirectories = Stream.of(storageServiceMBean.getAllDataFileLocations()).map(Paths::get).collect(toList());
 
-            // There should at least be system keyspace tables
-            throw new IllegalStateException(format("No keyspace column family snapshot directories were found for snapshot \"%s\" of all data.", snapshotTag));
-        }
+        logger.info("Backing up data file directories {}.", dataFileDirectories);
 
-        // generate manifest (set of object keys and source files defining the snapshot)
-        final Collection<ManifestEntry> manifest = new LinkedList<>(); // linked list to maintain order
+        return dataFileDirectories;
+    }
 
-        // add snapshot files to the manifest
-        for (final KeyspaceColumnFamilySnapshot keyspaceColumnFamilySnapshot : keyspaceColumnFamilySnapshots) {
-            final Path bucketKey = Paths.get("data").resolve(Paths.get(keyspaceColumnFamilySnapshot.keyspace, keyspaceColumnFamilySnapshot.table));
-            Iterables.addAll(manifest, SSTableUtils.ssTableManifest(keyspaceColumnFamilySnapshot.snapshotDirectory, bucketKey).collect(toList()));
+    /**
+     * Feeds each file of the {@code files} stream to the {@code backuper} as soon as it is generated (e.g. once it has been hashed),
+     * and records every such file in the manifest for the {@code tag}, in the requested format. The stream is closed once
+     * consumed or its upload failed, so any generation still in progress is stopped.
+     * <p>
+     * A text manifest is written as files are generated. A binary one is written once all files are uploaded, so it records
+     * checksums computed as they were uploaded.
+     *
+     * @param parentTag tag of the snapshot the manifest builds upon, or null
+     * @return manifest entry of the written manifest, to be uploaded once all files it refers to are uploaded
+     */
+    static ManifestEntry uploadManifestFiles(final BackupOperationRequest request,
+                                             final Backuper backuper,
+                                             final OperationProgressTracker operationProgressTracker,
+                                             final String parentTag,
+                                             final Stream<ManifestEntry> files,
+                                             final String tag) throws Exception {
+        final Path manifestFilePath = createManifestFile(request, tag);
+        final AtomicLong manifestSize = new AtomicLong();
+
+        try (final Stream<ManifestEntry> generatedFiles = files) {
+            writeManifest(request, backuper, operationProgressTracker, parentTag, generatedFiles, manifestFilePath, manifestSize);
         }
 
-        logger.debug("{} files in manifest for snapshot \"{}\".", manifest.size(), snapshotTag);
+        logger.debug("{} files in manifest for snapshot \"{}\".", manifestSize.get(), tag);
 
-        if (manifest.stream().noneMatch((Predicate<ManifestEntry>) input -> input != null && input.localFile.toString().contains("-Data.db"))) {
-            throw new IllegalStateException("No Data.db SSTables found in manifest. Aborting backup.");
+        return new ManifestEntry(Paths.get("manifests").resolve(manifestFilePath.getFileName()),
+                                 manifestFilePath,
+                                 ManifestEntry.Type.MANIFEST_FILE);
+    }
+
+    private static void writeManifest(final BackupOperationRequest request,
+                                      final Backuper backuper,
+                                      final OperationProgressTracker operationProgressTracker,
+                                      final String parentTag,
+                                      final Stream<ManifestEntry> files,
+                                      final Path manifestFilePath,
+                                      final AtomicLong manifestSize) throws Exception {
+        if (request.manifestFormat == ManifestFormat.BINARY) {
+            final List<ManifestEntry> manifestEntries = new ArrayList<>();
+
+            uploadFiles(request, backuper, operationProgressTracker, files.peek(manifestEntries::add));
+
+            Manifest.writeBinary(manifestFilePath, parentTag, manifestEntries);
+            manifestSize.set(manifestEntries.size());
+        } else {
+            try (final OutputStream stream = Files.newOutputStream(manifestFilePath);
+                 final PrintStream writer = new PrintStream(stream)) {
+
+                if (parentTag != null) {
+                    writer.println(ManifestEntry.PARENT_DIRECTIVE + parentTag);
+                }
+
+                uploadFiles(request, backuper, operationProgressTracker, files.peek(manifestEntry -> {
+                    writer.println(manifestEntry.toManifestLine());
+                    manifestSize.incrementAndGet();
+                }));
+
+                if (writer.checkError()) {
+                    throw new IOException(format("Failed to write manifest %s", manifestFilePath));
+                }
+            }
         }
+    }
 
-        return manifest;
+    private static void uploadFiles(final BackupOperationRequest request,
+                                    final Backuper backuper,
+                                    final OperationProgressTracker operationProgressTracker,
+                                    final Stream<ManifestEntry> files) throws Exception {
+        final Stream<ManifestEntry> manifest = files.peek(manifestEntry -> operationProgressTracker.expect(1));
+
+        if (request.duration != null) {
+            // upload throughput is derived from the total size of all files so the whole manifest has to be known up-front
+            backuper.uploadOrFreshenFiles(manifest.collect(toList()), operationProgressTracker);
+        } else {
+            backuper.uploadOrFreshenFiles(manifest, operationProgressTracker);
+        }
     }
 
-    private Iterable<ManifestEntry> saveManifest(final Iterable<ManifestEntry> manifest, String tag) throws IOException {
+    /**
+     * Generates the manifest of the tables lazily, in their order. Up to {@link #MANIFEST_PARALLELISM} tables ahead of
+     * the consumer of the stream are listed and their files hashed concurrently, as hashing the files of a table, when
+     * they are not in the fingerprint cache yet, is bound by reading them.
+     * <p>
+     * The returned stream has to be closed, so tables still being listed are stopped when the consumer stops early,
+     * e.g. as an upload failed.
+     */
+    static Stream<ManifestEntry> generateManifest(final BackupOperationRequest request,
+                                                  final Collection<KeyspaceColumnFamilySnapshot> keyspaceColumnFamilySnapshots,
+                                                  final FingerprintCache fingerprintCache,
+                                                  final ExecutorServiceSupplier executorServiceSupplier) {
+        final Iterator<KeyspaceColumnFamilySnapshot> snapshots = keyspaceColumnFamilySnapshots.iterator();
+        final Deque<Future<List<ManifestEntry>>> tables = new ArrayDeque<>();
+        final ExecutorService executorService = executorServiceSupplier.get(MANIFEST_PARALLELISM);
+
+        final Iterator<List<ManifestEntry>> tableManifests = new AbstractIterator<List<ManifestEntry>>() {
+            @Override
+            protected List<ManifestEntry> computeNext() {
+                while (tables.size() < MANIFEST_PARALLELISM && snapshots.hasNext()) {
+                    final KeyspaceColumnFamilySnapshot snapshot = snapshots.next();
+                    tables.add(executorService.submit(() -> tableManifest(request, snapshot, fingerprintCache)));
+                }
+
+                if (tables.isEmpty()) {
+                    executorService.shutdown();
+                    return endOfData();
+                }
+
+                try {
+                    return Uninterruptibles.getUninterruptibly(tables.remove());
+                } catch (final ExecutionException ex) {
+                    executorService.shutdownNow();
+                    Throwables.throwIfUnchecked(ex.getCause());
+                    throw new UncheckedIOException((IOException) ex.getCause());
+                }
+            }
+        };
+
+        return Streams.stream(tableManifests).flatMap(List::stream).onClose(executorService::shutdownNow);
+    }
+
+    private static List<ManifestEntry> tableManifest(final BackupOperationRequest request,
+                                                     final KeyspaceColumnFamilySnapshot keyspaceColumnFamilySnapshot,
+                                                     final FingerprintCache fingerprintCache) throws IOException {
+        final Path tableKey = Paths.get(keyspaceColumnFamilySnapshot.keyspace, keyspaceColumnFamilySnapshot.table);
+        final Path bucketKey = Paths.get("data").resolve(tableKey);
+        final Path blobKey = request.contentAddressed ? StorageInteractor.BLOBS_ROOT.resolve(tableKey) : null;
+
+        try (final Stream<ManifestEntry> entries = SSTableUtils.ssTableManifest(keyspaceColumnFamilySnapshot.snapshotDirectory, bucketKey, blobKey, fingerprintCache,
+                                                                                   request.recordsChecksums())) {
+            return entries.map(manifestEntry -> {
+                // Data.db of a compressed table is already compressed, compressing it again only costs CPU
+                if (SSTableUtils.isCompressedData(manifestEntry.localFile)) {
+                    return manifestEntry;
+                }
+
+                return manifestEntry.compressedWith(request.compression);
+            }).collect(toList());
+        } catch (final UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private static Path createManifestFile(final BackupOperationRequest request, final String tag) throws IOException {
         final Path snapshotManifestDirectory = Files.createDirectories(request.sharedContainerPath.resolve(Paths.get("tmp/cassandra-operator/manifests")));
         final Path manifestFilePath = snapshotManifestDirectory.resolve(tag);
 
         Files.deleteIfExists(manifestFilePath);
         Files.createFile(manifestFilePath);
 
-        try (final OutputStream stream = Files.newOutputStream(manifestFilePath);
-             final PrintStream writer = new PrintStream(stream)) {
-            for (final ManifestEntry manifestEntry : manifest) {
-                writer.println(Joiner.on(' ').join(manifestEntry.size, manifestEntry.objectKey));
-            }
-        }
-
         // TODO - clean this up! dont wait until jvm is shut down, what if this runs in sidecar?
         manifestFilePath.toFile().deleteOnExit();
 
-        return ImmutableList.of(new ManifestEntry(Paths.get("manifests").resolve(manifestFilePath.getFileName()),
-                                                  manifestFilePath,
-                                                  ManifestEntry.Type.MANIFEST_FILE));
+        return manifestFilePath;
     }
 
-    private Iterable<ManifestEntry> saveTokenList(List<String> tokens) throws IOException {
+    static Iterable<ManifestEntry> saveTokenList(final BackupOperationRequest request, final List<String> tokens) throws IOException {
         final Path tokensDirectory = Files.createDirectories(request.sharedContainerPath.resolve(Paths.get("tmp/cassandra-operator/tokens")));
         final Path tokensFilePath = tokensDirectory.resolve(format("%s-tokens.yaml", request.snapshotTag));
 
@@ -167,24 +337,32 @@ public class BackupOperation extends Operation<BackupOperationRequest> {
                                                   ManifestEntry.Type.FILE));
     }
 
-    private static Map<String, ? extends Iterable<KeyspaceColumnFamilySnapshot>> findKeyspaceColumnFamilySnapshots(final Path cassandraDataDirectory) throws IOException {
+    private static Collection<KeyspaceColumnFamilySnapshot> findKeyspaceColumnFamilySnapshots(final List<String> keyspaces,
+                                                                                            final String snapshotTag,
+                                                                                            final Collection<Path> cassandraDataDirectories) throws IOException {
+        // find files belonging to snapshot
         // /var/lib/cassandra /data /<keyspace> /<column family> /snapshots /<snapshot>
-        return Files.find(cassandraDataDirectory,
-                          4,
-                          (path, basicFileAttributes) -> path.getParent().endsWith("snapshots"))
-                    .map((KeyspaceColumnFamilySnapshot::new))
-                    .collect(groupingBy(k -> k.snapshotDirectory.getFileName().toString()));
+        final List<KeyspaceColumnFamilySnapshot> keyspaceColumnFamilySnapshots = TableDirectoryScanner.scan(cassandraDataDirectories,
+                                                                                                           Paths.get("snapshots", snapshotTag));
+
+        if (keyspaceColumnFamilySnapshots.isEmpty()) {
+            if (keyspaces != null && !keyspaces.isEmpty()) {
+                logger.warn("No keyspace column family snapshot directories were found for snapshot \"{}\" of {}", snapshotTag, Joiner.on(",").join(keyspaces));
+                return new LinkedList<>();
+            }
+
+            // There should at least be system keyspace tables
+            throw new IllegalStateException(format("No keyspace column family snapshot directories were found for snapshot \"%s\" of all data.", snapshotTag));
+        }
+
+        return keyspaceColumnFamilySnapshots;
     }
 
     static class KeyspaceColumnFamilySnapshot {
         final String keyspace, table;
         final Path snapshotDirectory;
 
-        KeyspaceColumnFamilySnapshot(final Path snapshotDirectory) {
-            // /data /<keyspace> /<column family> /snapshots /<snapshot>
-
-            final Path columnFamilyDirectory = snapshotDirectory.getParent().getParent();
-
+        KeyspaceColumnFamilySnapshot(final Path columnFamilyDirectory, final Path snapshotDirectory) {
             this.table = columnFamilyDirectory.getFileName().toString();
             this.keyspace = columnFamilyDirectory.getParent().getFileName().toString();
             this.snapshotDirectory = snapshotDirectory;
@@ -9,11 +9,18 @@ import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableList;
+import com.instaclustr.cassandra.backup.impl.CompressionCodec;
+import com.instaclustr.cassandra.backup.impl.ManifestFormat;
 import com.instaclustr.cassandra.backup.impl.StorageLocation;
+import com.instaclustr.jackson.PathDeserializer;
+import com.instaclustr.jackson.PathSerializer;
 import com.instaclustr.measure.DataRate;
 import com.instaclustr.measure.Time;
+import com.instaclustr.picocli.typeconverter.PathTypeConverter;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
@@ -32,6 +39,27 @@ public class BackupOperationRequest extends BaseBackupOperationRequest {
             description = "The column family to snapshot/upload. Requires a keyspace to be specified.")
     public String table;
 
+    @Option(names = {"--content-addressed"},
+            description = "Store SSTable files in a content-addressed store shared by all nodes of the cluster, " +
+                    "so a file already uploaded by any node, e.g. after repair or streaming, is not uploaded again.")
+    public boolean contentAddressed;
+
+    @Option(names = {"--data-file-directories"},
+            description = "Comma separated data file directories of Cassandra, if it has more than one (JBOD). By default, they are taken " +
+                    "from Cassandra over JMX, or are only the 'data' directory of --data-directory when Cassandra is not running.",
+            converter = PathTypeConverter.class,
+            split = ",")
+    @JsonSerialize(contentUsing = PathSerializer.class)
+    @JsonDeserialize(contentUsing = PathDeserializer.class)
+    public List<Path> dataFileDirectories = ImmutableList.of();
+
+    @Option(names = {"--manifest-format"},
+            description = "Format to write the manifest of the snapshot in, one of: ${COMPLETION-CANDIDATES}. BINARY manifests are smaller, " +
+                    "quicker to read for large snapshots and record checksums of uploaded files, but older versions can not restore them. " +
+                    "Default is TEXT.",
+            defaultValue = "TEXT")
+    public ManifestFormat manifestFormat = ManifestFormat.TEXT;
+
     @Parameters
     public List<String> keyspaces;
 
@@ -47,15 +75,37 @@ public class BackupOperationRequest extends BaseBackupOperationRequest {
                                   @JsonProperty("waitForLock") final boolean waitForLock,
                                   @JsonProperty("sharedContainerPath") final Path sharedContainerPath,
                                   @JsonProperty("cassandraDirectory") final Path cassandraDirectory,
+                                  @JsonProperty("freshnessWindow") final Time freshnessWindow,
+                                  @JsonProperty("compression") final CompressionCodec compression,
+                                  @JsonProperty("hardLinks") final boolean hardLinks,
+                                  @JsonProperty("nodeBandwidth") final DataRate nodeBandwidth,
+                                  @JsonProperty("adaptiveThrottle") final boolean adaptiveThrottle,
+                                  @JsonProperty("minBandwidth") final DataRate minBandwidth,
+                                  @JsonProperty("maxPendingCompactions") final Integer maxPendingCompactions,
+                                  @JsonProperty("maxClientLatency") final Time maxClientLatency,
                                   @JsonProperty("keyspaces") final List<String> keyspaces,
                                   @JsonProperty("snapshotTag") final String snapshotTag,
                                   @JsonProperty("offlineSnapshot") final boolean offlineSnapshot,
-                                  @JsonProperty("table") final String table) {
-        super(storageLocation, duration, bandwidth, concurrentConnections, waitForLock, sharedContainerPath, cassandraDirectory);
+                                  @JsonProperty("table") final String table,
+                                  @JsonProperty("contentAddressed") final boolean contentAddressed,
+                                  @JsonProperty("dataFileDirectories") final List<Path> dataFileDirectories,
+                                  @JsonProperty("manifestFormat") final ManifestFormat manifestFormat) {
+        super(storageLocation, duration, bandwidth, concurrentConnections, waitForLock, sharedContainerPath, cassandraDirectory, freshnessWindow, compression, hardLinks, nodeBandwidth, adaptiveThrottle, minBandwidth, maxPendingCompactions, maxClientLatency);
         this.keyspaces = keyspaces == null ? ImmutableList.of() : keyspaces;
         this.snapshotTag = snapshotTag == null ? format("autosnap-%d", MILLISECONDS.toSeconds(currentTimeMillis())) : snapshotTag;
         this.offlineSnapshot = offlineSnapshot;
         this.table = table;
+        this.contentAddressed = contentAddressed;
+        this.dataFileDirectories = dataFileDirectories == null ? ImmutableList.of() : dataFileDirectories;
+        this.manifestFormat = manifestFormat == null ? ManifestFormat.TEXT : manifestFormat;
+    }
+
+    /**
+     * @return true if the manifest is binary, as a text manifest has no checksums for files to be read for
+     */
+    @Override
+    public boolean recordsChecksums() {
+        return manifestFormat == ManifestFormat.BINARY;
     }
 
     @Override
@@ -68,10 +118,21 @@ public class BackupOperationRequest extends BaseBackupOperationRequest {
                 .add("waitForLock", waitForLock)
                 .add("sharedContainerPath", sharedContainerPath)
                 .add("cassandraDirectory", cassandraDirectory)
+                .add("freshnessWindow", freshnessWindow)
+                .add("compression", compression)
+                .add("hardLinks", hardLinks)
+                .add("nodeBandwidth", nodeBandwidth)
+                .add("adaptiveThrottle", adaptiveThrottle)
+                .add("minBandwidth", minBandwidth)
+                .add("maxPendingCompactions", maxPendingCompactions)
+                .add("maxClientLatency", maxClientLatency)
                 .add("keyspaces", keyspaces)
                 .add("snapshotTag", snapshotTag)
                 .add("offlineSnapshot", offlineSnapshot)
                 .add("table", table)
+                .add("contentAddressed", contentAddressed)
+                .add("dataFileDirectories", dataFileDirectories)
+                .add("manifestFormat", manifestFormat)
                 .toString();
     }
 }
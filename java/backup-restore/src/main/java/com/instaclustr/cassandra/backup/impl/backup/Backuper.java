@@ -2,24 +2,34 @@ package com.instaclustr.cassandra.backup.impl.backup;
 
 import static java.nio.file.StandardOpenOption.READ;
 import static java.util.function.Function.identity;
-import static java.util.stream.Collectors.toList;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.concurrent.CountDownLatch;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
-import com.google.common.util.concurrent.Futures;
+import com.google.common.io.ByteStreams;
 import com.google.common.util.concurrent.RateLimiter;
+import com.instaclustr.cassandra.backup.impl.CompressionCodec;
 import com.instaclustr.cassandra.backup.impl.ManifestEntry;
 import com.instaclustr.cassandra.backup.impl.OperationProgressTracker;
 import com.instaclustr.cassandra.backup.impl.RemoteObjectReference;
 import com.instaclustr.cassandra.backup.impl.StorageInteractor;
+import com.instaclustr.io.ChecksummingInputStream;
 import com.instaclustr.io.RateLimitedInputStream;
 import com.instaclustr.io.SeekableByteChannelInputStream;
 import com.instaclustr.measure.DataRate;
@@ -33,12 +43,18 @@ public abstract class Backuper extends StorageInteractor {
 
     protected final BaseBackupOperationRequest request;
     private final ExecutorServiceSupplier executorServiceSupplier;
+    private final FreshnessIndex freshnessIndex;
+
+    // shared by all uploads of the operation, so the bandwidth applies to all of them together
+    private RateLimiter rateLimiter;
+    private volatile AdaptiveThrottle adaptiveThrottle;
 
     protected Backuper(final BaseBackupOperationRequest request,
                        final ExecutorServiceSupplier executorServiceSupplier) {
         super(request.storageLocation);
         this.request = request;
         this.executorServiceSupplier = executorServiceSupplier;
+        this.freshnessIndex = FreshnessIndex.forRequest(request);
     }
 
     public enum FreshenResult {
@@ -48,6 +64,25 @@ public abstract class Backuper extends StorageInteractor {
 
     public abstract FreshenResult freshenRemoteObject(final RemoteObjectReference object) throws Exception;
 
+    /**
+     * Freshens the remote object the local file of the entry is uploaded to. Providers which can tell the object is the
+     * local file itself may override it.
+     */
+    protected FreshenResult freshenRemoteObject(final ManifestEntry manifestEntry, final RemoteObjectReference object) throws Exception {
+        return freshenRemoteObject(object);
+    }
+
+    /**
+     * @return stream of the content of the remote object
+     * @throws NoSuchFileException if the object does not exist
+     */
+    public abstract InputStream openRemoteObject(final RemoteObjectReference object) throws Exception;
+
+    /**
+     * Uploads the stream to the remote object.
+     *
+     * @param size size of the stream in bytes, or -1 if it is not known up-front, e.g. when it is compressed as it is uploaded
+     */
     public abstract void uploadFile(final long size,
                                     final InputStream localFileStream,
                                     final RemoteObjectReference object,
@@ -67,67 +102,181 @@ public abstract class Backuper extends StorageInteractor {
 
         logger.info("{} files to upload. Total size {}.", manifest.size(), DataSize.bytesToHumanReadable(filesSizeSum));
 
-        final CountDownLatch completionLatch = new CountDownLatch(manifest.size() - 1); // latch to prevent the manifest from being uploaded until the very end
+        // manifest is uploaded at the very end, once all files it refers to are known to be in place
+        uploadOrFreshenFiles(manifest.stream().filter(entry -> entry.type != ManifestEntry.Type.MANIFEST_FILE), operationProgressTracker);
+        uploadOrFreshenFiles(manifest.stream().filter(entry -> entry.type == ManifestEntry.Type.MANIFEST_FILE), operationProgressTracker);
+    }
 
+    /**
+     * Uploads (or freshens) files as they are pulled from the {@code manifest} stream, so uploads may start while
+     * the stream is still being generated (e.g. while the snapshot is being walked and SSTables hashed).
+     * Returns once every entry of the stream has been uploaded or freshened.
+     * <p>
+     * At most twice as many entries as there are concurrent connections are pulled from the stream ahead of the uploads,
+     * so memory and file descriptor usage do not depend on the size of the manifest.
+     *
+     * @param manifest                 lazily generated entries to upload
+     * @param operationProgressTracker tracker to update once an entry is uploaded
+     * @throws Exception if the stream or any upload failed
+     */
+    public void uploadOrFreshenFiles(final Stream<ManifestEntry> manifest,
+                                     final OperationProgressTracker operationProgressTracker) throws Exception {
         final ExecutorService executorService = executorServiceSupplier.get(request.concurrentConnections);
 
-        final Iterable<Future<?>> uploadResults = manifest.stream().map((manifestEntry) -> {
-            try {
-                return executorService.submit(() -> {
-                    try (final InputStream s = new SeekableByteChannelInputStream(FileChannel.open(manifestEntry.localFile, READ))) {
+        final Semaphore pendingUploads = new Semaphore(request.concurrentConnections * 2);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final AtomicInteger filesToGo = new AtomicInteger();
+
+        try {
+            final Iterator<ManifestEntry> manifestIterator = manifest.iterator();
 
-                        if (manifestEntry.type == ManifestEntry.Type.MANIFEST_FILE)
-                            completionLatch.await();
+            while (failure.get() == null && manifestIterator.hasNext()) {
+                final ManifestEntry manifestEntry = manifestIterator.next();
 
-                        final RemoteObjectReference remoteObjectReference = objectKeyToRemoteReference(manifestEntry.objectKey);
+                pendingUploads.acquire(); // blocks until an upload slot frees up
+                filesToGo.incrementAndGet();
 
+                try {
+                    executorService.execute(() -> {
                         try {
-                            if (freshenRemoteObject(remoteObjectReference) == Backuper.FreshenResult.FRESHENED)
-                                return null; // file is fresh, skip upload
+                            throttledUploadOrFreshenFile(manifestEntry, operationProgressTracker, filesToGo);
+                        } catch (final Throwable t) {
+                            logger.error("Failed to upload file \"{}\".", manifestEntry.objectKey, t);
+
+                            failure.compareAndSet(null, t);
 
-                        } catch (final InterruptedException e) {
-                            throw e;
-                        } catch (final Exception e) {
-                            logger.warn("Failed to freshen file \"{}\".", manifestEntry.objectKey, e);
+                            executorService.shutdownNow(); // prevent new tasks or other tasks from running
+                        } finally {
+                            filesToGo.decrementAndGet();
+                            pendingUploads.release();
                         }
+                    });
+                } catch (final RejectedExecutionException e) {
+                    failure.compareAndSet(null, e);
+                    pendingUploads.release();
+                }
+            }
+        } finally {
+            // wait for uploads to finish
+            executorService.shutdown();
+
+            while (true) {
+                if (executorService.awaitTermination(1, TimeUnit.MINUTES))
+                    break;
+            }
+
+            freshnessIndex.save();
+        }
+
+        // rethrow any exception caused by an upload task so we exit with failure
+        if (failure.get() != null) {
+            throw new ExecutionException(failure.get());
+        }
+    }
 
-                        final InputStream rateLimitedStream = getUploadingInputStreamFunction().apply(s);
+    private void throttledUploadOrFreshenFile(final ManifestEntry manifestEntry,
+                                              final OperationProgressTracker operationProgressTracker,
+                                              final AtomicInteger filesToGo) throws Exception {
+        final AdaptiveThrottle throttle = adaptiveThrottle;
 
-                        logger.debug("Uploading file \"{}\" ({}). {} files to go.",
-                                     manifestEntry.objectKey,
-                                     DataSize.bytesToHumanReadable(manifestEntry.size),
-                                     completionLatch.getCount());
+        if (throttle == null) {
+            uploadOrFreshenFile(manifestEntry, operationProgressTracker, filesToGo);
+            return;
+        }
 
-                        uploadFile(manifestEntry.size, rateLimitedStream, remoteObjectReference, operationProgressTracker);
+        throttle.acquireConnection();
 
-                        return null;
-                    } catch (final Throwable t) {
-                        logger.error("Failed to upload file \"{}\".", manifestEntry.objectKey, t);
+        try {
+            uploadOrFreshenFile(manifestEntry, operationProgressTracker, filesToGo);
+        } finally {
+            throttle.releaseConnection();
+        }
+    }
 
-                        executorService.shutdownNow(); // prevent new tasks or other tasks from running
+    private void uploadOrFreshenFile(final ManifestEntry manifestEntry,
+                                     final OperationProgressTracker operationProgressTracker,
+                                     final AtomicInteger filesToGo) throws Exception {
+        final RemoteObjectReference remoteObjectReference = objectKeyToRemoteReference(manifestEntry.storageKey);
 
-                        throw t;
-                    } finally {
-                        completionLatch.countDown();
-                    }
-                });
+        if (freshnessIndex.isFresh(remoteObjectReference.canonicalPath, manifestEntry.size)) {
+            logger.debug("File \"{}\" was freshened recently, skipping it.", manifestEntry.objectKey);
+            reuseChecksum(manifestEntry, remoteObjectReference);
+            return;
+        }
 
-            } catch (final RejectedExecutionException e) {
-                return Futures.immediateFailedFuture(e);
+        try {
+            if (freshenRemoteObject(manifestEntry, remoteObjectReference) == Backuper.FreshenResult.FRESHENED) {
+                reuseChecksum(manifestEntry, remoteObjectReference);
+                freshnessIndex.record(remoteObjectReference.canonicalPath, manifestEntry.size, manifestEntry.getChecksum());
+                return; // file is fresh, skip upload
             }
-        }).collect(toList());
 
-        // wait for downloads to finish
-        executorService.shutdown();
+        } catch (final InterruptedException e) {
+            throw e;
+        } catch (final Exception e) {
+            logger.warn("Failed to freshen file \"{}\".", manifestEntry.objectKey, e);
+        }
+
+        logger.debug("Uploading file \"{}\" ({}, compression {}). {} files to go.",
+                     manifestEntry.objectKey,
+                     DataSize.bytesToHumanReadable(manifestEntry.size),
+                     manifestEntry.codec,
+                     filesToGo.get());
 
-        while (true) {
-            if (executorService.awaitTermination(1, TimeUnit.MINUTES))
-                break;
+        uploadLocalFile(manifestEntry, remoteObjectReference, operationProgressTracker);
+
+        recordChecksum(manifestEntry);
+        freshnessIndex.record(remoteObjectReference.canonicalPath, manifestEntry.size, manifestEntry.getChecksum());
+    }
+
+    /**
+     * Records the checksum of the file last uploaded to the remote object of the entry, if known, in the entry, unless it got
+     * one already from the manifest. The local file is not read for it, as it is not uploaded.
+     */
+    private void reuseChecksum(final ManifestEntry manifestEntry, final RemoteObjectReference remoteObjectReference) {
+        if (manifestEntry.getChecksum() == ManifestEntry.NO_CHECKSUM && request.recordsChecksums()) {
+            manifestEntry.setChecksum(freshnessIndex.checksum(remoteObjectReference.canonicalPath, manifestEntry.size));
         }
+    }
 
-        // rethrow any exception caused by a download task so we exit with failure
-        for (final Future<?> result : uploadResults) {
-            result.get();
+    /**
+     * Records the checksum of the uploaded local file in the entry, if checksums are recorded, unless it got one already
+     * from the manifest or its upload, e.g. as it was transferred without being streamed.
+     */
+    private void recordChecksum(final ManifestEntry manifestEntry) throws IOException {
+        if (manifestEntry.getChecksum() != ManifestEntry.NO_CHECKSUM || manifestEntry.localFile == null || !request.recordsChecksums()) {
+            return;
+        }
+
+        try (final ChecksummingInputStream s = new ChecksummingInputStream(Files.newInputStream(manifestEntry.localFile))) {
+            // a file which changed size since it was backed up has no checksum to verify it by
+            if (ByteStreams.exhaust(s) == manifestEntry.size) {
+                manifestEntry.setChecksum(s.getChecksum());
+            }
+        }
+    }
+
+    /**
+     * Uploads the local file of the entry, compressed with its codec, by streaming it to {@link #uploadFile}, and records
+     * the checksum of the file read on the way in the entry. Providers able to transfer files without streaming them
+     * through the heap may override it.
+     */
+    protected void uploadLocalFile(final ManifestEntry manifestEntry,
+                                   final RemoteObjectReference remoteObjectReference,
+                                   final OperationProgressTracker operationProgressTracker) throws Exception {
+        // the file is opened only once its upload starts
+        try (final ChecksummingInputStream s = new ChecksummingInputStream(new SeekableByteChannelInputStream(FileChannel.open(manifestEntry.localFile, READ)))) {
+            // bandwidth is capped on compressed data, as that is what goes over the network
+            final InputStream rateLimitedStream = getUploadingInputStreamFunction().apply(manifestEntry.codec.compressingStream(s));
+
+            final long uploadSize = manifestEntry.codec == CompressionCodec.NONE ? manifestEntry.size : -1;
+
+            uploadFile(uploadSize, rateLimitedStream, remoteObjectReference, operationProgressTracker);
+
+            // a file read only partially, e.g. as it grew while uploaded, has no checksum to verify it by
+            if (s.getChecksummedBytes() == manifestEntry.size) {
+                manifestEntry.setChecksum(s.getChecksum());
+            }
         }
     }
 
@@ -148,10 +297,61 @@ public abstract class Backuper extends StorageInteractor {
     }
 
     private Function<InputStream, InputStream> getUploadingInputStreamFunction() {
-        return request.bandwidth == null ? identity() : inputStream -> {
-            final RateLimiter rateLimiter = RateLimiter.create(request.bandwidth.asBytesPerSecond().value);
-            logger.info("Upload bandwidth capped at {}.", request.bandwidth);
-            return new RateLimitedInputStream(inputStream, rateLimiter);
-        };
+        final List<RateLimiter> rateLimiters = getRateLimiters();
+
+        return rateLimiters.isEmpty() ? identity() : inputStream -> new RateLimitedInputStream(inputStream, rateLimiters);
+    }
+
+    void setAdaptiveThrottle(final AdaptiveThrottle adaptiveThrottle) {
+        this.adaptiveThrottle = adaptiveThrottle;
+        updateRateLimiter();
+    }
+
+    /**
+     * @return limiters of upload bytes per second every uploaded byte is charged to, empty if the upload bandwidth is not capped
+     */
+    protected synchronized List<RateLimiter> getRateLimiters() {
+        final List<RateLimiter> rateLimiters = new ArrayList<>(2);
+
+        updateRateLimiter();
+
+        if (rateLimiter != null) {
+            rateLimiters.add(rateLimiter);
+        }
+
+        if (request.nodeBandwidth != null) {
+            rateLimiters.add(NodeBandwidth.rateLimiter(request.nodeBandwidth));
+        }
+
+        return rateLimiters;
+    }
+
+    /**
+     * Sets the rate of the limiter of the operation to its bandwidth, which is computed from the duration as files
+     * to upload are known, and scaled with the health of the node if throttled adaptively.
+     */
+    synchronized void updateRateLimiter() {
+        if (request.bandwidth == null) {
+            return;
+        }
+
+        final double maxRate = request.bandwidth.asBytesPerSecond().value;
+        final AdaptiveThrottle throttle = adaptiveThrottle;
+        final double rate;
+
+        if (throttle == null) {
+            rate = maxRate;
+        } else {
+            final double minRate = request.minBandwidth == null ? maxRate / 10 : Math.min(maxRate, request.minBandwidth.asBytesPerSecond().value);
+            rate = throttle.rate(minRate, maxRate);
+        }
+
+        if (rateLimiter == null) {
+            logger.info("Upload bandwidth capped at {}.", new DataRate((long) rate, DataRate.DataRateUnit.BPS));
+            rateLimiter = RateLimiter.create(rate);
+        } else if (rateLimiter.getRate() != rate) {
+            logger.info("Upload bandwidth capped at {}.", new DataRate((long) rate, DataRate.DataRateUnit.BPS));
+            rateLimiter.setRate(rate);
+        }
     }
 }
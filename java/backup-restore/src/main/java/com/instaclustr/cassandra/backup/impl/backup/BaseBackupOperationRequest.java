@@ -6,6 +6,7 @@ import java.nio.file.Paths;
 
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.instaclustr.cassandra.backup.impl.CompressionCodec;
 import com.instaclustr.cassandra.backup.impl.StorageLocation;
 import com.instaclustr.cassandra.backup.impl.StorageLocation.StorageLocationDeserializer;
 import com.instaclustr.cassandra.backup.impl.StorageLocation.StorageLocationSerializer;
@@ -72,6 +73,53 @@ public class BaseBackupOperationRequest extends OperationRequest {
             description = "Wait to acquire the global transfer lock (which prevents more than one backup or restore from running).")
     public Boolean waitForLock = true;
 
+    @Option(names = {"--freshness-window"},
+            description = "Skip freshening remote objects which were uploaded or freshened by this node within the window, " +
+                    "according to a local index kept in the shared path. Must be shorter than any retention policy " +
+                    "of the bucket relying on freshened timestamps. Disabled by default.",
+            converter = TimeMeasureTypeConverter.class)
+    public Time freshnessWindow;
+
+    @Option(names = {"--compression"},
+            description = "Codec to compress files with on upload, one of: ${COMPLETION-CANDIDATES}. Data.db files of tables " +
+                    "with compression enabled are never compressed again. Default is NONE.",
+            defaultValue = "NONE")
+    public CompressionCodec compression = CompressionCodec.NONE;
+
+    @Option(names = {"--hard-links"},
+            description = "For file:// storage locations only, hard link files into the storage location instead of copying them " +
+                    "when it is on the same filesystem as Cassandra data. Files on another filesystem are copied.")
+    public boolean hardLinks;
+
+    @Option(names = {"--node-bandwidth"},
+            description = "Maximum upload throughput of all operations of this process setting it, together. " +
+                    "It applies on top of --bandwidth, e.g. to cap a backup and a commit log backup running concurrently in the sidecar.",
+            converter = DataRateMeasureTypeConverter.class)
+    public DataRate nodeBandwidth;
+
+    @Option(names = {"--adaptive-throttle"},
+            description = "Scale the upload throughput between --min-bandwidth and --bandwidth, and the number of concurrent uploads " +
+                    "between 1 and --concurrent-connections, with the health of the node sampled over JMX. Uploads back off while " +
+                    "the node is not in NORMAL mode, has too many pending compactions or too high client request latency. " +
+                    "Only backups are throttled adaptively. Restores download files before Cassandra is started, so there is no health " +
+                    "of the node to sample; their downloads are bounded by --concurrent-connections of the restore only.")
+    public boolean adaptiveThrottle;
+
+    @Option(names = {"--min-bandwidth"},
+            description = "Lowest upload throughput the adaptive throttle backs off to. Default is a tenth of --bandwidth. " +
+                    "Requires --bandwidth or --duration.",
+            converter = DataRateMeasureTypeConverter.class)
+    public DataRate minBandwidth;
+
+    @Option(names = {"--max-pending-compactions"},
+            description = "Pending compactions above which the adaptive throttle backs off. Default is 100.")
+    public Integer maxPendingCompactions;
+
+    @Option(names = {"--max-client-latency"},
+            description = "99th percentile of client read or write latency above which the adaptive throttle backs off. Default is 100 milliseconds.",
+            converter = TimeMeasureTypeConverter.class)
+    public Time maxClientLatency;
+
     public BaseBackupOperationRequest() {
         // for picocli
     }
@@ -82,7 +130,15 @@ public class BaseBackupOperationRequest extends OperationRequest {
                                       final Integer concurrentConnections,
                                       final boolean waitForLock,
                                       final Path cassandraDirectory,
-                                      final Path sharedContainerPath) {
+                                      final Path sharedContainerPath,
+                                      final Time freshnessWindow,
+                                      final CompressionCodec compression,
+                                      final boolean hardLinks,
+                                      final DataRate nodeBandwidth,
+                                      final boolean adaptiveThrottle,
+                                      final DataRate minBandwidth,
+                                      final Integer maxPendingCompactions,
+                                      final Time maxClientLatency) {
         this.storageLocation = storageLocation;
         this.duration = duration;
         this.bandwidth = bandwidth;
@@ -90,5 +146,20 @@ public class BaseBackupOperationRequest extends OperationRequest {
         this.cassandraDirectory = cassandraDirectory == null ? Paths.get("/var/lib/cassandra") : cassandraDirectory;
         this.concurrentConnections = concurrentConnections == null ? 10 : concurrentConnections;
         this.waitForLock = waitForLock;
+        this.freshnessWindow = freshnessWindow;
+        this.compression = compression == null ? CompressionCodec.NONE : compression;
+        this.hardLinks = hardLinks;
+        this.nodeBandwidth = nodeBandwidth;
+        this.adaptiveThrottle = adaptiveThrottle;
+        this.minBandwidth = minBandwidth;
+        this.maxPendingCompactions = maxPendingCompactions;
+        this.maxClientLatency = maxClientLatency;
+    }
+
+    /**
+     * @return true if checksums of backed up files are recorded, e.g. for commit log segments archived before to be recognised
+     */
+    public boolean recordsChecksums() {
+        return true;
     }
 }
@@ -0,0 +1,42 @@
+package com.instaclustr.cassandra.backup.impl.backup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.instaclustr.guice.ServiceBindings;
+import com.instaclustr.operations.OperationRequest;
+
+/**
+ * Runs {@link CommitLogArchiverService}, configured by a commit log backup request in the JSON file, the same as the
+ * body of a request submitting a "commitlog-backup" operation.
+ */
+public class CommitLogArchiverModule extends AbstractModule {
+    private final Path requestFile;
+
+    public CommitLogArchiverModule(final Path requestFile) {
+        this.requestFile = requestFile;
+    }
+
+    @Override
+    protected void configure() {
+        ServiceBindings.bindService(binder(), CommitLogArchiverService.class);
+    }
+
+    @Provides
+    @Singleton
+    @Named("commitLogArchiving")
+    BackupCommitLogsOperationRequest provideCommitLogArchivingRequest(final ObjectMapper objectMapper) throws IOException {
+        final OperationRequest request = objectMapper.readValue(requestFile.toFile(), OperationRequest.class);
+
+        if (!(request instanceof BackupCommitLogsOperationRequest)) {
+            throw new IllegalArgumentException(String.format("%s is not a request of a commitlog-backup operation.", requestFile));
+        }
+
+        return (BackupCommitLogsOperationRequest) request;
+    }
+}
@@ -0,0 +1,212 @@
+package com.instaclustr.cassandra.backup.impl.backup;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.util.concurrent.AbstractExecutionThreadService;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import com.instaclustr.cassandra.backup.guice.BackuperFactory;
+import com.instaclustr.cassandra.backup.impl.ManifestEntry;
+import com.instaclustr.cassandra.backup.impl.OperationProgressTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Archives commit log segments continuously, rather than whenever {@link BackupCommitLogsOperation} is run: the commit
+ * log archive directory is watched, and every segment Cassandra's archive command puts into it is uploaded as soon as
+ * it is complete, then deleted from the directory.
+ * <p>
+ * A segment is taken as complete once it has not been modified for {@link #SETTLE_PERIOD_MILLIS}, as the archive
+ * command may copy it rather than link it. Segments which fail to upload stay in the directory and are retried, as are
+ * any other failures of an iteration, so the service keeps running until it is stopped.
+ * Segments archived before with the same content, as recorded by {@link ArchivedSegments}, are deleted without being
+ * uploaded again.
+ */
+public class CommitLogArchiverService extends AbstractExecutionThreadService {
+    private static final Logger logger = LoggerFactory.getLogger(CommitLogArchiverService.class);
+
+    private static final long POLL_PERIOD_MILLIS = 1000;
+    private static final long SETTLE_PERIOD_MILLIS = 2000;
+    private static final long RETRY_PERIOD_MILLIS = 30000;
+
+    private final Map<String, BackuperFactory> backuperFactoryMap;
+    private final BackupCommitLogsOperationRequest request;
+
+    // segments seen in the archive directory and not uploaded yet, accessed by the service thread only
+    private final Set<Path> pendingSegments = new LinkedHashSet<>();
+
+    private Path archiveDirectory;
+    private WatchService watchService;
+    private Backuper backuper;
+    private ArchivedSegments archivedSegments;
+    private long retryTime;
+    private boolean retryListing;
+
+    @Inject
+    public CommitLogArchiverService(final Map<String, BackuperFactory> backuperFactoryMap,
+                                    final @Named("commitLogArchiving") BackupCommitLogsOperationRequest request) {
+        this.backuperFactoryMap = backuperFactoryMap;
+        this.request = request;
+    }
+
+    @Override
+    protected void startUp() throws Exception {
+        // segments are deleted once uploaded, so they must never be taken from the commit log directory itself
+        if (request.commitLogArchiveOverride == null) {
+            throw new IllegalStateException("Commit log archive directory has to be set for continuous commit log archiving.");
+        }
+
+        archiveDirectory = request.commitLogArchiveOverride;
+        Files.createDirectories(archiveDirectory);
+
+        watchService = archiveDirectory.getFileSystem().newWatchService();
+        archiveDirectory.register(watchService, ENTRY_CREATE);
+
+        backuper = backuperFactoryMap.get(request.storageLocation.storageProvider).createCommitLogBackuper(request);
+        archivedSegments = ArchivedSegments.forRequest(request);
+
+        // segments archived while the service was not running, registered after the watch so none is missed
+        addArchivedSegments();
+
+        logger.info("Archiving commit log segments of {} to {}.", archiveDirectory, request.storageLocation);
+    }
+
+    @Override
+    protected void run() throws Exception {
+        while (isRunning()) {
+            final WatchKey watchKey = watchService.poll(POLL_PERIOD_MILLIS, MILLISECONDS);
+
+            if (watchKey != null) {
+                for (final WatchEvent<?> event : watchKey.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        try {
+                            addArchivedSegments();
+                        } catch (final IOException e) {
+                            logger.error("Failed to list commit log archive directory {}, retrying.", archiveDirectory, e);
+                            retryListing = true;
+                        }
+                    } else {
+                        final Path segment = archiveDirectory.resolve((Path) event.context());
+
+                        if (isSegment(segment)) {
+                            pendingSegments.add(segment);
+                        }
+                    }
+                }
+
+                if (!watchKey.reset()) {
+                    throw new IllegalStateException(String.format("Commit log archive directory %s is not accessible anymore.", archiveDirectory));
+                }
+            }
+
+            if (System.currentTimeMillis() >= retryTime) {
+                try {
+                    if (retryListing) {
+                        addArchivedSegments();
+                        retryListing = false;
+                    }
+
+                    archiveSettledSegments();
+                } catch (final Exception e) {
+                    logger.error("Failed to archive commit log segments, retrying in {} ms.", RETRY_PERIOD_MILLIS, e);
+                    retryTime = System.currentTimeMillis() + RETRY_PERIOD_MILLIS;
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void shutDown() throws Exception {
+        logger.info("Stopped archiving commit log segments of {}, {} segments left to archive.", archiveDirectory, pendingSegments.size());
+
+        try {
+            watchService.close();
+        } finally {
+            backuper.close();
+        }
+    }
+
+    private void addArchivedSegments() throws IOException {
+        try (final DirectoryStream<Path> segments = Files.newDirectoryStream(archiveDirectory, CommitLogArchiverService::isSegment)) {
+            segments.forEach(pendingSegments::add);
+        }
+    }
+
+    private static boolean isSegment(final Path path) {
+        return BackupCommitLogsOperation.COMMIT_LOG_PATTERN.matcher(path.getFileName().toString()).matches() && Files.isRegularFile(path);
+    }
+
+    private void archiveSettledSegments() {
+        final long settledBefore = System.currentTimeMillis() - SETTLE_PERIOD_MILLIS;
+        final List<ManifestEntry> manifest = new ArrayList<>();
+
+        for (final Iterator<Path> segments = pendingSegments.iterator(); segments.hasNext(); ) {
+            final Path segment = segments.next();
+
+            try {
+                if (Files.getLastModifiedTime(segment).toMillis() <= settledBefore) {
+                    final ManifestEntry entry = BackupCommitLogsOperation.commitLogManifestEntry(segment, request.compression);
+
+                    if (archivedSegments.isArchived(entry)) {
+                        // put into the archive directory again with the same content, its earlier upload holds the same mutations
+                        logger.info("Commit log segment {} was archived before with the same content, deleting it.", segment);
+                        Files.deleteIfExists(segment);
+                        segments.remove();
+                    } else {
+                        manifest.add(entry);
+                    }
+                }
+            } catch (final NoSuchFileException e) {
+                // removed from the archive directory before it was archived
+                segments.remove();
+            } catch (final IOException e) {
+                logger.warn("Failed to read commit log segment {}, retrying.", segment, e);
+            }
+        }
+
+        if (manifest.isEmpty()) {
+            return;
+        }
+
+        try {
+            backuper.uploadOrFreshenFiles(manifest, new OperationProgressTracker(null, manifest.size()));
+            BackupCommitLogsOperation.addToCatalogue(request, backuper, manifest);
+
+            archivedSegments.record(manifest);
+            archivedSegments.save();
+        } catch (final Exception e) {
+            logger.error("Failed to archive {} commit log segments, retrying in {} ms.", manifest.size(), RETRY_PERIOD_MILLIS, e);
+            retryTime = System.currentTimeMillis() + RETRY_PERIOD_MILLIS;
+            return;
+        }
+
+        for (final ManifestEntry entry : manifest) {
+            logger.info("Archived commit log segment {} as {}.", entry.localFile, entry.storageKey);
+
+            try {
+                Files.deleteIfExists(entry.localFile);
+                pendingSegments.remove(entry.localFile);
+            } catch (final IOException e) {
+                // still pending, it is deleted once found to be archived before
+                logger.warn("Failed to delete archived commit log segment {}, retrying.", entry.localFile, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.instaclustr.cassandra.backup.impl.backup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.instaclustr.cassandra.backup.impl.ManifestEntry;
+import com.instaclustr.cassandra.backup.impl.StateFiles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local record of remote objects known to be uploaded or freshened, and when.
+ * <p>
+ * Objects uploaded or freshened within the freshness window are assumed to still be in place, so their remote
+ * freshen call can be skipped. The window has to be shorter than any retention or lifecycle policy of the bucket
+ * which relies on freshened timestamps.
+ * <p>
+ * The index is stored in {@code var/lib/backup-restore/freshness} of the shared container path, one file per storage location,
+ * each line in form {@code <timestamp> <size> <checksum> <canonicalPath>}. The checksum of the uploaded file is kept so
+ * an object skipped or freshened does not have its local file read again for it.
+ */
+public class FreshnessIndex {
+    private static final Logger logger = LoggerFactory.getLogger(FreshnessIndex.class);
+
+    private static class Entry {
+        final long timestamp;
+        final long size;
+        final long checksum;
+
+        Entry(final long timestamp, final long size, final long checksum) {
+            this.timestamp = timestamp;
+            this.size = size;
+            this.checksum = checksum;
+        }
+    }
+
+    private final Path indexFile;
+    private final long windowMillis;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private FreshnessIndex(final Path indexFile, final long windowMillis) {
+        this.indexFile = indexFile;
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * @return index for the storage location of the request, or a disabled index if no freshness window is set
+     */
+    public static FreshnessIndex forRequest(final BaseBackupOperationRequest request) {
+        if (request.freshnessWindow == null || request.freshnessWindow.value <= 0) {
+            return new FreshnessIndex(null, 0);
+        }
+
+        final FreshnessIndex index = new FreshnessIndex(StateFiles.stateFile(request.sharedContainerPath, "freshness", request.storageLocation),
+                                                        request.freshnessWindow.unit.toMillis(request.freshnessWindow.value));
+        index.load();
+        return index;
+    }
+
+    private boolean isEnabled() {
+        return indexFile != null;
+    }
+
+    /**
+     * @return true if the object of given size was uploaded or freshened within the freshness window
+     */
+    public boolean isFresh(final String canonicalPath, final long size) {
+        if (!isEnabled()) {
+            return false;
+        }
+
+        final Entry entry = entries.get(canonicalPath);
+
+        return entry != null && entry.size == size && System.currentTimeMillis() - entry.timestamp < windowMillis;
+    }
+
+    /**
+     * @return checksum of the file last recorded as uploaded to the object of given size, {@link ManifestEntry#NO_CHECKSUM} if it is not known
+     */
+    public long checksum(final String canonicalPath, final long size) {
+        final Entry entry = entries.get(canonicalPath);
+
+        return entry != null && entry.size == size ? entry.checksum : ManifestEntry.NO_CHECKSUM;
+    }
+
+    /**
+     * Records that the object of given size, and checksum if known, was just uploaded or freshened.
+     */
+    public void record(final String canonicalPath, final long size, final long checksum) {
+        if (isEnabled()) {
+            entries.put(canonicalPath, new Entry(System.currentTimeMillis(), size, checksum));
+        }
+    }
+
+    private void load() {
+        final long now = System.currentTimeMillis();
+
+        try {
+            StateFiles.read(indexFile, 4, lineArray -> {
+                final Entry entry = new Entry(Long.parseLong(lineArray[0]), Long.parseLong(lineArray[1]), Long.parseLong(lineArray[2]));
+
+                // expired entries are dropped so the index does not grow with every backup
+                if (now - entry.timestamp < windowMillis) {
+                    entries.put(lineArray[3], entry);
+                }
+            });
+
+            logger.info("Loaded {} entries from freshness index {}.", entries.size(), indexFile);
+        } catch (final IOException e) {
+            // the index is only an optimisation, every object is freshened remotely without it
+            logger.warn("Failed to load freshness index {}, ignoring it.", indexFile, e);
+            entries.clear();
+        }
+    }
+
+    /**
+     * Persists the index.
+     */
+    public void save() {
+        if (!isEnabled()) {
+            return;
+        }
+
+        try {
+            StateFiles.write(indexFile, writer -> entries.forEach((canonicalPath, entry) -> writer.printf("%d %d %d %s%n", entry.timestamp, entry.size, entry.checksum, canonicalPath)));
+        } catch (final IOException e) {
+            logger.warn("Failed to save freshness index {}.", indexFile, e);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.instaclustr.cassandra.backup.impl.backup;
+
+import static com.instaclustr.cassandra.backup.impl.backup.BackupOperation.generateManifest;
+import static com.instaclustr.cassandra.backup.impl.backup.BackupOperation.saveTokenList;
+import static com.instaclustr.cassandra.backup.impl.backup.BackupOperation.uploadManifestFiles;
+import static java.util.stream.Collectors.toList;
+
+import javax.inject.Inject;
+import javax.management.MBeanServerConnection;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Streams;
+import com.google.inject.Provider;
+import com.google.inject.assistedinject.Assisted;
+import com.instaclustr.cassandra.backup.guice.BackuperFactory;
+import com.instaclustr.cassandra.backup.impl.FingerprintCache;
+import com.instaclustr.cassandra.backup.impl.ManifestEntry;
+import com.instaclustr.cassandra.backup.impl.OperationProgressTracker;
+import com.instaclustr.cassandra.backup.impl.backup.BackupOperation.KeyspaceColumnFamilySnapshot;
+import com.instaclustr.io.GlobalLock;
+import com.instaclustr.operations.Operation;
+import com.instaclustr.threading.Executors.ExecutorServiceSupplier;
+import jmx.org.apache.cassandra.service.StorageServiceMBean;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Uploads SSTables hard linked by Cassandra into the {@code backups} directory of each table when incremental backups are enabled.
+ * <p>
+ * The manifest of an incremental backup lists only those SSTables and names the manifest it builds upon in a
+ * {@link ManifestEntry#PARENT_DIRECTIVE}, so a restore of it follows the chain back to the last full snapshot.
+ * Once the manifest is uploaded, the uploaded hard links are deleted so the next incremental backup ships only newer SSTables.
+ */
+public class IncrementalBackupOperation extends Operation<IncrementalBackupOperationRequest> {
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalBackupOperation.class);
+
+    private static final String CASSANDRA_BACKUPS = "backups";
+
+    private final Provider<StorageServiceMBean> storageServiceMBeanProvider;
+    private final Provider<MBeanServerConnection> mBeanServerConnectionProvider;
+    private final Map<String, BackuperFactory> backuperFactoryMap;
+    private final ExecutorServiceSupplier executorServiceSupplier;
+
+    @Inject
+    public IncrementalBackupOperation(final Provider<StorageServiceMBean> storageServiceMBeanProvider,
+                                      final Provider<MBeanServerConnection> mBeanServerConnectionProvider,
+                                      final Map<String, BackuperFactory> backuperFactoryMap,
+                                      final ExecutorServiceSupplier executorServiceSupplier,
+                                      @Assisted final IncrementalBackupOperationRequest request) {
+        super(request);
+        this.storageServiceMBeanProvider = storageServiceMBeanProvider;
+        this.mBeanServerConnectionProvider = mBeanServerConnectionProvider;
+        this.backuperFactoryMap = backuperFactoryMap;
+        this.executorServiceSupplier = executorServiceSupplier;
+    }
+
+    @Override
+    protected void run0() throws Exception {
+        logger.info(request.toString());
+
+        new GlobalLock(request.sharedContainerPath).waitForLock(request.waitForLock);
+
+        if (request.offlineSnapshot) {
+            executeUpload(ImmutableList.of(), BackupOperation.dataFileDirectories(request, null));
+
+            return;
+        }
+
+        final StorageServiceMBean storageServiceMBean = this.storageServiceMBeanProvider.get();
+
+        if (!storageServiceMBean.isIncrementalBackupsEnabled()) {
+            logger.warn("Incremental backups are not enabled, enabling them. Only SSTables flushed from now on will be part of incremental backups.");
+            storageServiceMBean.setIncrementalBackupsEnabled(true);
+        }
+
+        executeUpload(storageServiceMBean.getTokens(), BackupOperation.dataFileDirectories(request, storageServiceMBean));
+    }
+
+    private void executeUpload(final List<String> tokens, final List<Path> dataFileDirectories) throws Exception {
+        final List<KeyspaceColumnFamilySnapshot> backupDirectories = findBackupDirectories(dataFileDirectories);
+
+        final Iterable<ManifestEntry> tokenList = saveTokenList(request, tokens);
+        final List<Path> uploadedLinks = new ArrayList<>();
+
+        try (final Backuper backuper = backuperFactoryMap.get(request.storageLocation.storageProvider).createBackuper(request);
+             final AdaptiveThrottle throttle = AdaptiveThrottle.start(request, mBeanServerConnectionProvider, backuper)) {
+            final OperationProgressTracker operationProgressTracker = new OperationProgressTracker(this);
+            final FingerprintCache fingerprintCache = FingerprintCache.forSharedContainerPath(request.sharedContainerPath);
+
+            final Stream<ManifestEntry> backupFiles = generateManifest(request, backupDirectories, fingerprintCache, executorServiceSupplier).peek(manifestEntry -> uploadedLinks.add(manifestEntry.localFile));
+
+            final ManifestEntry manifest = uploadManifestFiles(request,
+                                                               backuper,
+                                                               operationProgressTracker,
+                                                               request.baseSnapshotTag,
+                                                               Stream.concat(backupFiles, Streams.stream(tokenList)),
+                                                               request.snapshotTag);
+
+            fingerprintCache.save();
+
+            operationProgressTracker.expect(1);
+            backuper.uploadOrFreshenFiles(Stream.of(manifest), operationProgressTracker);
+        }
+
+        // the manifest referring to them is in place, so the hard links are not needed anymore
+        for (final Path link : uploadedLinks) {
+            try {
+                Files.deleteIfExists(link);
+            } catch (final IOException e) {
+                logger.warn("Failed to delete incremental backup file {}, it will be uploaded again by the next incremental backup.", link, e);
+            }
+        }
+
+        logger.info("{} files of incremental backup \"{}\" uploaded on top of \"{}\".", uploadedLinks.size(), request.snapshotTag, request.baseSnapshotTag);
+    }
+
+    private List<KeyspaceColumnFamilySnapshot> findBackupDirectories(final Collection<Path> cassandraDataDirectories) throws IOException {
+        // /var/lib/cassandra /data /<keyspace> /<column family> /backups
+        return TableDirectoryScanner.scan(cassandraDataDirectories, Paths.get(CASSANDRA_BACKUPS)).stream()
+                                    .filter(this::isRequested)
+                                    .collect(toList());
+    }
+
+    private boolean isRequested(final KeyspaceColumnFamilySnapshot backupDirectory) {
+        if (request.keyspaces != null && !request.keyspaces.isEmpty() && !request.keyspaces.contains(backupDirectory.keyspace)) {
+            return false;
+        }
+
+        return request.table == null || StringUtils.split(backupDirectory.table, '-')[0].equals(request.table);
+    }
+}
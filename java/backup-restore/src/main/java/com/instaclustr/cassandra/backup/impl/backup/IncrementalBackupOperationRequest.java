@@ -0,0 +1,106 @@
+package com.instaclustr.cassandra.backup.impl.backup;
+
+import javax.validation.constraints.NotNull;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.MoreObjects;
+import com.instaclustr.cassandra.backup.impl.CompressionCodec;
+import com.instaclustr.cassandra.backup.impl.ManifestFormat;
+import com.instaclustr.cassandra.backup.impl.StorageLocation;
+import com.instaclustr.measure.DataRate;
+import com.instaclustr.measure.Time;
+import picocli.CommandLine.Option;
+
+public class IncrementalBackupOperationRequest extends BackupOperationRequest {
+
+    @Option(names = {"--base-snapshot-tag"},
+            description = "Snapshot tag of the backup this incremental backup builds upon, either a full or an incremental one.",
+            required = true)
+    @NotNull
+    public String baseSnapshotTag;
+
+    public IncrementalBackupOperationRequest() {
+        // for picocli
+    }
+
+    @JsonCreator
+    public IncrementalBackupOperationRequest(@JsonProperty("storageLocation") final StorageLocation storageLocation,
+                                             @JsonProperty("duration") final Time duration,
+                                             @JsonProperty("bandwidth") final DataRate bandwidth,
+                                             @JsonProperty("concurrentConnections") final Integer concurrentConnections,
+                                             @JsonProperty("waitForLock") final boolean waitForLock,
+                                             @JsonProperty("sharedContainerPath") final Path sharedContainerPath,
+                                             @JsonProperty("cassandraDirectory") final Path cassandraDirectory,
+                                             @JsonProperty("freshnessWindow") final Time freshnessWindow,
+                                             @JsonProperty("compression") final CompressionCodec compression,
+                                             @JsonProperty("hardLinks") final boolean hardLinks,
+                                             @JsonProperty("nodeBandwidth") final DataRate nodeBandwidth,
+                                             @JsonProperty("adaptiveThrottle") final boolean adaptiveThrottle,
+                                             @JsonProperty("minBandwidth") final DataRate minBandwidth,
+                                             @JsonProperty("maxPendingCompactions") final Integer maxPendingCompactions,
+                                             @JsonProperty("maxClientLatency") final Time maxClientLatency,
+                                             @JsonProperty("keyspaces") final List<String> keyspaces,
+                                             @JsonProperty("snapshotTag") final String snapshotTag,
+                                             @JsonProperty("offlineSnapshot") final boolean offlineSnapshot,
+                                             @JsonProperty("table") final String table,
+                                             @JsonProperty("contentAddressed") final boolean contentAddressed,
+                                             @JsonProperty("dataFileDirectories") final List<Path> dataFileDirectories,
+                                             @JsonProperty("manifestFormat") final ManifestFormat manifestFormat,
+                                             @JsonProperty("baseSnapshotTag") final String baseSnapshotTag) {
+        super(storageLocation,
+              duration,
+              bandwidth,
+              concurrentConnections,
+              waitForLock,
+              sharedContainerPath,
+              cassandraDirectory,
+              freshnessWindow,
+              compression,
+              hardLinks,
+              nodeBandwidth,
+              adaptiveThrottle,
+              minBandwidth,
+              maxPendingCompactions,
+              maxClientLatency,
+              keyspaces,
+              snapshotTag,
+              offlineSnapshot,
+              table,
+              contentAddressed,
+              dataFileDirectories,
+              manifestFormat);
+        this.baseSnapshotTag = baseSnapshotTag;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("storageLocation", storageLocation)
+                .add("duration", duration)
+                .add("bandwidth", bandwidth)
+                .add("concurrentConnections", concurrentConnections)
+                .add("waitForLock", waitForLock)
+                .add("sharedContainerPath", sharedContainerPath)
+                .add("cassandraDirectory", cassandraDirectory)
+                .add("freshnessWindow", freshnessWindow)
+                .add("compression", compression)
+                .add("hardLinks", hardLinks)
+                .add("nodeBandwidth", nodeBandwidth)
+                .add("adaptiveThrottle", adaptiveThrottle)
+                .add("minBandwidth", minBandwidth)
+                .add("maxPendingCompactions", maxPendingCompactions)
+                .add("maxClientLatency", maxClientLatency)
+                .add("keyspaces", keyspaces)
+                .add("snapshotTag", snapshotTag)
+                .add("offlineSnapshot", offlineSnapshot)
+                .add("table", table)
+                .add("contentAddressed", contentAddressed)
+                .add("dataFileDirectories", dataFileDirectories)
+                .add("manifestFormat", manifestFormat)
+                .add("baseSnapshotTag", baseSnapshotTag)
+                .toString();
+    }
+}
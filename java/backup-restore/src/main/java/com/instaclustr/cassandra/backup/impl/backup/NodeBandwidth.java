@@ -0,0 +1,35 @@
+package com.instaclustr.cassandra.backup.impl.backup;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.instaclustr.measure.DataRate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Upload bandwidth shared by all operations of this process requesting a node bandwidth, e.g. a backup and
+ * a commit log backup run concurrently by the sidecar. The rate of the most recently started operation wins.
+ */
+final class NodeBandwidth {
+    private static final Logger logger = LoggerFactory.getLogger(NodeBandwidth.class);
+
+    private static RateLimiter rateLimiter;
+
+    private NodeBandwidth() {
+    }
+
+    static synchronized RateLimiter rateLimiter(final DataRate nodeBandwidth) {
+        final double rate = nodeBandwidth.asBytesPerSecond().value;
+
+        if (rateLimiter == null) {
+            rateLimiter = RateLimiter.create(rate);
+        } else if (rateLimiter.getRate() != rate) {
+            rateLimiter.setRate(rate);
+        } else {
+            return rateLimiter;
+        }
+
+        logger.info("Upload bandwidth of this node capped at {}.", nodeBandwidth);
+
+        return rateLimiter;
+    }
+}
@@ -0,0 +1,110 @@
+package com.instaclustr.cassandra.backup.impl.backup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.instaclustr.cassandra.backup.impl.backup.BackupOperation.KeyspaceColumnFamilySnapshot;
+
+/**
+ * Finds a directory of every table of the data directories, e.g. {@code snapshots/<tag>}, walking data directories,
+ * keyspaces and tables concurrently on a fork/join pool.
+ * <p>
+ * Only the requested directory of each table is looked up, other directories of tables (e.g. snapshots with other tags)
+ * are never listed.
+ */
+final class TableDirectoryScanner {
+    // listing directories is bound by filesystem latency rather than CPU
+    private static final int PARALLELISM = Math.max(8, Runtime.getRuntime().availableProcessors());
+
+    private static final int DATA_DIRECTORY_DEPTH = 0;
+    private static final int TABLE_DEPTH = 2;
+
+    private TableDirectoryScanner() {
+    }
+
+    /**
+     * @param dataDirectories   data directories of the node, each laid out as {@code <keyspace>/<column family>}
+     * @param tableSubdirectory directory to look for in each table directory
+     * @return the directory of every table which has it
+     */
+    static List<KeyspaceColumnFamilySnapshot> scan(final Collection<Path> dataDirectories, final Path tableSubdirectory) throws IOException {
+        final ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+
+        try {
+            return pool.invoke(new ScanTask(new ArrayList<>(dataDirectories), DATA_DIRECTORY_DEPTH, tableSubdirectory));
+        } catch (final UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static final class ScanTask extends RecursiveTask<List<KeyspaceColumnFamilySnapshot>> {
+        private final List<Path> directories;
+        private final int depth;
+        private final Path tableSubdirectory;
+
+        ScanTask(final List<Path> directories, final int depth, final Path tableSubdirectory) {
+            this.directories = directories;
+            this.depth = depth;
+            this.tableSubdirectory = tableSubdirectory;
+        }
+
+        @Override
+        protected List<KeyspaceColumnFamilySnapshot> compute() {
+            if (directories.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            if (directories.size() > 1) {
+                final int middle = directories.size() / 2;
+
+                final ScanTask head = new ScanTask(directories.subList(0, middle), depth, tableSubdirectory);
+                final ScanTask tail = new ScanTask(directories.subList(middle, directories.size()), depth, tableSubdirectory);
+
+                head.fork();
+
+                final List<KeyspaceColumnFamilySnapshot> result = new ArrayList<>(tail.compute());
+                result.addAll(head.join());
+
+                return result;
+            }
+
+            final Path directory = directories.get(0);
+
+            if (depth == TABLE_DEPTH) {
+                final Path subdirectory = directory.resolve(tableSubdirectory);
+
+                return Files.isDirectory(subdirectory)
+                        ? Collections.singletonList(new KeyspaceColumnFamilySnapshot(directory, subdirectory))
+                        : Collections.emptyList();
+            }
+
+            return new ScanTask(listDirectories(directory), depth + 1, tableSubdirectory).compute();
+        }
+
+        private static List<Path> listDirectories(final Path directory) {
+            final List<Path> directories = new ArrayList<>();
+
+            try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory, Files::isDirectory)) {
+                stream.forEach(directories::add);
+            } catch (final NoSuchFileException ex) {
+                // keyspace or table dropped while scanning
+            } catch (final IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+
+            return directories;
+        }
+    }
+}
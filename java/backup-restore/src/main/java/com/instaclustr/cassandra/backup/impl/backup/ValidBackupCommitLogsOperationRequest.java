@@ -32,6 +32,13 @@ public @interface ValidBackupCommitLogsOperationRequest {
 
             context.disableDefaultConstraintViolation();
 
+            if (value.minBandwidth != null && value.bandwidth == null && value.duration == null) {
+                context
+                        .buildConstraintViolationWithTemplate("{com.instaclustr.cassandra.backup.impl.backup.ValidBackupCommitLogsOperationRequest.BackupCommitLogsOperationRequestValidator.minBandwidthWithoutBandwidth}")
+                        .addConstraintViolation();
+                return false;
+            }
+
             if (!Files.exists(value.sharedContainerPath)) {
                 context.buildConstraintViolationWithTemplate(String.format("sharedContainerPath %s does not exist", value.sharedContainerPath)).addConstraintViolation();
                 return false;
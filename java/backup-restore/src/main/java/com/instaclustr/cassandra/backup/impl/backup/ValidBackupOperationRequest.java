@@ -40,6 +40,14 @@ public @interface ValidBackupOperationRequest {
                 return false;
             }
 
+            // the lower bound of the adaptive throttle is meaningless without an upper one
+            if (value.minBandwidth != null && value.bandwidth == null && value.duration == null) {
+                context
+                        .buildConstraintViolationWithTemplate("{com.instaclustr.cassandra.backup.impl.backup.ValidBackupOperationRequest.BackupOperationRequestValidator.minBandwidthWithoutBandwidth}")
+                        .addConstraintViolation();
+                return false;
+            }
+
             if (!Files.exists(value.sharedContainerPath)) {
                 context.buildConstraintViolationWithTemplate(format("sharedContainerPath %s does not exist", value.sharedContainerPath)).addConstraintViolation();
                 return false;
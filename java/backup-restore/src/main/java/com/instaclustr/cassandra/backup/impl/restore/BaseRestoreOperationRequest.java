@@ -38,15 +38,24 @@ public class BaseRestoreOperationRequest extends OperationRequest {
     )
     public boolean waitForLock = true;
 
+    @Option(names = {"--download-part-size"},
+            description = "Size of parts, in megabytes, files larger than this are split into for download. " +
+                    "Parts are downloaded concurrently by ranged reads, sharing the concurrent connections with other files. " +
+                    "By default, each file is downloaded by a single connection."
+    )
+    public Integer downloadPartSize;
+
     public BaseRestoreOperationRequest() {
         // for picocli
     }
 
     public BaseRestoreOperationRequest(final StorageLocation storageLocation,
                                        final Integer concurrentConnections,
-                                       final boolean waitForLock) {
+                                       final boolean waitForLock,
+                                       final Integer downloadPartSize) {
         this.storageLocation = storageLocation;
         this.concurrentConnections = concurrentConnections;
         this.waitForLock = waitForLock;
+        this.downloadPartSize = downloadPartSize;
     }
 }
@@ -0,0 +1,79 @@
+package com.instaclustr.cassandra.backup.impl.restore;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.instaclustr.cassandra.backup.impl.ManifestEntry;
+
+/**
+ * Orders files of a restore so the largest ones start first and do not become a long tail at the end of the restore.
+ * <p>
+ * Files are binned into size classes (powers of two), processed from the largest class down. Within a class,
+ * files are taken round-robin across data file directories and, within a directory, round-robin across tables,
+ * so concurrent downloads write to all disks at once rather than working through one disk or table at a time.
+ */
+class DownloadScheduler {
+
+    private DownloadScheduler() {
+    }
+
+    static List<ManifestEntry> schedule(final Collection<ManifestEntry> entries, final Collection<Path> dataFileDirectories) {
+        // size class -> table -> files of the table in the class, largest first
+        final TreeMap<Integer, Map<Path, Deque<ManifestEntry>>> sizeClasses = new TreeMap<>(Comparator.reverseOrder());
+
+        entries.stream()
+               .sorted(Comparator.comparingLong((ManifestEntry entry) -> entry.size).reversed())
+               .forEach(entry -> sizeClasses.computeIfAbsent(sizeClass(entry.size), sizeClass -> new LinkedHashMap<>())
+                                            .computeIfAbsent(entry.localFile.getParent(), table -> new ArrayDeque<>())
+                                            .add(entry));
+
+        final List<ManifestEntry> schedule = new ArrayList<>(entries.size());
+
+        for (final Map<Path, Deque<ManifestEntry>> tables : sizeClasses.values()) {
+            // data file directory -> tables of the directory, in turns
+            final Map<Path, Deque<Deque<ManifestEntry>>> directories = new LinkedHashMap<>();
+
+            tables.forEach((table, tableEntries) -> directories.computeIfAbsent(dataFileDirectory(table, dataFileDirectories), directory -> new ArrayDeque<>())
+                                                               .add(tableEntries));
+
+            while (!directories.isEmpty()) {
+                final Iterator<Deque<Deque<ManifestEntry>>> directoriesIterator = directories.values().iterator();
+
+                while (directoriesIterator.hasNext()) {
+                    final Deque<Deque<ManifestEntry>> directoryTables = directoriesIterator.next();
+                    final Deque<ManifestEntry> tableEntries = directoryTables.poll();
+
+                    schedule.add(tableEntries.poll());
+
+                    // the table goes to the back of its directory, so the next file of the directory is of another table
+                    if (!tableEntries.isEmpty()) {
+                        directoryTables.add(tableEntries);
+                    }
+
+                    if (directoryTables.isEmpty()) {
+                        directoriesIterator.remove();
+                    }
+                }
+            }
+        }
+
+        return schedule;
+    }
+
+    private static int sizeClass(final long size) {
+        return 64 - Long.numberOfLeadingZeros(size);
+    }
+
+    private static Path dataFileDirectory(final Path table, final Collection<Path> dataFileDirectories) {
+        return dataFileDirectories.stream().filter(table::startsWith).findFirst().orElse(table.getRoot());
+    }
+}
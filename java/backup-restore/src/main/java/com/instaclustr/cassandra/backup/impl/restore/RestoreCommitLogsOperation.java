@@ -1,25 +1,29 @@
 package com.instaclustr.cassandra.backup.impl.restore;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
 import com.google.common.base.Joiner;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import com.instaclustr.cassandra.backup.guice.RestorerFactory;
+import com.instaclustr.cassandra.backup.impl.CommitLogCatalogue;
+import com.instaclustr.cassandra.backup.impl.CompressionCodec;
 import com.instaclustr.cassandra.backup.impl.ManifestEntry;
-import com.instaclustr.cassandra.backup.impl.RemoteObjectReference;
 import com.instaclustr.operations.Operation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -71,40 +75,82 @@ public class RestoreCommitLogsOperation extends Operation<RestoreCommitLogsOpera
         }
     }
 
+    /**
+     * Lists the prefixes of the commit log catalogue's buckets overlapping the restored time range, or the whole
+     * commit log prefix if the catalogue is missing, or does not cover the range completely.
+     */
+    private List<Path> commitLogPrefixes(final Restorer restorer) {
+        final CommitLogCatalogue catalogue;
+
+        try (final InputStream stream = restorer.openRemoteObject(restorer.objectKeyToRemoteReference(CommitLogCatalogue.CATALOGUE_KEY))) {
+            catalogue = CommitLogCatalogue.read(stream);
+        } catch (final Exception e) {
+            logger.info("Commit log catalogue is not available, listing all commit logs: {}", e.getMessage());
+            return Collections.singletonList(CommitLogCatalogue.COMMIT_LOGS_KEY);
+        }
+
+        final Optional<List<Path>> bucketKeys = catalogue.bucketKeys(request.timestampStart, request.timestampEnd);
+
+        if (!bucketKeys.isPresent()) {
+            logger.info("Commit log catalogue does not cover all segments from timestamp {}, listing all commit logs.", request.timestampStart);
+            return Collections.singletonList(CommitLogCatalogue.COMMIT_LOGS_KEY);
+        }
+
+        return bucketKeys.get();
+    }
+
+    /**
+     * Downloads the segments holding mutations of the restored time range, in order of their ids, which is the order
+     * Cassandra wrote and replays them in.
+     * <p>
+     * The time range of a segment is approximated from the last-modified times it was archived with: Cassandra writes
+     * segments one after another, by increasing ids, so a segment holds mutations from the time the one before it was
+     * last modified up to its own. The segments needed are therefore the one the range starts in, the first one
+     * last modified at or after its start, and all following ones up to the one it ends in, the first one last modified
+     * at or after its end. Later segments hold only mutations past the range and are never downloaded.
+     * <p>
+     * A segment archived more than once, as it was written to between backups, is downloaded only once, from the
+     * earliest copy taken at or after the end of the range, or else from its latest copy.
+     */
     private void downloadCommitLogs(final Restorer restorer) throws Exception {
-        final RemoteObjectReference remoteObjectReference = restorer.objectKeyToRemoteReference(Paths.get("commitlog"));
-        final Pattern commitlogPattern = Pattern.compile(".*(CommitLog-\\d+-\\d+\\.log)\\.(\\d+)");
-        final HashSet<ManifestEntry> parsedCommitlogList = new HashSet<>();
+        // the copy to restore of every listed segment, by its file name
+        final Map<String, SegmentCopy> segmentCopies = new HashMap<>();
 
         logger.info("Commencing processing of commit log listing");
-        final AtomicReference<ManifestEntry> overhangingManifestEntry = new AtomicReference<>();
-        final AtomicLong overhangingTimestamp = new AtomicLong(Long.MAX_VALUE);
 
-        restorer.consumeFiles(remoteObjectReference, commitlogFile -> {
+        restorer.consumeFilesConcurrently(commitLogPrefixes(restorer), commitlogFile -> {
 
-            final Matcher matcherCommitlog = commitlogPattern.matcher(commitlogFile.getObjectKey().toString());
+            final Matcher matcherCommitlog = CommitLogCatalogue.SEGMENT_KEY_PATTERN.matcher(commitlogFile.getObjectKey().toString());
 
             if (matcherCommitlog.matches()) {
-                final long commitlogTimestamp = Long.parseLong(matcherCommitlog.group(2));
-
-                if (commitlogTimestamp >= request.timestampStart && commitlogTimestamp <= request.timestampEnd) {
-                    parsedCommitlogList.add(new ManifestEntry(commitlogFile.getObjectKey(),
-                                                              commitlogsPath.resolve(matcherCommitlog.group(1)),
-                                                              ManifestEntry.Type.FILE,
-                                                              0));
-                } else if (commitlogTimestamp > request.timestampEnd && commitlogTimestamp < overhangingTimestamp.get()) {
-                    // Make sure we also catch the first commitlog that goes past the end of the timestamp
-                    overhangingTimestamp.set(commitlogTimestamp);
-                    overhangingManifestEntry.set(new ManifestEntry(commitlogFile.getObjectKey(),
-                                                                   commitlogsPath.resolve(matcherCommitlog.group(1)),
-                                                                   ManifestEntry.Type.FILE,
-                                                                   0));
-                }
+                final SegmentCopy copy = new SegmentCopy(new ManifestEntry(commitlogFile.getObjectKey(),
+                                                                           commitlogFile.getObjectKey(),
+                                                                           commitlogsPath.resolve(matcherCommitlog.group(1)),
+                                                                           ManifestEntry.Type.FILE,
+                                                                           0,
+                                                                           CompressionCodec.forKey(commitlogFile.getObjectKey())),
+                                                         matcherCommitlog.group(1),
+                                                         Long.parseLong(matcherCommitlog.group(2)));
+
+                segmentCopies.merge(copy.segment, copy, this::restoredCopy);
             }
         });
 
-        if (overhangingManifestEntry.get() != null) {
-            parsedCommitlogList.add(overhangingManifestEntry.get());
+        final List<SegmentCopy> segments = new ArrayList<>(segmentCopies.values());
+        segments.sort(Comparator.comparingLong(SegmentCopy::segmentId));
+
+        final List<ManifestEntry> parsedCommitlogList = new ArrayList<>();
+
+        for (final SegmentCopy segment : segments) {
+            if (segment.timestamp < request.timestampStart) {
+                continue;
+            }
+
+            parsedCommitlogList.add(segment.entry);
+
+            if (segment.timestamp >= request.timestampEnd) {
+                break;
+            }
         }
 
         logger.info("Found {} commit logs to download", parsedCommitlogList.size());
@@ -116,6 +162,34 @@ public class RestoreCommitLogsOperation extends Operation<RestoreCommitLogsOpera
         restorer.downloadFiles(parsedCommitlogList);
     }
 
+    /**
+     * @return copy of a segment to restore out of two: the earlier one if both were taken at or after the end of the
+     * restored range, as it holds all mutations up to the end with the fewest past it, otherwise the later one
+     */
+    private SegmentCopy restoredCopy(final SegmentCopy copy, final SegmentCopy otherCopy) {
+        if (copy.timestamp >= request.timestampEnd && otherCopy.timestamp >= request.timestampEnd) {
+            return copy.timestamp <= otherCopy.timestamp ? copy : otherCopy;
+        }
+
+        return copy.timestamp >= otherCopy.timestamp ? copy : otherCopy;
+    }
+
+    private static class SegmentCopy {
+        final ManifestEntry entry;
+        final String segment;
+        final long timestamp;
+
+        SegmentCopy(final ManifestEntry entry, final String segment, final long timestamp) {
+            this.entry = entry;
+            this.segment = segment;
+            this.timestamp = timestamp;
+        }
+
+        long segmentId() {
+            return CommitLogCatalogue.segmentId(segment);
+        }
+    }
+
     /**
      * Add cassandra.replayList at the end of cassandra-env.sh. In case Cassandra container restarts,
      * this change will not be there anymore because configuration volume is ephemeral and gets
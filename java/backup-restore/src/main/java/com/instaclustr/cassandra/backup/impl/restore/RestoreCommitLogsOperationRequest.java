@@ -75,8 +75,9 @@ public class RestoreCommitLogsOperationRequest extends BaseRestoreOperationReque
                                              @JsonProperty("commitLogRestoreDirectory") final Path commitLogRestoreDirectory,
                                              @JsonProperty("timestampStart") final long timestampStart,
                                              @JsonProperty("timestampEnd") final long timestampEnd,
-                                             @JsonProperty("keyspaceTables") final Multimap<String, String> keyspaceTables) {
-        super(storageLocation, concurrentConnections, waitForLock);
+                                             @JsonProperty("keyspaceTables") final Multimap<String, String> keyspaceTables,
+                                             @JsonProperty("downloadPartSize") final Integer downloadPartSize) {
+        super(storageLocation, concurrentConnections, waitForLock, downloadPartSize);
         this.cassandraDirectory = cassandraDirectory == null ? Paths.get("/var/lib/cassandra") : cassandraDirectory;
         this.sharedContainerPath = sharedContainerPath == null ? Paths.get("/") : sharedContainerPath;
         this.cassandraConfigDirectory = cassandraConfigDirectory == null ? Paths.get("/etc/cassandra") : cassandraConfigDirectory;
@@ -97,6 +98,7 @@ public class RestoreCommitLogsOperationRequest extends BaseRestoreOperationReque
                           .add("timestampStart", timestampStart)
                           .add("timestampEnd", timestampEnd)
                           .add("keyspaceTables", keyspaceTables)
+                          .add("downloadPartSize", downloadPartSize)
                           .toString();
     }
 }
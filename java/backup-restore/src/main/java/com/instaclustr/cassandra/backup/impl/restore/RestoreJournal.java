@@ -0,0 +1,155 @@
+package com.instaclustr.cassandra.backup.impl.restore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.instaclustr.cassandra.backup.impl.ManifestEntry;
+import com.instaclustr.cassandra.backup.impl.StateFiles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Journal of files completely downloaded by a restore, so a restore restarted after a failure downloads only the
+ * outstanding files, without rehashing the local files the previous attempt already downloaded. Files are recorded
+ * only once downloaded in full and their checksum, if any, verified, together with that checksum.
+ * <p>
+ * The journal is stored in {@code var/lib/backup-restore/restore-journal} of the shared container path, one file per
+ * storage location and snapshot, each line in form {@code <size> <lastModified> <checksum> <storageKey> <localFile>}.
+ * It is checkpointed periodically while files are downloaded, and deleted once the restore succeeds.
+ */
+public class RestoreJournal {
+    private static final Logger logger = LoggerFactory.getLogger(RestoreJournal.class);
+
+    private static final int CHECKPOINT_ENTRIES = 100;
+    private static final long CHECKPOINT_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private static class Entry {
+        final long size;
+        final long lastModified;
+        final long checksum;
+        final String storageKey;
+
+        Entry(final long size, final long lastModified, final long checksum, final String storageKey) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.checksum = checksum;
+            this.storageKey = storageKey;
+        }
+    }
+
+    private final Path journalFile;
+    private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger entriesSinceCheckpoint = new AtomicInteger();
+    private volatile long lastCheckpoint = System.currentTimeMillis();
+
+    private RestoreJournal(final Path journalFile) {
+        this.journalFile = journalFile;
+    }
+
+    /**
+     * @return journal of the restore of the request, with files downloaded by its previous attempts
+     */
+    public static RestoreJournal forRequest(final RestoreOperationRequest request) {
+        final Path journalFile = StateFiles.stateFile(request.sharedContainerPath, "restore-journal", request.storageLocation)
+                .resolve(request.snapshotTag);
+
+        final RestoreJournal journal = new RestoreJournal(journalFile);
+        journal.load();
+        return journal;
+    }
+
+    /**
+     * @return true if the local file was completely downloaded from the object of the manifest entry by a previous attempt,
+     * verified by the checksum of the entry, if it has one, and it has not been modified since
+     */
+    public boolean isDownloaded(final Path localFile, final ManifestEntry manifestEntry) {
+        final Entry entry = entries.get(localFile);
+
+        if (entry == null || entry.size != manifestEntry.size || !entry.storageKey.equals(manifestEntry.storageKey.toString())) {
+            return false;
+        }
+
+        if (manifestEntry.getChecksum() != ManifestEntry.NO_CHECKSUM && entry.checksum != manifestEntry.getChecksum()) {
+            return false;
+        }
+
+        try {
+            return Files.size(localFile) == entry.size && Files.getLastModifiedTime(localFile).toMillis() == entry.lastModified;
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return true if the local file was downloaded by a previous attempt, whether it has been modified since or not
+     */
+    public boolean isRecorded(final Path localFile) {
+        return entries.containsKey(localFile);
+    }
+
+    /**
+     * Records the file as completely downloaded and verified, checkpointing the journal every few entries or seconds.
+     */
+    public void record(final ManifestEntry manifestEntry) {
+        try {
+            entries.put(manifestEntry.localFile, new Entry(Files.size(manifestEntry.localFile),
+                                                           Files.getLastModifiedTime(manifestEntry.localFile).toMillis(),
+                                                           manifestEntry.getChecksum(),
+                                                           manifestEntry.storageKey.toString()));
+        } catch (final IOException e) {
+            logger.warn("Failed to record downloaded file {} in restore journal.", manifestEntry.localFile, e);
+            return;
+        }
+
+        if (entriesSinceCheckpoint.incrementAndGet() >= CHECKPOINT_ENTRIES
+                || System.currentTimeMillis() - lastCheckpoint >= CHECKPOINT_INTERVAL_MILLIS) {
+            checkpoint();
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(journalFile)) {
+            return;
+        }
+
+        try {
+            StateFiles.read(journalFile, 5, lineArray -> entries.put(Paths.get(lineArray[4]),
+                                                                     new Entry(Long.parseLong(lineArray[0]), Long.parseLong(lineArray[1]),
+                                                                               Long.parseLong(lineArray[2]), lineArray[3])));
+
+            logger.info("Resuming restore, {} files were already downloaded according to restore journal {}.", entries.size(), journalFile);
+        } catch (final IOException e) {
+            // without the journal, local files are verified by their hash instead
+            logger.warn("Failed to load restore journal {}, ignoring it.", journalFile, e);
+            entries.clear();
+        }
+    }
+
+    /**
+     * Persists the journal.
+     */
+    public synchronized void checkpoint() {
+        entriesSinceCheckpoint.set(0);
+        lastCheckpoint = System.currentTimeMillis();
+
+        try {
+            StateFiles.write(journalFile, writer -> entries.forEach((localFile, entry) -> writer.printf("%d %d %d %s %s%n", entry.size, entry.lastModified, entry.checksum,
+                                                                                                              entry.storageKey, localFile)));
+        } catch (final IOException e) {
+            logger.warn("Failed to checkpoint restore journal {}.", journalFile, e);
+        }
+    }
+
+    /**
+     * Deletes the journal, once the restore it records has completed.
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(journalFile);
+    }
+}
@@ -4,38 +4,42 @@ import static com.instaclustr.cassandra.backup.impl.restore.RestorePredicates.ge
 import static com.instaclustr.cassandra.backup.impl.restore.RestorePredicates.getManifestFilesForFullNewRestore;
 import static com.instaclustr.cassandra.backup.impl.restore.RestorePredicates.getManifestFilesForSubsetExistingRestore;
 import static com.instaclustr.cassandra.backup.impl.restore.RestorePredicates.getManifestFilesForSubsetNewRestore;
-import static com.instaclustr.cassandra.backup.impl.restore.RestorePredicates.isSubsetTable;
 import static com.instaclustr.io.FileUtils.cleanDirectory;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import com.instaclustr.cassandra.backup.guice.RestorerFactory;
+import com.instaclustr.cassandra.backup.impl.FingerprintCache;
+import com.instaclustr.cassandra.backup.impl.Manifest;
 import com.instaclustr.cassandra.backup.impl.ManifestEntry;
 import com.instaclustr.cassandra.backup.impl.SSTableUtils;
 import com.instaclustr.io.FileUtils;
 import com.instaclustr.io.GlobalLock;
 import com.instaclustr.operations.Operation;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class RestoreOperation extends Operation<RestoreOperationRequest> {
     private static final Logger logger = LoggerFactory.getLogger(RestoreOperation.class);
 
-    private final static String CASSANDRA_DATA = "data";
-
     private final Map<String, RestorerFactory> restorerFactoryMap;
 
     private final Path cassandraYaml;
@@ -69,12 +73,8 @@ public class RestoreOperation extends Operation<RestoreOperationRequest> {
         // 2. Determine if just restoring a subset of tables
         final boolean isTableSubsetOnly = request.keyspaceTables.size() > 0;
 
-        // 3. Download the manifest
-        logger.info("Retrieving manifest for snapshot: {}", request.snapshotTag);
-        final Path sourceManifest = Paths.get("manifests/" + request.snapshotTag);
-        final Path localManifest = request.cassandraDirectory.resolve(sourceManifest);
-
-        restorer.downloadFile(localManifest, restorer.objectKeyToRemoteReference(sourceManifest));
+        // 3. Download the manifest, and manifests of the backups it builds upon in case it is an incremental one
+        final List<Manifest> manifests = restorer.downloadManifestChain(request.snapshotTag, request.cassandraDirectory);
 
         // 4. Clean out old data
         cleanDirectory(request.cassandraDirectory.resolve("hints"));
@@ -84,15 +84,25 @@ public class RestoreOperation extends Operation<RestoreOperationRequest> {
         final Set<Path> existingSstableList = new HashSet<>();
         final int skipBackupsAndSnapshotsFolders = 4;
 
-        final Path cassandraSstablesDirectory = request.cassandraDirectory.resolve(CASSANDRA_DATA);
+        final List<Path> dataFileDirectories = request.resolveDataFileDirectories();
+
+        for (final Path dataFileDirectory : dataFileDirectories) {
+            if (!dataFileDirectory.toFile().exists()) {
+                continue;
+            }
 
-        if (cassandraSstablesDirectory.toFile().exists()) {
-            try (Stream<Path> paths = Files.walk(cassandraSstablesDirectory, skipBackupsAndSnapshotsFolders)) {
-                if (isTableSubsetOnly) {
-                    paths.filter(Files::isRegularFile)
-                         .filter(isSubsetTable(request.keyspaceTables))
-                         .forEach(existingSstableList::add);
-                } else {
+            if (isTableSubsetOnly) {
+                // only directories of the restored tables are walked, rather than all tables of all keyspaces
+                for (final Path tableDirectory : subsetTableDirectories(dataFileDirectory)) {
+                    try (Stream<Path> paths = Files.walk(tableDirectory, 2)) {
+                        // SSTables of the table and of its secondary indexes, not of its snapshots or backups
+                        paths.filter(Files::isRegularFile)
+                             .filter(path -> path.getParent().equals(tableDirectory) || path.getParent().getFileName().toString().startsWith("."))
+                             .forEach(existingSstableList::add);
+                    }
+                }
+            } else {
+                try (Stream<Path> paths = Files.walk(dataFileDirectory, skipBackupsAndSnapshotsFolders)) {
                     paths.filter(Files::isRegularFile).forEach(existingSstableList::add);
                 }
             }
@@ -102,53 +112,118 @@ public class RestoreOperation extends Operation<RestoreOperationRequest> {
         logger.info("Restoring to existing cluster? {}", isRestoringToExistingCluster);
 
         // 5. Parse the manifest
-        final LinkedList<ManifestEntry> downloadManifest = new LinkedList<>();
-
-        try (final BufferedReader manifestStream = Files.newBufferedReader(localManifest)) {
-            final List<String> filteredManifest;
-
-            if (isRestoringToExistingCluster) {
-                if (isTableSubsetOnly) {
-                    filteredManifest = manifestStream.lines()
-                                                     .filter(getManifestFilesForSubsetExistingRestore(request.keyspaceTables, request.restoreSystemKeyspace))
-                                                     .collect(toList());
-                } else {
-                    filteredManifest = manifestStream.lines()
-                                                     .filter(getManifestFilesForFullExistingRestore(request.restoreSystemKeyspace))
-                                                     .collect(toList());
-                }
+        final RestoreJournal journal = RestoreJournal.forRequest(request);
+        final FingerprintCache fingerprintCache = FingerprintCache.forSharedContainerPath(request.sharedContainerPath);
+
+        // keyed by local path, as an SSTable may be listed by more than one manifest of a chain
+        final Map<Path, ManifestEntry> downloadManifest = new LinkedHashMap<>();
+
+        final Predicate<Path> isRestored;
+
+        if (isRestoringToExistingCluster) {
+            if (isTableSubsetOnly) {
+                isRestored = getManifestFilesForSubsetExistingRestore(request.keyspaceTables, request.restoreSystemKeyspace);
             } else {
-                if (isTableSubsetOnly) {
-                    filteredManifest = manifestStream.lines()
-                                                     .filter(getManifestFilesForSubsetNewRestore(request.keyspaceTables, request.restoreSystemKeyspace))
-                                                     .collect(toList());
-                } else {
-                    filteredManifest = manifestStream.lines()
-                                                     .filter(getManifestFilesForFullNewRestore(request.restoreSystemKeyspace))
-                                                     .collect(toList());
-                }
+                isRestored = getManifestFilesForFullExistingRestore(request.restoreSystemKeyspace);
             }
+        } else {
+            if (isTableSubsetOnly) {
+                isRestored = getManifestFilesForSubsetNewRestore(request.keyspaceTables, request.restoreSystemKeyspace);
+            } else {
+                isRestored = getManifestFilesForFullNewRestore(request.restoreSystemKeyspace);
+            }
+        }
 
-            for (final String m : filteredManifest) {
-                final String[] lineArray = m.trim().split(" ");
+        // tables are selected by their keys, entries of other tables are never parsed
+        final List<ManifestEntry> filteredManifest = manifests.stream()
+                                                              .flatMap(manifest -> manifest.getTables()
+                                                                                           .stream()
+                                                                                           .filter(isRestored)
+                                                                                           .flatMap(table -> manifest.getEntries(table).stream()))
+                                                              .collect(toList());
 
-                final Path manifestPath = Paths.get(lineArray[1]);
-                final int hashPathPart = isSecondaryIndexManifest(manifestPath) ? 4 : 3;
+        // SSTable (data/<keyspace>/<table>/<hash>) -> data file directory it is restored to, so all its components end up together
+        final Map<Path, Path> sstableDirectories = new HashMap<>();
+        // bytes restored to each data file directory so far, SSTables to download go to the least loaded one
+        final Map<Path, Long> directoryLoads = new LinkedHashMap<>();
+        dataFileDirectories.forEach(dataFileDirectory -> directoryLoads.put(dataFileDirectory, 0L));
 
-                //strip check hash from path
-                final Path localPath = request.cassandraDirectory.resolve(manifestPath.subpath(0, hashPathPart).resolve(manifestPath.getFileName()));
+        final List<ManifestEntry> entriesToDownload = new ArrayList<>();
 
-                if (isAnExistingSstable(localPath, manifestPath.getName(hashPathPart).toString())) {
+        // 5a. Keep files already present in any of the data file directories
+        for (final ManifestEntry entry : filteredManifest) {
+            final Path manifestPath = entry.objectKey;
+            final int hashPathPart = isSecondaryIndexManifest(manifestPath) ? 4 : 3;
+
+            //strip check hash and leading 'data' from path
+            final Path tablePath = manifestPath.subpath(1, hashPathPart).resolve(manifestPath.getFileName());
+
+            final long size = entry.size;
+
+            final Path existingDirectory = dataFileDirectories.stream().filter(dataFileDirectory -> {
+                final Path localPath = dataFileDirectory.resolve(tablePath);
+
+                if (journal.isDownloaded(localPath, entry)) {
+                    logger.info("Keeping sstable {} downloaded by previous restore attempt", localPath);
+                    return true;
+                }
+
+                // the hash of its SSTable may still match, e.g. as it is taken from the digest of the SSTable
+                if (journal.isRecorded(localPath)) {
+                    logger.info("Not keeping sstable {} modified since downloaded by previous restore attempt", localPath);
+                    return false;
+                }
+
+                if (isAnExistingSstable(fingerprintCache, localPath, manifestPath.getName(hashPathPart).toString(), size)) {
                     logger.info("Keeping existing sstable " + localPath);
-                    existingSstableList.remove(localPath);
-                    continue; // file already present, and the hash matches so don't add to manifest to download and don't delete
+                    return true;
                 }
 
-                logger.info("Not keeping existing sstable {}", localPath);
-                downloadManifest.add(new ManifestEntry(manifestPath, localPath, ManifestEntry.Type.FILE, 0));
+                return false;
+            }).findFirst().orElse(null);
+
+            if (existingDirectory == null) {
+                entriesToDownload.add(entry);
+                continue;
             }
+
+            // file already present, and the hash matches so don't add to manifest to download and don't delete
+            existingSstableList.remove(existingDirectory.resolve(tablePath));
+            sstableDirectories.putIfAbsent(manifestPath.subpath(0, hashPathPart + 1), existingDirectory);
+            directoryLoads.merge(existingDirectory, size, Long::sum);
         }
 
+        // keys of all restored files, to find SSTables whose hash is the CRC32 of their Data.db
+        final Set<Path> restoredObjectKeys = request.verifySstableDigests
+                                             ? filteredManifest.stream().map(entry -> entry.objectKey).collect(toSet())
+                                             : null;
+
+        // 5b. Spread the rest over data file directories, keeping components of an SSTable in the same one
+        for (final ManifestEntry entry : entriesToDownload) {
+            final Path manifestPath = entry.objectKey;
+            final int hashPathPart = isSecondaryIndexManifest(manifestPath) ? 4 : 3;
+
+            final long size = entry.size;
+
+            final Path dataFileDirectory = sstableDirectories.computeIfAbsent(manifestPath.subpath(0, hashPathPart + 1),
+                                                                              sstable -> leastLoaded(directoryLoads));
+            directoryLoads.merge(dataFileDirectory, size, Long::sum);
+
+            final Path localPath = dataFileDirectory.resolve(manifestPath.subpath(1, hashPathPart).resolve(manifestPath.getFileName()));
+
+            logger.info("Not keeping existing sstable {}", localPath);
+
+            final ManifestEntry downloadEntry = entry.locatedAt(localPath);
+
+            if (request.verifySstableDigests && downloadEntry.getChecksum() == ManifestEntry.NO_CHECKSUM) {
+                SSTableUtils.dataCrc32(manifestPath, restoredObjectKeys).ifPresent(downloadEntry::setChecksum);
+            }
+
+            downloadManifest.put(localPath, downloadEntry);
+        }
+
+        fingerprintCache.save();
+
         // 6. Delete any entries left in existingSstableList
         existingSstableList.forEach(sstablePath -> {
             logger.info("Deleting existing sstable {}", sstablePath);
@@ -157,11 +232,42 @@ public class RestoreOperation extends Operation<RestoreOperationRequest> {
             }
         });
 
-        // 7. Download files in the manifest
-        restorer.downloadFiles(downloadManifest);
+        // 7. Download files in the manifest, largest first and across data file directories, journaling the downloaded ones so a failed restore can resume
+        try {
+            restorer.downloadFiles(DownloadScheduler.schedule(downloadManifest.values(), dataFileDirectories), journal::record);
+        } finally {
+            journal.checkpoint();
+        }
 
         // 8. download tokens
         downloadTokens(restorer);
+
+        journal.delete();
+    }
+
+    /**
+     * @return directories of tables of the restored subset in the data file directory, in form {@code <keyspace>/<table>-<id>}
+     */
+    private List<Path> subsetTableDirectories(final Path dataFileDirectory) throws IOException {
+        final List<Path> tableDirectories = new ArrayList<>();
+
+        for (final String keyspace : request.keyspaceTables.keySet()) {
+            final Path keyspaceDirectory = dataFileDirectory.resolve(keyspace);
+
+            if (!Files.isDirectory(keyspaceDirectory)) {
+                continue;
+            }
+
+            try (final DirectoryStream<Path> tables = Files.newDirectoryStream(keyspaceDirectory, Files::isDirectory)) {
+                for (final Path tableDirectory : tables) {
+                    if (request.keyspaceTables.containsEntry(keyspace, StringUtils.split(tableDirectory.getFileName().toString(), '-')[0])) {
+                        tableDirectories.add(tableDirectory);
+                    }
+                }
+            }
+        }
+
+        return tableDirectories;
     }
 
     /**
@@ -176,19 +282,25 @@ public class RestoreOperation extends Operation<RestoreOperationRequest> {
         return manifestPath.getNameCount() == 6 && manifestPath.subpath(3, 4).toString().startsWith(".");
     }
 
-    private boolean isAnExistingSstable(final Path localPath, final String sstable) {
+    private static Path leastLoaded(final Map<Path, Long> directoryLoads) {
+        return directoryLoads.entrySet().stream().min(Map.Entry.comparingByValue()).map(Map.Entry::getKey).orElseThrow(IllegalStateException::new);
+    }
+
+    private boolean isAnExistingSstable(final FingerprintCache fingerprintCache, final Path localPath, final String sstable, final long size) {
         try {
-            if (localPath.toFile().exists() && SSTableUtils.sstableHash(localPath).equals(sstable)) {
+            if (localPath.toFile().exists() && Files.size(localPath) == size && fingerprintCache.sstableHash(localPath).equals(sstable)) {
                 return true;
             }
-        } catch (IOException e) {
-            // SSTableUtils.sstableHash may throw exception if SSTable has not been probably downloaded
+        } catch (IOException | IllegalStateException e) {
+            // SSTableUtils.sstableHash may throw exception if SSTable has not been probably downloaded, e.g. its Data.db
+            // by a failed restore which is resumed
             logger.error(e.getMessage());
         }
         return false;
     }
 
     private void downloadTokens(final Restorer restorer) throws Exception {
+        Files.deleteIfExists(tokens);
         restorer.downloadFile(tokens, restorer.objectKeyToRemoteReference(Paths.get("tokens/" + request.snapshotTag + "-tokens.yaml")));
     }
 
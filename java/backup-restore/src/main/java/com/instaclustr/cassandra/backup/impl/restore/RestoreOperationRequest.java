@@ -3,12 +3,14 @@ package com.instaclustr.cassandra.backup.impl.restore;
 import javax.validation.constraints.NotBlank;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Multimap;
 import com.instaclustr.cassandra.backup.impl.StorageLocation;
@@ -59,6 +61,20 @@ public class RestoreOperationRequest extends BaseRestoreOperationRequest {
             converter = KeyspaceTablePairsConverter.class)
     public Multimap<String, String> keyspaceTables = ImmutableMultimap.of();
 
+    @Option(names = {"--data-file-directories"},
+            description = "Comma separated data file directories of Cassandra, if it has more than one (JBOD). SSTables are spread " +
+                    "across them. Default is the 'data' directory of --data-directory.",
+            converter = PathTypeConverter.class,
+            split = ",")
+    @JsonSerialize(contentUsing = PathSerializer.class)
+    @JsonDeserialize(contentUsing = PathDeserializer.class)
+    public List<Path> dataFileDirectories = ImmutableList.of();
+
+    @Option(names = {"--verify-sstable-digests"},
+            description = "Verify downloaded Data.db components of SSTables by the CRC32 of their Digest.crc32 component (Cassandra 2.2 and later), " +
+                    "unless the manifest has a checksum of them. Downloads with a checksum in the manifest are always verified.")
+    public boolean verifySstableDigests;
+
     public RestoreOperationRequest() {
         // for picocli
     }
@@ -72,14 +88,26 @@ public class RestoreOperationRequest extends BaseRestoreOperationRequest {
                                    @JsonProperty("sharedContainerPath") final Path sharedContainerPath,
                                    @JsonProperty("restoreSystemKeyspace") final boolean restoreSystemKeyspace,
                                    @JsonProperty("snapshotTag") final String snapshotTag,
-                                   @JsonProperty("keyspaceTables") final Multimap<String, String> keyspaceTables) {
-        super(storageLocation, concurrentConnections, waitForLock);
+                                   @JsonProperty("keyspaceTables") final Multimap<String, String> keyspaceTables,
+                                   @JsonProperty("downloadPartSize") final Integer downloadPartSize,
+                                   @JsonProperty("dataFileDirectories") final List<Path> dataFileDirectories,
+                                   @JsonProperty("verifySstableDigests") final boolean verifySstableDigests) {
+        super(storageLocation, concurrentConnections, waitForLock, downloadPartSize);
         this.cassandraDirectory = cassandraDirectory == null ? Paths.get("/var/lib/cassandra") : cassandraDirectory;
         this.cassandraConfigDirectory = cassandraConfigDirectory == null ? Paths.get("/etc/cassandra") : cassandraConfigDirectory;
         this.sharedContainerPath = sharedContainerPath == null ? Paths.get("/") : sharedContainerPath;
         this.restoreSystemKeyspace = restoreSystemKeyspace;
         this.snapshotTag = snapshotTag;
         this.keyspaceTables = keyspaceTables;
+        this.dataFileDirectories = dataFileDirectories == null ? ImmutableList.of() : dataFileDirectories;
+        this.verifySstableDigests = verifySstableDigests;
+    }
+
+    /**
+     * @return data file directories of Cassandra, the 'data' directory of the Cassandra directory unless set explicitly
+     */
+    public List<Path> resolveDataFileDirectories() {
+        return dataFileDirectories.isEmpty() ? ImmutableList.of(cassandraDirectory.resolve("data")) : dataFileDirectories;
     }
 
     @Override
@@ -93,6 +121,9 @@ public class RestoreOperationRequest extends BaseRestoreOperationRequest {
                           .add("restoreSystemKeyspace", restoreSystemKeyspace)
                           .add("snapshotTag", snapshotTag)
                           .add("keyspaceTables", keyspaceTables)
+                          .add("downloadPartSize", downloadPartSize)
+                          .add("dataFileDirectories", dataFileDirectories)
+                          .add("verifySstableDigests", verifySstableDigests)
                           .toString();
     }
 }
@@ -1,22 +1,46 @@
 package com.instaclustr.cassandra.backup.impl.restore;
 
 import static com.instaclustr.cassandra.backup.impl.restore.Restorer.CompareFilesResult.DOWNLOAD_REQUIRED;
+import static java.lang.Math.toIntExact;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
 import static java.util.concurrent.TimeUnit.MINUTES;
-import static java.util.stream.Collectors.toList;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.zip.CRC32;
 
-import com.google.common.util.concurrent.Futures;
+import com.instaclustr.cassandra.backup.impl.CompressionCodec;
+import com.instaclustr.cassandra.backup.impl.Manifest;
 import com.instaclustr.cassandra.backup.impl.ManifestEntry;
 import com.instaclustr.cassandra.backup.impl.RemoteObjectReference;
 import com.instaclustr.cassandra.backup.impl.StorageInteractor;
+import com.instaclustr.io.Checksums;
+import com.instaclustr.io.ChecksummingInputStream;
 import com.instaclustr.threading.Executors.ExecutorServiceSupplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,6 +48,18 @@ import org.slf4j.LoggerFactory;
 public abstract class Restorer extends StorageInteractor {
     private static final Logger logger = LoggerFactory.getLogger(Restorer.class);
 
+    private static final int PART_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Attempts to download a file whose checksum does not match the expected one, before the download fails.
+     */
+    private static final int MAX_DOWNLOAD_ATTEMPTS = 3;
+
+    /**
+     * Suffix of files being downloaded, until they are complete.
+     */
+    private static final String DOWNLOAD_SUFFIX = ".download";
+
     protected final BaseRestoreOperationRequest request;
     private final ExecutorServiceSupplier executorServiceSupplier;
 
@@ -49,54 +85,416 @@ public abstract class Restorer extends StorageInteractor {
 
     public abstract void downloadFile(final Path localPath, final RemoteObjectReference objectReference) throws Exception;
 
+    /**
+     * @return size of the remote object in bytes
+     * @throws java.nio.file.NoSuchFileException if the remote object does not exist
+     */
+    public abstract long getRemoteObjectSize(final RemoteObjectReference objectReference) throws Exception;
+
+    /**
+     * Opens a stream of the whole remote object.
+     */
+    public abstract InputStream openRemoteObject(final RemoteObjectReference objectReference) throws Exception;
+
+    /**
+     * Opens a stream of {@code length} bytes of the remote object, starting at {@code offset}.
+     */
+    public abstract InputStream openRemoteObjectRange(final RemoteObjectReference objectReference, final long offset, final long length) throws Exception;
+
     public abstract void consumeFiles(final RemoteObjectReference prefix, final Consumer<RemoteObjectReference> consumer) throws Exception;
 
+    /**
+     * Lists the prefix one level deep, as a directory: objects directly under it are passed to {@code consumer}, and
+     * keys of its sub-prefixes, up to the next "/", to {@code subPrefixConsumer}.
+     */
+    public abstract void consumeDirectory(final RemoteObjectReference prefix,
+                                          final Consumer<RemoteObjectReference> consumer,
+                                          final Consumer<Path> subPrefixConsumer) throws Exception;
+
+    /**
+     * Lists all objects under the prefixes concurrently, over the concurrent connections. Every prefix is listed a
+     * directory at a time by {@link #consumeDirectory}, and its sub-prefixes are queued to be listed in turn, so a large
+     * inventory is listed by many requests in parallel rather than by paging through a single listing.
+     * <p>
+     * Objects are passed to the consumer as they are listed, by one thread at a time, and never collected.
+     *
+     * @param prefixes keys of prefixes to list
+     * @param consumer consumer of listed objects
+     * @throws Exception if any listing failed
+     */
+    public void consumeFilesConcurrently(final Collection<Path> prefixes, final Consumer<RemoteObjectReference> consumer) throws Exception {
+        final DownloadTasks listingTasks = new DownloadTasks(executorServiceSupplier.get(request.concurrentConnections), "list prefix");
+
+        final Consumer<RemoteObjectReference> serialConsumer = object -> {
+            synchronized (consumer) {
+                consumer.accept(object);
+            }
+        };
+
+        try {
+            for (final Path prefix : prefixes) {
+                submitListing(prefix, listingTasks, serialConsumer);
+            }
+        } finally {
+            listingTasks.awaitCompletion();
+        }
+    }
+
+    private void submitListing(final Path prefix, final DownloadTasks listingTasks, final Consumer<RemoteObjectReference> consumer) {
+        listingTasks.submit(prefix, () -> {
+            if (!listingTasks.hasFailed()) {
+                consumeDirectory(objectKeyToRemoteReference(prefix), consumer, subPrefix -> submitListing(subPrefix, listingTasks, consumer));
+            }
+        });
+    }
+
+    /**
+     * Downloads files of the manifest concurrently. When a download part size is set, files larger than it are
+     * downloaded in parts by ranged reads, written positionally into the local file. Compressed files are decompressed
+     * as they are downloaded, and never in parts. Parts are queued
+     * to the same executor as whole files, so they share the concurrent connections.
+     * <p>
+     * Files are started in the order of the manifest. Only a few more files than there are concurrent connections are
+     * queued at a time, so parts of a large file are not queued behind all the remaining files.
+     * <p>
+     * Files with a checksum in their manifest entry are verified as they are written, by the CRC32 of the downloaded
+     * (and decompressed) bytes, or of every part combined, so verification needs no second read of the file. A file
+     * whose checksum does not match is downloaded again, up to {@value #MAX_DOWNLOAD_ATTEMPTS} times in all.
+     *
+     * @param manifest files to download
+     * @throws Exception if any download failed
+     */
     public void downloadFiles(final Collection<ManifestEntry> manifest) throws Exception {
+        downloadFiles(manifest, entry -> {});
+    }
+
+    /**
+     * As {@link #downloadFiles(Collection)}, notifying {@code downloadedFileConsumer} of every file once it is completely
+     * downloaded and its checksum, if any, verified. Files are downloaded under a temporary name and renamed once complete,
+     * so a file under its final name is never a partially downloaded one.
+     *
+     * @param manifest               files to download
+     * @param downloadedFileConsumer consumer of downloaded files, called from download threads
+     * @throws Exception if any download failed
+     */
+    public void downloadFiles(final Collection<ManifestEntry> manifest,
+                              final Consumer<ManifestEntry> downloadedFileConsumer) throws Exception {
         logger.info("{} files to download.", manifest.size());
 
-        final CountDownLatch completionLatch = new CountDownLatch(manifest.size());
+        final DownloadTasks downloadTasks = new DownloadTasks(executorServiceSupplier.get(request.concurrentConnections), "download file");
+        final AtomicInteger filesToGo = new AtomicInteger(manifest.size());
+        final Semaphore queuedFiles = new Semaphore(request.concurrentConnections * 2);
 
-        final ExecutorService executorService = executorServiceSupplier.get(request.concurrentConnections);
+        try {
+            for (final ManifestEntry entry : manifest) {
+                if (downloadTasks.hasFailed()) {
+                    break;
+                }
 
-        final Iterable<Future<?>> downloadResults = manifest.stream().map((entry) -> {
-            try {
-                return executorService.submit(() -> {
-                    RemoteObjectReference remoteObjectReference = objectKeyToRemoteReference(entry.objectKey);
+                queuedFiles.acquire();
+
+                downloadTasks.submit(entry.storageKey, () -> {
                     try {
-                        logger.debug("Downloading file \"{}\" to \"{}\". {} files to go.", remoteObjectReference.getObjectKey(), entry.localFile, completionLatch.getCount());
+                        if (!downloadTasks.hasFailed()) {
+                            downloadEntry(entry, downloadTasks, filesToGo, downloadedFileConsumer, 1);
+                        }
+                    } finally {
+                        queuedFiles.release();
+                    }
+                });
+            }
+        } finally {
+            downloadTasks.awaitCompletion();
+        }
+    }
 
-                        this.downloadFile(entry.localFile, remoteObjectReference);
+    /**
+     * Downloads the manifest of the snapshot and, following its {@link Manifest#getParentTag()}, manifests of all
+     * backups it builds upon.
+     *
+     * @param snapshotTag snapshot whose manifest to download
+     * @param directory   directory to download manifests to, under manifests/
+     * @return all downloaded manifests, the one of the snapshot first
+     */
+    public List<Manifest> downloadManifestChain(final String snapshotTag, final Path directory) throws Exception {
+        final List<Manifest> manifests = new ArrayList<>();
+        final Set<String> visitedTags = new HashSet<>();
 
-                        logger.info("Successfully downloaded file \"{}\" to \"{}\".", remoteObjectReference.getObjectKey(), entry.localFile);
+        String tag = snapshotTag;
 
-                        return null;
-                    } catch (final Throwable t) {
-                        logger.error("Failed to download file \"{}\".", remoteObjectReference.getObjectKey(), t);
+        while (tag != null) {
+            if (!visitedTags.add(tag)) {
+                throw new IllegalStateException(String.format("Manifest of snapshot %s refers to itself through its parents.", tag));
+            }
+
+            logger.info("Retrieving manifest for snapshot: {}", tag);
+            final Path sourceManifest = Paths.get("manifests/" + tag);
+            final Path localManifest = directory.resolve(sourceManifest);
+
+            Files.deleteIfExists(localManifest); // left behind by a failed restore, which is resumed
+            downloadFile(localManifest, objectKeyToRemoteReference(sourceManifest));
+
+            final Manifest manifest = Manifest.read(localManifest);
+            manifests.add(manifest);
+
+            tag = manifest.getParentTag();
+        }
+
+        return manifests;
+    }
+
+    private void downloadEntry(final ManifestEntry entry,
+                               final DownloadTasks downloadTasks,
+                               final AtomicInteger filesToGo,
+                               final Consumer<ManifestEntry> downloadedFileConsumer,
+                               final int attempt) throws Exception {
+        final RemoteObjectReference remoteObjectReference = objectKeyToRemoteReference(entry.storageKey);
+
+        logger.debug("Downloading file \"{}\" to \"{}\". {} files to go.", remoteObjectReference.getObjectKey(), entry.localFile, filesToGo.get());
+
+        if (request.downloadPartSize != null && entry.codec == CompressionCodec.NONE) {
+            final long partSize = request.downloadPartSize * 1024L * 1024L;
+            // an uncompressed object is as large as its file, so it is split by the size of the manifest rather than
+            // by a metadata request, parts of an object of another size fail their length check
+            if (entry.size > partSize) {
+                downloadParts(entry, remoteObjectReference, entry.size, partSize, downloadTasks, filesToGo, downloadedFileConsumer, attempt);
+                return;
+            }
+        }
+
+        final Path downloadFile = resolveDownloadFile(entry.localFile);
+        Files.deleteIfExists(downloadFile); // left behind by an interrupted restore
+
+        if (entry.codec == CompressionCodec.NONE && entry.getChecksum() == ManifestEntry.NO_CHECKSUM) {
+            this.downloadFile(downloadFile, remoteObjectReference);
+        } else {
+            Files.createDirectories(downloadFile.getParent());
+
+            final long checksum;
+
+            try (final ChecksummingInputStream stream = new ChecksummingInputStream(entry.codec.decompress(openRemoteObject(remoteObjectReference)))) {
+                Files.copy(stream, downloadFile);
+                checksum = stream.getChecksum();
+            }
+
+            if (!verifyChecksum(entry, checksum, remoteObjectReference, attempt)) {
+                Files.deleteIfExists(downloadFile);
+                downloadEntry(entry, downloadTasks, filesToGo, downloadedFileConsumer, attempt + 1);
+                return;
+            }
+        }
+
+        completeDownload(entry, downloadFile, remoteObjectReference, filesToGo, downloadedFileConsumer);
+    }
+
+    private static Path resolveDownloadFile(final Path localFile) {
+        return localFile.resolveSibling(localFile.getFileName() + DOWNLOAD_SUFFIX);
+    }
+
+    /**
+     * @return true if the checksum of the downloaded file matches the one of its manifest entry, or there is none,
+     * false if the file should be downloaded again
+     * @throws IOException if it does not match and there are no attempts left
+     */
+    private boolean verifyChecksum(final ManifestEntry entry,
+                                   final long checksum,
+                                   final RemoteObjectReference remoteObjectReference,
+                                   final int attempt) throws IOException {
+        if (entry.getChecksum() == ManifestEntry.NO_CHECKSUM || entry.getChecksum() == checksum) {
+            return true;
+        }
+
+        if (attempt >= MAX_DOWNLOAD_ATTEMPTS) {
+            throw new IOException(String.format("Checksum of downloaded file \"%s\" is %08x, expected %08x, after %d attempts.",
+                                                remoteObjectReference.getObjectKey(), checksum, entry.getChecksum(), attempt));
+        }
+
+        logger.warn("Checksum of downloaded file \"{}\" is {}, expected {}. Downloading it again, attempt {} of {}.",
+                    remoteObjectReference.getObjectKey(), String.format("%08x", checksum), String.format("%08x", entry.getChecksum()),
+                    attempt + 1, MAX_DOWNLOAD_ATTEMPTS);
+
+        return false;
+    }
+
+    private void completeDownload(final ManifestEntry entry,
+                                  final Path downloadFile,
+                                  final RemoteObjectReference remoteObjectReference,
+                                  final AtomicInteger filesToGo,
+                                  final Consumer<ManifestEntry> downloadedFileConsumer) throws IOException {
+        Files.move(downloadFile, entry.localFile, REPLACE_EXISTING, ATOMIC_MOVE);
+
+        filesToGo.decrementAndGet();
+        logger.info("Successfully downloaded file \"{}\" to \"{}\".", remoteObjectReference.getObjectKey(), entry.localFile);
+
+        downloadedFileConsumer.accept(entry);
+    }
+
+    private void downloadParts(final ManifestEntry entry,
+                               final RemoteObjectReference remoteObjectReference,
+                               final long size,
+                               final long partSize,
+                               final DownloadTasks downloadTasks,
+                               final AtomicInteger filesToGo,
+                               final Consumer<ManifestEntry> downloadedFileConsumer,
+                               final int attempt) throws Exception {
+        Files.createDirectories(entry.localFile.getParent());
+
+        final Path downloadFile = resolveDownloadFile(entry.localFile);
+        final FileChannel fileChannel = FileChannel.open(downloadFile, CREATE, WRITE, TRUNCATE_EXISTING);
+
+        // pre-allocate the file so parts can be written at their positions in any order
+        fileChannel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+
+        final int parts = toIntExact((size + partSize - 1) / partSize);
+        final AtomicInteger partsToGo = new AtomicInteger(parts);
+        // written by part tasks, read by the last one, after partsToGo orders them
+        final long[] partChecksums = new long[parts];
+        // set before partsToGo is decremented, as a failure is recorded in downloadTasks only once the task returned
+        final AtomicBoolean partFailed = new AtomicBoolean();
+
+        logger.debug("Downloading file \"{}\" in {} parts.", remoteObjectReference.getObjectKey(), parts);
+
+        for (int part = 0; part < parts; part++) {
+            final int partIndex = part;
+            final long offset = part * partSize;
+            final long length = Math.min(partSize, size - offset);
+
+            downloadTasks.submit(remoteObjectReference.getObjectKey(), () -> {
+                try {
+                    if (downloadTasks.hasFailed()) {
+                        partFailed.set(true);
+                    } else {
+                        partChecksums[partIndex] = downloadPart(fileChannel, remoteObjectReference, offset, length);
+                    }
+                } catch (final Throwable t) {
+                    partFailed.set(true);
+                    throw t;
+                } finally {
+                    if (partsToGo.decrementAndGet() == 0) {
+                        fileChannel.close();
+
+                        if (partFailed.get()) {
+                            Files.deleteIfExists(downloadFile);
+                        } else {
+                            long checksum = partChecksums[0];
+
+                            for (int i = 1; i < parts; i++) {
+                                checksum = Checksums.combineCrc32(checksum, partChecksums[i], Math.min(partSize, size - i * partSize));
+                            }
+
+                            if (verifyChecksum(entry, checksum, remoteObjectReference, attempt)) {
+                                completeDownload(entry, downloadFile, remoteObjectReference, filesToGo, downloadedFileConsumer);
+                            } else {
+                                Files.deleteIfExists(downloadFile);
+                                downloadEntry(entry, downloadTasks, filesToGo, downloadedFileConsumer, attempt + 1);
+                            }
+                        }
+                    }
+                }
+            });
+        }
+    }
 
-                        executorService.shutdownNow(); // prevent new tasks or other tasks from running
+    /**
+     * @return CRC32 of the part
+     */
+    private long downloadPart(final FileChannel fileChannel,
+                              final RemoteObjectReference remoteObjectReference,
+                              final long offset,
+                              final long length) throws Exception {
+        try (final ReadableByteChannel partChannel = Channels.newChannel(openRemoteObjectRange(remoteObjectReference, offset, length))) {
+            final ByteBuffer buffer = ByteBuffer.allocate(PART_BUFFER_SIZE);
+            final CRC32 checksum = new CRC32();
+            long position = offset;
 
-                        throw t;
+            while (partChannel.read(buffer) != -1) {
+                buffer.flip();
+                checksum.update(buffer.array(), 0, buffer.limit());
 
+                while (buffer.hasRemaining()) {
+                    position += fileChannel.write(buffer, position);
+                }
+
+                buffer.clear();
+            }
+
+            if (position != offset + length) {
+                throw new IOException(String.format("Part of \"%s\" at offset %d is %d bytes long, expected %d bytes.",
+                                                    remoteObjectReference.getObjectKey(), offset, position - offset, length));
+            }
+
+            return checksum.getValue();
+        }
+    }
+
+    /**
+     * Tasks of a download or a listing, whose number is not known up-front as tasks may submit further tasks (e.g. parts
+     * of a file, or sub-prefixes of a prefix). The first failure stops tasks which have not started yet and is rethrown once all tasks are done.
+     */
+    private static class DownloadTasks {
+        private final ExecutorService executorService;
+        private final String taskName;
+        private final AtomicInteger pendingTasks = new AtomicInteger(1); // held by the submitting thread until awaitCompletion
+        private final CountDownLatch completionLatch = new CountDownLatch(1);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        DownloadTasks(final ExecutorService executorService, final String taskName) {
+            this.executorService = executorService;
+            this.taskName = taskName;
+        }
+
+        interface Task {
+            void run() throws Exception;
+        }
+
+        void submit(final Path objectKey, final Task task) {
+            pendingTasks.incrementAndGet();
+
+            try {
+                executorService.execute(() -> {
+                    try {
+                        task.run();
+                    } catch (final Throwable t) {
+                        logger.error("Failed to {} \"{}\".", taskName, objectKey, t);
+                        failure.compareAndSet(null, t);
                     } finally {
-                        completionLatch.countDown();
+                        taskDone();
                     }
                 });
             } catch (final RejectedExecutionException e) {
-                return Futures.immediateFailedFuture(e);
+                failure.compareAndSet(null, e);
+                taskDone();
             }
-        }).collect(toList());
+        }
 
-        // wait for uploads to finish
-        executorService.shutdown();
+        boolean hasFailed() {
+            return failure.get() != null;
+        }
 
-        while (true) {
-            if (executorService.awaitTermination(1, MINUTES))
-                break;
+        private void taskDone() {
+            if (pendingTasks.decrementAndGet() == 0) {
+                completionLatch.countDown();
+            }
         }
 
-        // rethrow any exception caused by a download task so we exit with failure
-        for (final Future<?> result : downloadResults) {
-            result.get();
+        void awaitCompletion() throws Exception {
+            taskDone();
+
+            try {
+                completionLatch.await();
+            } finally {
+                executorService.shutdown();
+
+                while (true) {
+                    if (executorService.awaitTermination(1, MINUTES))
+                        break;
+                }
+            }
+
+            // rethrow any exception caused by a download task so we exit with failure
+            if (failure.get() != null) {
+                throw new ExecutionException(failure.get());
+            }
         }
     }
 }
@@ -0,0 +1,243 @@
+package com.instaclustr.cassandra.backup.impl.verify;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.io.ByteStreams;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+import com.instaclustr.cassandra.backup.guice.RestorerFactory;
+import com.instaclustr.cassandra.backup.impl.CompressionCodec;
+import com.instaclustr.cassandra.backup.impl.Manifest;
+import com.instaclustr.cassandra.backup.impl.ManifestEntry;
+import com.instaclustr.cassandra.backup.impl.RemoteObjectReference;
+import com.instaclustr.cassandra.backup.impl.SSTableUtils;
+import com.instaclustr.cassandra.backup.impl.restore.Restorer;
+import com.instaclustr.io.ChecksummingInputStream;
+import com.instaclustr.operations.Operation;
+import com.instaclustr.operations.OperationFailureException;
+import com.instaclustr.threading.Executors.ExecutorServiceSupplier;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Verifies a backup is restorable without restoring it: every object referenced by the manifest of the snapshot, and
+ * of the backups it builds upon, is checked to exist and to be of the expected size by a metadata request. A sample of
+ * objects is read in ranges of {@value #RANGE_SIZE} bytes, and verified by their decompressed size and checksum. Data.db
+ * files without a checksum in the manifest are verified by the CRC32 of their Digest.crc32 component, if backed up, other
+ * uncompressed objects without one only by reading a range of them.
+ * <p>
+ * Missing and corrupt objects are reported by their storage keys, and fail the operation. Failed requests are retried up
+ * to {@value #MAX_ATTEMPTS} times in all; a metadata request failing for any other reason than a missing object fails the
+ * operation, an object which exists but can not be read is reported as corrupt.
+ */
+public class VerifyBackupOperation extends Operation<VerifyBackupOperationRequest> {
+    private static final Logger logger = LoggerFactory.getLogger(VerifyBackupOperation.class);
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_PERIOD_MILLIS = 1000;
+
+    private static final long RANGE_SIZE = 8 * 1024 * 1024;
+    // read of sampled objects with nothing to verify their content against
+    private static final long UNVERIFIED_SAMPLE_SIZE = 1024 * 1024;
+
+    private final Map<String, RestorerFactory> restorerFactoryMap;
+    private final ExecutorServiceSupplier executorServiceSupplier;
+
+    public final Set<String> missingObjects = ConcurrentHashMap.newKeySet();
+    public final Set<String> corruptObjects = ConcurrentHashMap.newKeySet();
+
+    @Inject
+    public VerifyBackupOperation(final Map<String, RestorerFactory> restorerFactoryMap,
+                                 final ExecutorServiceSupplier executorServiceSupplier,
+                                 @Assisted final VerifyBackupOperationRequest request) {
+        super(request);
+        this.restorerFactoryMap = restorerFactoryMap;
+        this.executorServiceSupplier = executorServiceSupplier;
+    }
+
+    @Override
+    protected void run0() throws Exception {
+        try (final Restorer restorer = restorerFactoryMap.get(request.storageLocation.storageProvider).createVerifyBackupRestorer(request)) {
+            verify(restorer);
+        }
+
+        if (!missingObjects.isEmpty() || !corruptObjects.isEmpty()) {
+            throw new OperationFailureException(String.format("Backup %s has %d missing and %d corrupt objects.",
+                                                              request.snapshotTag, missingObjects.size(), corruptObjects.size()));
+        }
+    }
+
+    private void verify(final Restorer restorer) throws Exception {
+        final Path manifestDirectory = Files.createTempDirectory("verify-backup");
+
+        // keyed by storage key, as an object may be referenced by more than one manifest of a chain
+        final Map<Path, ManifestEntry> entries = new LinkedHashMap<>();
+        final Set<Path> objectKeys = new HashSet<>();
+
+        try {
+            for (final Manifest manifest : restorer.downloadManifestChain(request.snapshotTag, manifestDirectory)) {
+                manifest.entries().forEach(entry -> {
+                    entries.putIfAbsent(entry.storageKey, entry);
+                    objectKeys.add(entry.objectKey);
+                });
+            }
+        } finally {
+            FileUtils.deleteDirectory(manifestDirectory.toFile());
+        }
+
+        for (final ManifestEntry entry : entries.values()) {
+            if (entry.getChecksum() == ManifestEntry.NO_CHECKSUM) {
+                SSTableUtils.dataCrc32(entry.objectKey, objectKeys).ifPresent(entry::setChecksum);
+            }
+        }
+
+        logger.info("Verifying {} objects of backup {}.", entries.size(), request.snapshotTag);
+
+        final ExecutorService executorService = executorServiceSupplier.get(request.concurrentConnections);
+        final AtomicInteger verifiedObjects = new AtomicInteger();
+        final List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (final ManifestEntry entry : entries.values()) {
+                futures.add(executorService.submit(() -> {
+                    verifyObject(restorer, entry);
+                    progress = (float) verifiedObjects.incrementAndGet() / entries.size();
+                    return null;
+                }));
+            }
+
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        logger.info("Verified {} objects of backup {}, {} missing, {} corrupt.", entries.size(), request.snapshotTag, missingObjects.size(), corruptObjects.size());
+    }
+
+    private void verifyObject(final Restorer restorer, final ManifestEntry entry) throws Exception {
+        final RemoteObjectReference remoteObjectReference = restorer.objectKeyToRemoteReference(entry.storageKey);
+        final long size;
+
+        try {
+            size = withRetries(entry, () -> restorer.getRemoteObjectSize(remoteObjectReference));
+        } catch (final NoSuchFileException e) {
+            logger.error("Object \"{}\" is missing.", entry.storageKey);
+            missingObjects.add(entry.storageKey.toString());
+            return;
+        }
+
+        // the manifest has the size of compressed objects before compression
+        if (entry.codec == CompressionCodec.NONE && size != entry.size) {
+            logger.error("Object \"{}\" is {} bytes long, expected {} bytes.", entry.storageKey, size, entry.size);
+            corruptObjects.add(entry.storageKey.toString());
+            return;
+        }
+
+        if (size == 0 || ThreadLocalRandom.current().nextInt(100) >= request.checksumSample) {
+            return;
+        }
+
+        try {
+            if (entry.codec == CompressionCodec.NONE && entry.getChecksum() == ManifestEntry.NO_CHECKSUM) {
+                final long length = Math.min(size, UNVERIFIED_SAMPLE_SIZE);
+                final long offset = ThreadLocalRandom.current().nextLong(size - length + 1);
+
+                final long read = withRetries(entry, () -> {
+                    try (final InputStream stream = restorer.openRemoteObjectRange(remoteObjectReference, offset, length)) {
+                        return ByteStreams.exhaust(stream);
+                    }
+                });
+
+                if (read != length) {
+                    logger.error("Object \"{}\" has {} bytes at offset {}, expected {} bytes.", entry.storageKey, read, offset, length);
+                    corruptObjects.add(entry.storageKey.toString());
+                }
+
+                return;
+            }
+
+            final long[] lengthAndChecksum = withRetries(entry, () -> {
+                try (final ChecksummingInputStream stream = new ChecksummingInputStream(entry.codec.decompress(openInRanges(restorer, remoteObjectReference, size)))) {
+                    return new long[]{ByteStreams.exhaust(stream), stream.getChecksum()};
+                }
+            });
+
+            if (lengthAndChecksum[0] != entry.size || (entry.getChecksum() != ManifestEntry.NO_CHECKSUM && lengthAndChecksum[1] != entry.getChecksum())) {
+                logger.error("Object \"{}\" is {} bytes long with checksum {}, expected {} bytes with checksum {}.",
+                             entry.storageKey, lengthAndChecksum[0], String.format("%08x", lengthAndChecksum[1]), entry.size, String.format("%08x", entry.getChecksum()));
+                corruptObjects.add(entry.storageKey.toString());
+            }
+        } catch (final Exception e) {
+            logger.error("Object \"{}\" could not be read: {}", entry.storageKey, e.getMessage());
+            corruptObjects.add(entry.storageKey.toString());
+        }
+    }
+
+    /**
+     * @return result of the request, retried on any failure but a missing object
+     */
+    private static <T> T withRetries(final ManifestEntry entry, final Callable<T> request) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return request.call();
+            } catch (final NoSuchFileException e) {
+                throw e;
+            } catch (final Exception e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw new IOException(String.format("Failed to verify object \"%s\" after %d attempts.", entry.storageKey, attempt), e);
+                }
+
+                logger.warn("Failed to verify object \"{}\", retrying: {}", entry.storageKey, e.getMessage());
+                Thread.sleep(RETRY_PERIOD_MILLIS * attempt);
+            }
+        }
+    }
+
+    /**
+     * @return stream of the whole object, each range of it requested once the previous one is read
+     */
+    private static InputStream openInRanges(final Restorer restorer, final RemoteObjectReference remoteObjectReference, final long size) {
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+            private long offset;
+
+            @Override
+            public boolean hasMoreElements() {
+                return offset < size;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                final long length = Math.min(RANGE_SIZE, size - offset);
+
+                try {
+                    final InputStream range = restorer.openRemoteObjectRange(remoteObjectReference, offset, length);
+                    offset += length;
+                    return range;
+                } catch (final Exception e) {
+                    throw new IllegalStateException(String.format("Failed to read %d bytes of %s at offset %d.", length, remoteObjectReference.canonicalPath, offset), e);
+                }
+            }
+        });
+    }
+}
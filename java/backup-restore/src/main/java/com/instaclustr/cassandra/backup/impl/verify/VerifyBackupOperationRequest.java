@@ -0,0 +1,53 @@
+package com.instaclustr.cassandra.backup.impl.verify;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.MoreObjects;
+import com.instaclustr.cassandra.backup.impl.StorageLocation;
+import com.instaclustr.cassandra.backup.impl.restore.BaseRestoreOperationRequest;
+import picocli.CommandLine.Option;
+
+public class VerifyBackupOperationRequest extends BaseRestoreOperationRequest {
+
+    @Option(names = {"-s", "--st", "--snapshot-tag"},
+            description = "Snapshot to verify, together with the backups it builds upon.",
+            required = true)
+    @NotBlank
+    public String snapshotTag;
+
+    @Option(names = {"--checksum-sample"},
+            description = "Percentage of files to read in full, verifying their size after decompression and their checksum, " +
+                    "if the manifest has one. Other files are only checked to exist and, unless compressed, to be of the size in the manifest. Default is 0.",
+            defaultValue = "0")
+    @Min(0)
+    @Max(100)
+    public int checksumSample;
+
+    public VerifyBackupOperationRequest() {
+        // for picocli
+    }
+
+    @JsonCreator
+    public VerifyBackupOperationRequest(@JsonProperty("storageLocation") final StorageLocation storageLocation,
+                                        @JsonProperty("concurrentConnections") final Integer concurrentConnections,
+                                        @JsonProperty("snapshotTag") final String snapshotTag,
+                                        @JsonProperty("checksumSample") final int checksumSample) {
+        super(storageLocation, concurrentConnections == null ? 10 : concurrentConnections, false, null);
+        this.snapshotTag = snapshotTag;
+        this.checksumSample = checksumSample;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                          .add("storageLocation", storageLocation)
+                          .add("concurrentConnections", concurrentConnections)
+                          .add("snapshotTag", snapshotTag)
+                          .add("checksumSample", checksumSample)
+                          .toString();
+    }
+}
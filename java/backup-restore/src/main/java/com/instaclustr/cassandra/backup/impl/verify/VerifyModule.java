@@ -0,0 +1,15 @@
+package com.instaclustr.cassandra.backup.impl.verify;
+
+import static com.instaclustr.operations.OperationBindings.installOperationBindings;
+
+import com.google.inject.AbstractModule;
+
+public class VerifyModule extends AbstractModule {
+    @Override
+    protected void configure() {
+        installOperationBindings(binder(),
+                                 "verify-backup",
+                                 VerifyBackupOperationRequest.class,
+                                 VerifyBackupOperation.class);
+    }
+}
@@ -1,22 +1,35 @@
 package com.instaclustr.cassandra.backup.local;
 
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
+import com.instaclustr.cassandra.backup.impl.CompressionCodec;
+import com.instaclustr.cassandra.backup.impl.ManifestEntry;
 import com.instaclustr.cassandra.backup.impl.OperationProgressTracker;
 import com.instaclustr.cassandra.backup.impl.RemoteObjectReference;
 import com.instaclustr.cassandra.backup.impl.backup.BackupCommitLogsOperationRequest;
 import com.instaclustr.cassandra.backup.impl.backup.BackupOperationRequest;
 import com.instaclustr.cassandra.backup.impl.backup.Backuper;
+import com.instaclustr.io.FileChannelTransfers;
 import com.instaclustr.threading.Executors;
 import com.instaclustr.threading.Executors.ExecutorServiceSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class LocalFileBackuper extends Backuper {
+    private static final Logger logger = LoggerFactory.getLogger(LocalFileBackuper.class);
 
     @AssistedInject
     public LocalFileBackuper(final ExecutorServiceSupplier executorServiceSupplier,
@@ -51,6 +64,26 @@ public class LocalFileBackuper extends Backuper {
         return FreshenResult.UPLOAD_REQUIRED;
     }
 
+    /**
+     * An object hard linked to the local file is left untouched, as setting its modification time would set the one of
+     * the local file, e.g. of a live SSTable, as well.
+     */
+    @Override
+    protected FreshenResult freshenRemoteObject(final ManifestEntry manifestEntry, final RemoteObjectReference object) throws Exception {
+        final Path fullRemoteObject = resolveFullRemoteObjectPath(object);
+
+        if (Files.exists(fullRemoteObject) && Files.isSameFile(fullRemoteObject, manifestEntry.localFile)) {
+            return FreshenResult.FRESHENED;
+        }
+
+        return freshenRemoteObject(object);
+    }
+
+    @Override
+    public InputStream openRemoteObject(final RemoteObjectReference object) throws Exception {
+        return Files.newInputStream(resolveFullRemoteObjectPath(object));
+    }
+
     @Override
     public void uploadFile(final long size,
                            final InputStream localFileStream,
@@ -65,6 +98,51 @@ public class LocalFileBackuper extends Backuper {
         }
     }
 
+    /**
+     * Hard links the file into the storage location if requested, otherwise transfers it by {@link FileChannel#transferTo},
+     * so its bytes are not copied through the heap. Compressed files are streamed, as they are compressed on the way.
+     */
+    @Override
+    protected void uploadLocalFile(final ManifestEntry manifestEntry,
+                                   final RemoteObjectReference object,
+                                   final OperationProgressTracker operationProgressTracker) throws Exception {
+        if (manifestEntry.codec != CompressionCodec.NONE) {
+            super.uploadLocalFile(manifestEntry, object, operationProgressTracker);
+            return;
+        }
+
+        try {
+            final Path snapshotPath = resolveFullRemoteObjectPath(object);
+            Files.createDirectories(snapshotPath.getParent());
+
+            if (request.hardLinks && link(manifestEntry.localFile, snapshotPath)) {
+                return;
+            }
+
+            try (final FileChannel source = FileChannel.open(manifestEntry.localFile, READ);
+                 final FileChannel target = FileChannel.open(snapshotPath, CREATE, WRITE, TRUNCATE_EXISTING)) {
+                FileChannelTransfers.transfer(source, target, getRateLimiters());
+            }
+        } finally {
+            operationProgressTracker.update();
+        }
+    }
+
+    /**
+     * @return false if the file could not be linked, e.g. because the storage location is on another filesystem
+     */
+    private boolean link(final Path localFile, final Path snapshotPath) throws IOException {
+        Files.deleteIfExists(snapshotPath);
+
+        try {
+            Files.createLink(snapshotPath, localFile);
+            return true;
+        } catch (final IOException | UnsupportedOperationException e) {
+            logger.debug("Failed to hard link \"{}\" to \"{}\", copying it instead.", localFile, snapshotPath, e);
+            return false;
+        }
+    }
+
     @Override
     public void cleanup() throws Exception {
         //No clean up required
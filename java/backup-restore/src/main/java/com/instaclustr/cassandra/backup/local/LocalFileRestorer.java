@@ -1,19 +1,30 @@
 package com.instaclustr.cassandra.backup.local;
 
-import static java.util.stream.Collectors.toList;
-
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import com.google.common.io.ByteStreams;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import com.instaclustr.cassandra.backup.impl.RemoteObjectReference;
 import com.instaclustr.cassandra.backup.impl.restore.RestoreCommitLogsOperationRequest;
 import com.instaclustr.cassandra.backup.impl.restore.RestoreOperationRequest;
 import com.instaclustr.cassandra.backup.impl.restore.Restorer;
+import com.instaclustr.cassandra.backup.impl.verify.VerifyBackupOperationRequest;
+import com.instaclustr.io.FileChannelTransfers;
 import com.instaclustr.threading.Executors.ExecutorServiceSupplier;
 
 public class LocalFileRestorer extends Restorer {
@@ -30,21 +41,52 @@ public class LocalFileRestorer extends Restorer {
         super(request, executorServiceSupplier);
     }
 
+    @AssistedInject
+    public LocalFileRestorer(final ExecutorServiceSupplier executorServiceSupplier,
+                             @Assisted final VerifyBackupOperationRequest request) {
+        super(request, executorServiceSupplier);
+    }
+
     @Override
     public RemoteObjectReference objectKeyToRemoteReference(final Path objectKey) throws Exception {
         return new LocalFileObjectReference(objectKey, resolveRemotePath(objectKey));
     }
 
-    @Override
-    public void downloadFile(final Path localFilePath, final RemoteObjectReference objectReference) throws Exception {
-        final Path remoteFilePath = request.storageLocation.fileBackupDirectory
+    private Path resolveFullRemoteObjectPath(final RemoteObjectReference objectReference) {
+        return request.storageLocation.fileBackupDirectory
                 .resolve(request.storageLocation.bucket)
                 .resolve(Paths.get(((LocalFileObjectReference) objectReference).canonicalPath));
+    }
+
+    @Override
+    public void downloadFile(final Path localFilePath, final RemoteObjectReference objectReference) throws Exception {
+        final Path remoteFilePath = resolveFullRemoteObjectPath(objectReference);
 
         //Assume that any path passed in to this function is a file
         Files.createDirectories(localFilePath.getParent());
 
-        Files.copy(remoteFilePath, localFilePath);
+        try (final FileChannel source = FileChannel.open(remoteFilePath, READ);
+             final FileChannel target = FileChannel.open(localFilePath, CREATE_NEW, WRITE)) {
+            FileChannelTransfers.transfer(source, target, Collections.emptyList());
+        }
+    }
+
+    @Override
+    public long getRemoteObjectSize(final RemoteObjectReference objectReference) throws Exception {
+        return Files.size(resolveFullRemoteObjectPath(objectReference));
+    }
+
+    @Override
+    public InputStream openRemoteObject(final RemoteObjectReference objectReference) throws Exception {
+        return Files.newInputStream(resolveFullRemoteObjectPath(objectReference));
+    }
+
+    @Override
+    public InputStream openRemoteObjectRange(final RemoteObjectReference objectReference, final long offset, final long length) throws Exception {
+        final FileChannel fileChannel = FileChannel.open(resolveFullRemoteObjectPath(objectReference));
+        fileChannel.position(offset);
+
+        return ByteStreams.limit(Channels.newInputStream(fileChannel), length);
     }
 
     @Override
@@ -56,12 +98,33 @@ public class LocalFileRestorer extends Restorer {
             return;
         }
 
-        final List<Path> pathsList = Files.walk(directoryToWalk)
-                .filter(filePath -> Files.isRegularFile(filePath))
-                .collect(toList());
+        // files are passed on as they are walked, rather than collected first
+        try (final Stream<Path> paths = Files.walk(directoryToWalk)) {
+            for (final Iterator<Path> files = paths.filter(Files::isRegularFile).iterator(); files.hasNext(); ) {
+                consumer.accept(objectKeyToRemoteReference(prefix.getObjectKey().resolve(directoryToWalk.relativize(files.next()))));
+            }
+        }
+    }
+
+    @Override
+    public void consumeDirectory(final RemoteObjectReference prefix,
+                                 final Consumer<RemoteObjectReference> consumer,
+                                 final Consumer<Path> subPrefixConsumer) throws Exception {
+
+        final Path directory = request.storageLocation.fileBackupDirectory.resolve(request.storageLocation.bucket).resolve(prefix.canonicalPath);
+
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
 
-        for (final Path path : pathsList) {
-            consumer.accept(objectKeyToRemoteReference(request.storageLocation.fileBackupDirectory.resolve(request.storageLocation.nodeId).relativize(path)));
+        try (final DirectoryStream<Path> paths = Files.newDirectoryStream(directory)) {
+            for (final Path path : paths) {
+                if (Files.isDirectory(path)) {
+                    subPrefixConsumer.accept(prefix.getObjectKey().resolve(path.getFileName()));
+                } else if (Files.isRegularFile(path)) {
+                    consumer.accept(objectKeyToRemoteReference(prefix.getObjectKey().resolve(path.getFileName())));
+                }
+            }
         }
     }
 
@@ -1,45 +1,82 @@
 package com.instaclustr.cassandra.backup;
 
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.CRC32;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
 import com.instaclustr.cassandra.backup.guice.BackuperFactory;
 import com.instaclustr.cassandra.backup.guice.RestorerFactory;
+import com.instaclustr.cassandra.backup.impl.CommitLogCatalogue;
+import com.instaclustr.cassandra.backup.impl.CompressionCodec;
+import com.instaclustr.cassandra.backup.impl.FingerprintCache;
+import com.instaclustr.cassandra.backup.impl.Manifest;
 import com.instaclustr.cassandra.backup.impl.ManifestEntry;
+import com.instaclustr.cassandra.backup.impl.ManifestFormat;
+import com.instaclustr.cassandra.backup.impl.RemoteObjectReference;
 import com.instaclustr.cassandra.backup.impl.SSTableUtils;
+import com.instaclustr.cassandra.backup.impl.StateFiles;
 import com.instaclustr.cassandra.backup.impl.StorageLocation;
+import com.instaclustr.cassandra.backup.impl.backup.BackupCommitLogsOperation;
 import com.instaclustr.cassandra.backup.impl.backup.BackupCommitLogsOperationRequest;
 import com.instaclustr.cassandra.backup.impl.backup.BackupOperation;
 import com.instaclustr.cassandra.backup.impl.backup.BackupOperationRequest;
 import com.instaclustr.cassandra.backup.impl.backup.Backuper;
+import com.instaclustr.cassandra.backup.impl.backup.CommitLogArchiverService;
+import com.instaclustr.cassandra.backup.impl.backup.IncrementalBackupOperation;
+import com.instaclustr.cassandra.backup.impl.backup.IncrementalBackupOperationRequest;
+import com.instaclustr.cassandra.backup.impl.restore.RestoreCommitLogsOperation;
 import com.instaclustr.cassandra.backup.impl.restore.RestoreCommitLogsOperationRequest;
 import com.instaclustr.cassandra.backup.impl.restore.RestoreOperation;
 import com.instaclustr.cassandra.backup.impl.restore.RestoreOperationRequest;
 import com.instaclustr.cassandra.backup.impl.restore.Restorer;
+import com.instaclustr.cassandra.backup.impl.verify.VerifyBackupOperation;
+import com.instaclustr.cassandra.backup.impl.verify.VerifyBackupOperationRequest;
 import com.instaclustr.cassandra.backup.local.LocalFileBackuper;
 import com.instaclustr.cassandra.backup.local.LocalFileRestorer;
+import com.instaclustr.operations.Operation;
 import com.instaclustr.threading.Executors.FixedTasksExecutor;
 import jmx.org.apache.cassandra.CassandraVersion;
+import org.apache.commons.io.FileUtils;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
@@ -106,21 +143,7 @@ public class BackupRestoreTest {
 //        restoreRequest.timestampStart = calendar.getTimeInMillis();
 //        restoreRequest.timestampEnd = System.currentTimeMillis();
 
-        new BackupOperation(null,
-                            new HashMap<String, BackuperFactory>() {{
-                                put("file", new BackuperFactory() {
-                                    @Override
-                                    public Backuper createBackuper(final BackupOperationRequest backupOperationRequest) {
-                                        return new LocalFileBackuper(new FixedTasksExecutor(), backupRequest);
-                                    }
-
-                                    @Override
-                                    public Backuper createCommitLogBackuper(final BackupCommitLogsOperationRequest backupCommitLogsOperationRequest) {
-                                        return null;
-                                    }
-                                });
-                            }},
-                            backupRequest).run();
+        new BackupOperation(null, null, localBackuperFactories(), new FixedTasksExecutor(), backupRequest).run();
 
         BackupRestoreTestUtils.clearDirs(backupRequest.sharedContainerPath, BackupRestoreTestUtils.cleanableDirs);
         BackupRestoreTestUtils.createConfigFiles(sharedContainerRoot.resolve(confDir));
@@ -134,19 +157,7 @@ public class BackupRestoreTest {
                     .forEach(Assert::assertFalse);
         });
 
-        new RestoreOperation(new HashMap<String, RestorerFactory>() {{
-            put("file", new RestorerFactory() {
-                @Override
-                public Restorer createRestorer(final RestoreOperationRequest restoreOperationRequest) {
-                    return new LocalFileRestorer(new FixedTasksExecutor(), restoreRequest);
-                }
-
-                @Override
-                public Restorer createCommitLogRestorer(final RestoreCommitLogsOperationRequest restoreCommitLogsOperationRequest) {
-                    return null;
-                }
-            });
-        }}, restoreRequest).run();
+        new RestoreOperation(localRestorerFactories(), restoreRequest).run();
 
         // Confirm manifest downloaded
         assertTrue(manifestFile.exists());
@@ -176,6 +187,423 @@ public class BackupRestoreTest {
         basicProviderBackupRestore(backupBucket);
     }
 
+    @Test(description = "Full backup to the content-addressed store and restore to an existing cluster", groups = {"basic"})
+    public void contentAddressedRestore() throws Exception {
+        hardResetTestDirs();
+        basicProviderBackupRestore(backupBucket + "-content-addressed", true, CompressionCodec.NONE, ManifestFormat.TEXT);
+    }
+
+    @Test(description = "Full backup hard linking files into a storage location on the same filesystem", groups = {"basic"})
+    public void hardLinkedBackup() throws Exception {
+        hardResetTestDirs();
+
+        for (TestFileConfig testFileConfig : versionsToTest) {
+            final Path sharedContainerRoot = tempDirs.get(testFileConfig.cassandraVersion.toString());
+            final Path backupPath = tempDirs.get(testFileConfig.cassandraVersion.toString() + "-backup-location");
+            final String bucket = backupBucket + "-hard-links";
+
+            final StorageLocation storageLocation = new StorageLocation(String.format("file://%s/%s/%s/%s", backupPath, bucket, clusterId, nodeId));
+
+            final BackupOperationRequest backupRequest = backupRequest(new BackupOperationRequest(), storageLocation, sharedContainerRoot, testSnapshotName);
+            backupRequest.hardLinks = true;
+
+            final BackupOperation backupOperation = new BackupOperation(null, null, localBackuperFactories(), new FixedTasksExecutor(), backupRequest);
+
+            backupOperation.run();
+
+            assertNull(backupOperation.failureCause);
+
+            try (final Stream<Path> backupFiles = Files.walk(backupPath.resolve(bucket))) {
+                final List<Path> dataFiles = backupFiles.filter(path -> path.toString().endsWith("-Data.db")).collect(Collectors.toList());
+
+                assertFalse(dataFiles.isEmpty());
+                assertTrue(dataFiles.stream().allMatch(BackupRestoreTest::isHardLinked));
+            }
+        }
+    }
+
+    @Test(description = "Files hard linked into the storage location, or freshened, have checksums in the manifest and keep their modification times", groups = {"basic"})
+    public void checksumsOfLinkedAndFreshenedFiles() throws Exception {
+        hardResetTestDirs();
+
+        final TestFileConfig testFileConfig = versionsToTest.get(0);
+        final Path sharedContainerRoot = tempDirs.get(testFileConfig.cassandraVersion.toString());
+        final Path backupPath = tempDirs.get(testFileConfig.cassandraVersion.toString() + "-backup-location");
+
+        final StorageLocation storageLocation = new StorageLocation(String.format("file://%s/%s/%s/%s", backupPath, backupBucket + "-checksums", clusterId, nodeId));
+
+        final BackupOperationRequest backupRequest = backupRequest(new BackupOperationRequest(), storageLocation, sharedContainerRoot, testSnapshotName);
+        backupRequest.hardLinks = true;
+        backupRequest.manifestFormat = ManifestFormat.BINARY;
+
+        final Map<Path, FileTime> modificationTimes = new HashMap<>();
+
+        // the first backup links every file, the second one freshens them
+        for (int i = 0; i < 2; i++) {
+            final BackupOperation backupOperation = new BackupOperation(null, null, localBackuperFactories(), new FixedTasksExecutor(), backupRequest);
+
+            backupOperation.run();
+
+            assertNull(backupOperation.failureCause);
+
+            final Manifest manifest = Manifest.read(sharedContainerRoot.resolve("tmp/cassandra-operator/manifests").resolve(testSnapshotName));
+
+            assertTrue(manifest.entries().anyMatch(entry -> entry.objectKey.toString().endsWith("-Data.db")));
+            // SSTables take their checksums from the fingerprint cache, other files freshened are not read again for one
+            assertTrue(manifest.entries().filter(entry -> entry.objectKey.startsWith("data"))
+                               .allMatch(entry -> entry.getChecksum() != ManifestEntry.NO_CHECKSUM));
+
+            // freshening objects linked to the SSTables leaves the modification times of the SSTables alone
+            try (final Stream<Path> files = Files.walk(sharedContainerRoot.resolve("data"))) {
+                for (final Path dataFile : files.filter(path -> path.toString().endsWith("-Data.db")).collect(Collectors.toList())) {
+                    final FileTime modificationTime = Files.getLastModifiedTime(dataFile);
+                    assertEquals(modificationTimes.computeIfAbsent(dataFile, file -> modificationTime), modificationTime);
+                }
+            }
+        }
+    }
+
+    @Test(description = "Backup manifest has every file of the snapshot of every table, and no file of other snapshots", groups = {"basic"})
+    public void manifestOfSnapshot() throws Exception {
+        hardResetTestDirs();
+
+        final TestFileConfig testFileConfig = versionsToTest.get(0);
+        final Path sharedContainerRoot = tempDirs.get(testFileConfig.cassandraVersion.toString());
+        final Path backupPath = tempDirs.get(testFileConfig.cassandraVersion.toString() + "-backup-location");
+
+        // a table with a snapshot of another tag only
+        BackupRestoreTestUtils.createSSTable(sharedContainerRoot.resolve("data"), "keyspace1", "table3", 1, testFileConfig, false, "otherSnapshot");
+
+        final StorageLocation storageLocation = new StorageLocation(String.format("file://%s/%s/%s/%s", backupPath, backupBucket + "-snapshot", clusterId, nodeId));
+
+        final BackupOperationRequest backupRequest = backupRequest(new BackupOperationRequest(), storageLocation, sharedContainerRoot, testSnapshotName);
+        backupRequest.manifestFormat = ManifestFormat.BINARY;
+
+        final BackupOperation backupOperation = new BackupOperation(null, null, localBackuperFactories(), new FixedTasksExecutor(), backupRequest);
+
+        backupOperation.run();
+
+        assertNull(backupOperation.failureCause);
+
+        final Manifest manifest = Manifest.read(sharedContainerRoot.resolve("tmp/cassandra-operator/manifests").resolve(testSnapshotName));
+
+        assertEquals(manifest.getTables(), ImmutableSet.of(Paths.get("data/keyspace1/table1"), Paths.get("data/keyspace1/table2"), Paths.get("tokens")));
+
+        try (final Stream<Path> files = Files.walk(sharedContainerRoot.resolve("data"))) {
+            final long snapshotFiles = files.filter(path -> path.getParent().endsWith(Paths.get("snapshots", testSnapshotName))).count();
+
+            assertEquals(manifest.getEntries(Paths.get("data/keyspace1/table1")).size() + manifest.getEntries(Paths.get("data/keyspace1/table2")).size(), snapshotFiles);
+        }
+    }
+
+    private static boolean isHardLinked(final Path path) {
+        try {
+            return (Integer) Files.getAttribute(path, "unix:nlink") > 1;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test(description = "Full backup with a binary manifest, compressed with GZIP, and restore to an existing cluster", groups = {"basic"})
+    public void binaryManifestRestore() throws Exception {
+        hardResetTestDirs();
+        basicProviderBackupRestore(backupBucket + "-binary-manifest", false, CompressionCodec.GZIP, ManifestFormat.BINARY);
+
+        final Path manifestPath = tempDirs.get(versionsToTest.get(0).cassandraVersion.toString()).resolve("manifests/" + testSnapshotName);
+        final Manifest manifest = Manifest.read(manifestPath);
+
+        assertEquals(Arrays.copyOf(Files.readAllBytes(manifestPath), Manifest.MAGIC.length), Manifest.MAGIC);
+        assertTrue(manifest.getTables().contains(Paths.get("data/keyspace1/table1")));
+        assertFalse(manifest.getEntries(Paths.get("data/keyspace1/table1")).isEmpty());
+        // files streamed through the compressor are checksummed on the way
+        assertTrue(manifest.entries().anyMatch(entry -> entry.codec == CompressionCodec.GZIP));
+        assertTrue(manifest.entries().filter(entry -> entry.codec == CompressionCodec.GZIP).allMatch(entry -> entry.getChecksum() != ManifestEntry.NO_CHECKSUM));
+    }
+
+    @Test(description = "Verification of a backup reports missing and corrupt objects", groups = {"basic"})
+    public void verifyBackup() throws Exception {
+        hardResetTestDirs();
+
+        final String bucket = backupBucket + "-verify";
+        basicProviderBackupRestore(bucket, false, CompressionCodec.GZIP, ManifestFormat.BINARY);
+
+        final Path backupPath = tempDirs.get(versionsToTest.get(0).cassandraVersion.toString() + "-backup-location");
+        final StorageLocation storageLocation = new StorageLocation(String.format("file://%s/%s/%s/%s", backupPath, bucket, clusterId, nodeId));
+        final VerifyBackupOperationRequest verifyRequest = new VerifyBackupOperationRequest(storageLocation, 2, testSnapshotName, 100);
+
+        final Map<String, RestorerFactory> restorerFactories = localRestorerFactories();
+
+        final VerifyBackupOperation verification = new VerifyBackupOperation(restorerFactories, new FixedTasksExecutor(), verifyRequest);
+        verification.run();
+
+        assertEquals(verification.state, Operation.State.COMPLETED);
+
+        final List<Path> objects;
+
+        try (final Stream<Path> files = Files.walk(backupPath.resolve(bucket).resolve(clusterId).resolve(nodeId).resolve("data"))) {
+            objects = files.filter(path -> path.toString().endsWith(".gz")).sorted().collect(Collectors.toList());
+        }
+
+        Files.delete(objects.get(0));
+        Files.write(objects.get(1), "not gzip".getBytes());
+
+        final VerifyBackupOperation failedVerification = new VerifyBackupOperation(restorerFactories, new FixedTasksExecutor(), verifyRequest);
+        failedVerification.run();
+
+        assertEquals(failedVerification.state, Operation.State.FAILED);
+        assertEquals(failedVerification.missingObjects.size(), 1);
+        assertEquals(failedVerification.corruptObjects.size(), 1);
+    }
+
+    @Test(description = "Restore failed mid-way resumes with the files not downloaded yet, and those modified since downloaded", groups = {"basic"})
+    public void resumedRestore() throws Exception {
+        hardResetTestDirs();
+
+        final TestFileConfig testFileConfig = versionsToTest.get(0);
+        final Path sharedContainerRoot = tempDirs.get(testFileConfig.cassandraVersion.toString());
+        final Path backupPath = tempDirs.get(testFileConfig.cassandraVersion.toString() + "-backup-location");
+        final String bucket = backupBucket + "-resumed";
+
+        final StorageLocation storageLocation = new StorageLocation(String.format("file://%s/%s/%s/%s", backupPath, bucket, clusterId, nodeId));
+
+        final BackupOperationRequest backupRequest = backupRequest(new BackupOperationRequest(), storageLocation, sharedContainerRoot, testSnapshotName);
+
+        new BackupOperation(null, null, localBackuperFactories(), new FixedTasksExecutor(), backupRequest).run();
+
+        BackupRestoreTestUtils.clearDirs(sharedContainerRoot, BackupRestoreTestUtils.cleanableDirs);
+        BackupRestoreTestUtils.createConfigFiles(sharedContainerRoot.resolve(confDir));
+
+        // one download at a time, so exactly the files before the failing one are downloaded, digests of SSTables last
+        final RestoreOperationRequest restoreRequest = restoreRequest(storageLocation, sharedContainerRoot, testSnapshotName);
+        restoreRequest.concurrentConnections = 1;
+
+        final Set<Path> failedRestoreDownloads = ConcurrentHashMap.newKeySet();
+        final Set<Path> resumedRestoreDownloads = ConcurrentHashMap.newKeySet();
+
+        final RestoreOperation failedRestore = new RestoreOperation(recordingRestorerFactory(failedRestoreDownloads, 38), restoreRequest);
+        failedRestore.run();
+
+        assertEquals(failedRestore.state, Operation.State.FAILED);
+
+        final Path journalFile = StateFiles.stateFile(sharedContainerRoot, "restore-journal", storageLocation).resolve(testSnapshotName);
+        final Map<Path, Path> journaledFiles = new LinkedHashMap<>();
+
+        // <size> <lastModified> <checksum> <storageKey> <localFile>
+        for (final String line : Files.readAllLines(journalFile)) {
+            final String[] fields = line.split(" ", 5);
+            journaledFiles.put(Paths.get(fields[4]), Paths.get(fields[3]));
+        }
+
+        assertEquals(journaledFiles.size(), 38);
+        assertEquals(ImmutableSet.copyOf(journaledFiles.values()), failedRestoreDownloads);
+
+        // a component modified in place, of an SSTable whose hash still matches as its Data.db and digest are unchanged, and a grown one
+        final Path modifiedFile = journaledFiles.keySet().stream()
+                                                .filter(file -> file.toString().endsWith("-Index.db"))
+                                                .filter(file -> journaledFiles.containsKey(Paths.get(file.toString().replace("-Index.db", "-Data.db")))
+                                                        && journaledFiles.containsKey(Paths.get(file.toString().replace("-Index.db", "-Digest.crc32"))))
+                                                .findFirst()
+                                                .orElseThrow(IllegalStateException::new);
+        final Path grownFile = journaledFiles.keySet().stream().filter(file -> !file.equals(modifiedFile)).findFirst().orElseThrow(IllegalStateException::new);
+        final byte[] modifiedContent = Files.readAllBytes(modifiedFile);
+        final byte[] grownContent = Files.readAllBytes(grownFile);
+
+        Files.write(modifiedFile, new byte[modifiedContent.length]);
+        Files.setLastModifiedTime(modifiedFile, FileTime.fromMillis(Files.getLastModifiedTime(modifiedFile).toMillis() + 60000));
+        Files.write(grownFile, new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+
+        final RestoreOperation resumedRestore = new RestoreOperation(recordingRestorerFactory(resumedRestoreDownloads, Integer.MAX_VALUE), restoreRequest);
+        resumedRestore.run();
+
+        assertEquals(resumedRestore.state, Operation.State.COMPLETED);
+
+        // files downloaded by the failed restore are downloaded again only if modified since
+        final Set<Path> downloadedAgain = new HashSet<>(resumedRestoreDownloads);
+        downloadedAgain.retainAll(failedRestoreDownloads);
+
+        assertEquals(downloadedAgain, ImmutableSet.of(journaledFiles.get(modifiedFile), journaledFiles.get(grownFile)));
+        assertTrue(Arrays.equals(Files.readAllBytes(modifiedFile), modifiedContent));
+        assertTrue(Arrays.equals(Files.readAllBytes(grownFile), grownContent));
+
+        assertFalse(Files.exists(journalFile));
+    }
+
+    /**
+     * @return given backup request of the snapshot of given tag, of a Cassandra not running in given container, otherwise with the defaults of the command line
+     */
+    private static <T extends BackupOperationRequest> T backupRequest(final T request,
+                                                                      final StorageLocation storageLocation,
+                                                                      final Path sharedContainerRoot,
+                                                                      final String snapshotTag) {
+        request.storageLocation = storageLocation;
+        request.concurrentConnections = 10;
+        request.sharedContainerPath = sharedContainerRoot;
+        request.cassandraDirectory = sharedContainerRoot;
+        request.keyspaces = ImmutableList.of();
+        request.snapshotTag = snapshotTag;
+        request.offlineSnapshot = true;
+
+        return request;
+    }
+
+    /**
+     * @return request of a backup of the commit logs archived in given directory, otherwise with the defaults of the command line
+     */
+    private static BackupCommitLogsOperationRequest commitLogBackupRequest(final StorageLocation storageLocation,
+                                                                           final Path root,
+                                                                           final Path archiveDirectory) {
+        final BackupCommitLogsOperationRequest request = new BackupCommitLogsOperationRequest();
+
+        request.storageLocation = storageLocation;
+        request.concurrentConnections = 2;
+        request.waitForLock = false;
+        request.sharedContainerPath = root;
+        request.cassandraDirectory = root;
+        request.commitLogArchiveOverride = archiveDirectory;
+
+        return request;
+    }
+
+    /**
+     * @return request of a restore of all tables of the snapshot of given tag, system keyspace included, into given container
+     */
+    private static RestoreOperationRequest restoreRequest(final StorageLocation storageLocation,
+                                                          final Path sharedContainerRoot,
+                                                          final String snapshotTag) {
+        final RestoreOperationRequest request = new RestoreOperationRequest();
+
+        request.storageLocation = storageLocation;
+        request.cassandraDirectory = sharedContainerRoot;
+        request.sharedContainerPath = sharedContainerRoot;
+        request.cassandraConfigDirectory = sharedContainerRoot;
+        request.restoreSystemKeyspace = true;
+        request.snapshotTag = snapshotTag;
+
+        return request;
+    }
+
+    /**
+     * @return request of a restore of the commit logs of given time range into the "cassandra" directory under given root
+     */
+    private static RestoreCommitLogsOperationRequest commitLogRestoreRequest(final StorageLocation storageLocation,
+                                                                             final Path root,
+                                                                             final long timestampStart,
+                                                                             final long timestampEnd) {
+        final RestoreCommitLogsOperationRequest request = new RestoreCommitLogsOperationRequest();
+
+        request.storageLocation = storageLocation;
+        request.concurrentConnections = 2;
+        request.waitForLock = false;
+        request.cassandraDirectory = root.resolve("cassandra");
+        request.sharedContainerPath = root;
+        request.cassandraConfigDirectory = root.resolve("conf");
+        request.timestampStart = timestampStart;
+        request.timestampEnd = timestampEnd;
+
+        return request;
+    }
+
+    /**
+     * @return factory of backupers to file:// storage locations
+     */
+    private static Map<String, BackuperFactory> localBackuperFactories() {
+        return ImmutableMap.of("file", new BackuperFactory() {
+            @Override
+            public Backuper createBackuper(final BackupOperationRequest backupOperationRequest) {
+                return new LocalFileBackuper(new FixedTasksExecutor(), backupOperationRequest);
+            }
+
+            @Override
+            public Backuper createCommitLogBackuper(final BackupCommitLogsOperationRequest backupCommitLogsOperationRequest) {
+                return new LocalFileBackuper(new FixedTasksExecutor(), backupCommitLogsOperationRequest);
+            }
+        });
+    }
+
+    /**
+     * @return factory of restorers from file:// storage locations
+     */
+    private static Map<String, RestorerFactory> localRestorerFactories() {
+        return ImmutableMap.of("file", new RestorerFactory() {
+            @Override
+            public Restorer createRestorer(final RestoreOperationRequest restoreOperationRequest) {
+                return new LocalFileRestorer(new FixedTasksExecutor(), restoreOperationRequest);
+            }
+
+            @Override
+            public Restorer createCommitLogRestorer(final RestoreCommitLogsOperationRequest restoreCommitLogsOperationRequest) {
+                return new LocalFileRestorer(new FixedTasksExecutor(), restoreCommitLogsOperationRequest);
+            }
+
+            @Override
+            public Restorer createVerifyBackupRestorer(final VerifyBackupOperationRequest verifyBackupOperationRequest) {
+                return new LocalFileRestorer(new FixedTasksExecutor(), verifyBackupOperationRequest);
+            }
+        });
+    }
+
+    /**
+     * @return factory of restorers recording the keys of data files they download, failing the download after given number of them
+     */
+    private static Map<String, RestorerFactory> recordingRestorerFactory(final Set<Path> downloads, final int failAfter) {
+        return ImmutableMap.of("file", new RestorerFactory() {
+            @Override
+            public Restorer createRestorer(final RestoreOperationRequest restoreOperationRequest) {
+                return new LocalFileRestorer(new FixedTasksExecutor(), restoreOperationRequest) {
+                    @Override
+                    public void downloadFile(final Path localFilePath, final RemoteObjectReference objectReference) throws Exception {
+                        record(objectReference);
+                        super.downloadFile(localFilePath, objectReference);
+                    }
+
+                    @Override
+                    public InputStream openRemoteObject(final RemoteObjectReference objectReference) throws Exception {
+                        record(objectReference);
+                        return super.openRemoteObject(objectReference);
+                    }
+
+                    private void record(final RemoteObjectReference objectReference) throws IOException {
+                        if (!objectReference.objectKey.startsWith("data")) {
+                            return;
+                        }
+
+                        if (downloads.size() >= failAfter) {
+                            throw new IOException("Download failed.");
+                        }
+
+                        downloads.add(objectReference.objectKey);
+                    }
+                };
+            }
+
+            @Override
+            public Restorer createCommitLogRestorer(final RestoreCommitLogsOperationRequest restoreCommitLogsOperationRequest) {
+                return null;
+            }
+
+            @Override
+            public Restorer createVerifyBackupRestorer(final VerifyBackupOperationRequest verifyBackupOperationRequest) {
+                return null;
+            }
+        });
+    }
+
+    @Test(description = "Full backup compressed with LZ4 and restore to an existing cluster", groups = {"basic"})
+    public void compressedRestore() throws Exception {
+        hardResetTestDirs();
+        basicProviderBackupRestore(backupBucket + "-compressed", false, CompressionCodec.LZ4, ManifestFormat.TEXT);
+
+        // larger than a compression buffer, so it is compressed in several rounds
+        final byte[] data = new byte[300 * 1024];
+        new Random().nextBytes(data);
+        Arrays.fill(data, 0, data.length / 2, (byte) 'a');
+
+        for (final CompressionCodec codec : CompressionCodec.values()) {
+            final byte[] compressed = ByteStreams.toByteArray(codec.compressingStream(new ByteArrayInputStream(data)));
+            assertEquals(ByteStreams.toByteArray(codec.decompress(new ByteArrayInputStream(compressed))), data);
+        }
+    }
+
 //    @Test(description = "Full backup and restore to an existing cluster", groups = {"gcp"})
 //    public void basicGCPRestore() throws Exception {
 //        //TODO: make it easier to test multiple different buckets (from diff providers in one test run)
@@ -194,6 +622,13 @@ public class BackupRestoreTest {
 
 
     public void basicProviderBackupRestore(final String bucket) throws Exception {
+        basicProviderBackupRestore(bucket, false, CompressionCodec.NONE, ManifestFormat.TEXT);
+    }
+
+    public void basicProviderBackupRestore(final String bucket,
+                                           final boolean contentAddressed,
+                                           final CompressionCodec compression,
+                                           final ManifestFormat manifestFormat) throws Exception {
         final String keyspace = "keyspace1";
         final String table = "table1";
         for (TestFileConfig testFileConfig : versionsToTest) {
@@ -206,36 +641,326 @@ public class BackupRestoreTest {
                                                                                       clusterId,
                                                                                       nodeId));
 
-            final BackupOperationRequest backupRequest = new BackupOperationRequest(
-                    storageLocation,
-                    null,
-                    null,
-                    10,
-                    true,
-                    sharedContainerRoot,
-                    sharedContainerRoot,
-                    ImmutableList.of(),
-                    testSnapshotName,
-                    true,
-                    null
-            );
-
-            final RestoreOperationRequest restoreRequest = new RestoreOperationRequest(
-                    storageLocation,
-                    10,
-                    true,
-                    sharedContainerRoot,
-                    sharedContainerRoot,
-                    sharedContainerRoot,
-                    true,
-                    testSnapshotName,
-                    ImmutableMultimap.of()
-            );
+            final BackupOperationRequest backupRequest = backupRequest(new BackupOperationRequest(), storageLocation, sharedContainerRoot, testSnapshotName);
+            backupRequest.compression = compression;
+            backupRequest.contentAddressed = contentAddressed;
+            backupRequest.manifestFormat = manifestFormat;
+
+            final RestoreOperationRequest restoreRequest = restoreRequest(storageLocation, sharedContainerRoot, testSnapshotName);
 
             testBackupAndRestore(backupRequest, restoreRequest, testFileConfig);
+
+            assertEquals(Files.isDirectory(backupPath.resolve(bucket).resolve(clusterId).resolve("blobs")), contentAddressed);
+
+            try (final Stream<Path> backupFiles = Files.walk(backupPath.resolve(bucket))) {
+                assertEquals(backupFiles.anyMatch(path -> path.toString().endsWith(".lz4")), compression == CompressionCodec.LZ4);
+            }
+        }
+    }
+
+    @Test(description = "Incremental backup on top of a full backup and restore of the incremental backup to an existing cluster", groups = {"basic"})
+    public void incrementalRestore() throws Exception {
+        hardResetTestDirs();
+
+        final String incrementalSnapshotName = "testIncrementalSnapshot";
+
+        for (TestFileConfig testFileConfig : versionsToTest) {
+            final Path sharedContainerRoot = tempDirs.get(testFileConfig.cassandraVersion.toString());
+            final Path backupPath = tempDirs.get(testFileConfig.cassandraVersion.toString() + "-backup-location");
+
+            final StorageLocation storageLocation = new StorageLocation(String.format("file://%s/%s/%s/%s",
+                                                                                      backupPath.toString(),
+                                                                                      backupBucket + "-incremental",
+                                                                                      clusterId,
+                                                                                      nodeId));
+
+            final BackupOperationRequest backupRequest = backupRequest(new BackupOperationRequest(), storageLocation, sharedContainerRoot, testSnapshotName);
+
+            final IncrementalBackupOperationRequest incrementalBackupRequest = backupRequest(new IncrementalBackupOperationRequest(), storageLocation, sharedContainerRoot, incrementalSnapshotName);
+            incrementalBackupRequest.baseSnapshotTag = testSnapshotName;
+
+            final RestoreOperationRequest restoreRequest = restoreRequest(storageLocation, sharedContainerRoot, incrementalSnapshotName);
+
+            final Map<String, BackuperFactory> backuperFactories = localBackuperFactories();
+
+            new BackupOperation(null, null, backuperFactories, new FixedTasksExecutor(), backupRequest).run();
+
+            // SSTable flushed after the full backup, hard linked to backups by Cassandra
+            final Path table1Path = sharedContainerRoot.resolve("data/keyspace1/table1");
+            final Path table1BackupsPath = Files.createDirectories(table1Path.resolve("backups"));
+
+            for (final Path component : resolveSSTableComponentPaths("keyspace1", "table1", sharedContainerRoot, 4, testFileConfig)) {
+                Files.write(component, BackupRestoreTestUtils.testData);
+                Files.createLink(table1BackupsPath.resolve(component.getFileName()), component);
+            }
+
+            new IncrementalBackupOperation(null, null, backuperFactories, new FixedTasksExecutor(), incrementalBackupRequest).run();
+
+            try (final Stream<Path> remainingLinks = Files.list(table1BackupsPath)) {
+                assertEquals(remainingLinks.count(), 0);
+            }
+
+            BackupRestoreTestUtils.clearDirs(sharedContainerRoot, BackupRestoreTestUtils.cleanableDirs);
+            BackupRestoreTestUtils.createConfigFiles(sharedContainerRoot.resolve(confDir));
+
+            new RestoreOperation(localRestorerFactories(), restoreRequest).run();
+
+            // files of the full backup and of the incremental one are restored
+            Stream.of(1, 2, 3, 4).forEach(sequence -> resolveSSTableComponentPaths("keyspace1", "table1", sharedContainerRoot, sequence, testFileConfig).stream()
+                    .map(Path::toFile)
+                    .map(File::exists)
+                    .forEach(Assert::assertTrue));
+        }
+    }
+
+    @Test(description = "Download of a file larger than the part size in concurrent ranged parts")
+    public void testRangedDownload() throws Exception {
+        final Path backupPath = Files.createTempDirectory("ranged-download");
+
+        try {
+            final StorageLocation storageLocation = new StorageLocation(String.format("file://%s/%s/%s/%s", backupPath, backupBucket, clusterId, nodeId));
+            final Path objectKey = Paths.get("data/keyspace1/table1/1-1000000000/mc-1-big-Data.db");
+
+            // 2.5 megabytes, so the last of the three 1 megabyte parts is a partial one
+            final byte[] content = new byte[5 * 512 * 1024];
+            new Random(0).nextBytes(content);
+
+            final Path remoteFile = backupPath.resolve(backupBucket).resolve(clusterId).resolve(nodeId).resolve(objectKey);
+            Files.createDirectories(remoteFile.getParent());
+            Files.write(remoteFile, content);
+
+            final RestoreOperationRequest restoreRequest = restoreRequest(storageLocation, backupPath, testSnapshotName);
+            restoreRequest.concurrentConnections = 2;
+            restoreRequest.downloadPartSize = 1;
+
+            final Path localFile = backupPath.resolve("restored").resolve(objectKey.getFileName());
+
+            new LocalFileRestorer(new FixedTasksExecutor(), restoreRequest).downloadFiles(ImmutableList.of(new ManifestEntry(objectKey, localFile, ManifestEntry.Type.FILE, content.length)));
+
+            assertTrue(Arrays.equals(Files.readAllBytes(localFile), content));
+        } finally {
+            FileUtils.deleteDirectory(backupPath.toFile());
+        }
+    }
+
+    @Test(description = "Download in parts verified by the combined checksum of the parts, failing once retries of a corrupted file are exhausted")
+    public void testVerifiedDownload() throws Exception {
+        final Path backupPath = Files.createTempDirectory("verified-download");
+
+        try {
+            final StorageLocation storageLocation = new StorageLocation(String.format("file://%s/%s/%s/%s", backupPath, backupBucket, clusterId, nodeId));
+            final Path objectKey = Paths.get("data/keyspace1/table1/1-1000000000/mc-1-big-Data.db");
+
+            final byte[] content = new byte[5 * 512 * 1024];
+            new Random(0).nextBytes(content);
+
+            final Path remoteFile = backupPath.resolve(backupBucket).resolve(clusterId).resolve(nodeId).resolve(objectKey);
+            Files.createDirectories(remoteFile.getParent());
+            Files.write(remoteFile, content);
+
+            final RestoreOperationRequest restoreRequest = restoreRequest(storageLocation, backupPath, testSnapshotName);
+            restoreRequest.concurrentConnections = 2;
+            restoreRequest.downloadPartSize = 1;
+
+            final CRC32 checksum = new CRC32();
+            checksum.update(content);
+
+            final Path localFile = backupPath.resolve("restored").resolve(objectKey.getFileName());
+            final ManifestEntry entry = new ManifestEntry(objectKey, localFile, ManifestEntry.Type.FILE, content.length);
+
+            entry.setChecksum(checksum.getValue());
+            new LocalFileRestorer(new FixedTasksExecutor(), restoreRequest).downloadFiles(ImmutableList.of(entry));
+
+            assertTrue(Arrays.equals(Files.readAllBytes(localFile), content));
+
+            Files.delete(localFile);
+
+            entry.setChecksum(checksum.getValue() ^ 1);
+            Assert.expectThrows(ExecutionException.class,
+                                () -> new LocalFileRestorer(new FixedTasksExecutor(), restoreRequest).downloadFiles(ImmutableList.of(entry)));
+
+            assertFalse(Files.exists(localFile));
+        } finally {
+            FileUtils.deleteDirectory(backupPath.toFile());
+        }
+    }
+
+    @Test(description = "Commit log segments put into the archive directory are uploaded and deleted while the archiver runs, also when some disappear before they settle")
+    public void testCommitLogArchiver() throws Exception {
+        final Path root = Files.createTempDirectory("commitlog-archiver");
+
+        try {
+            final Path archiveDirectory = root.resolve("archive");
+            final StorageLocation storageLocation = new StorageLocation(String.format("file://%s/%s/%s/%s", root, backupBucket, clusterId, nodeId));
+
+            final BackupCommitLogsOperationRequest request = commitLogBackupRequest(storageLocation, root, archiveDirectory);
+            request.compression = CompressionCodec.GZIP;
+
+            final CommitLogArchiverService archiver = new CommitLogArchiverService(localBackuperFactories(), request);
+
+            archiver.startAsync().awaitRunning();
+
+            try {
+                // removed again before it settles, it is dropped without stopping the archiver
+                final Path removedSegment = archiveDirectory.resolve("CommitLog-6-0.log");
+                Files.write(removedSegment, "mutations".getBytes());
+                Thread.sleep(500);
+                Files.delete(removedSegment);
+
+                final Path segment = archiveDirectory.resolve("CommitLog-6-1.log");
+                Files.write(segment, "mutations".getBytes());
+
+                await().atMost(30, SECONDS).until(() -> !Files.exists(segment));
+                assertTrue(archiver.isRunning());
+
+                // archived again with the same content, it is deleted without being uploaded under another key
+                Files.write(segment, "mutations".getBytes());
+
+                await().atMost(30, SECONDS).until(() -> !Files.exists(segment));
+            } finally {
+                archiver.stopAsync().awaitTerminated();
+            }
+
+            final Path nodePath = root.resolve(backupBucket).resolve(clusterId).resolve(nodeId);
+            final Path segmentKey;
+
+            try (final Stream<Path> commitLogs = Files.walk(nodePath.resolve("commitlog"))) {
+                final List<Path> segmentPaths = commitLogs.filter(path -> path.getFileName().toString().startsWith("CommitLog-6-1.log.")).collect(Collectors.toList());
+
+                assertEquals(segmentPaths.size(), 1);
+                segmentKey = nodePath.relativize(segmentPaths.get(0));
+            }
+
+            // the segment is under its bucket, which the uploaded catalogue lists for its timestamp
+            try (final InputStream catalogueStream = Files.newInputStream(nodePath.resolve(CommitLogCatalogue.CATALOGUE_KEY))) {
+                final long timestamp = CommitLogCatalogue.segmentTimestamp(segmentKey);
+                assertEquals(CommitLogCatalogue.read(catalogueStream).bucketKeys(timestamp, timestamp), Optional.of(singletonList(segmentKey.getParent())));
+            }
+
+            // listing commit logs concurrently descends into buckets
+            final RestoreCommitLogsOperationRequest restoreRequest = commitLogRestoreRequest(storageLocation, root, 0, Long.MAX_VALUE);
+            final List<Path> listedKeys = new ArrayList<>();
+
+            new LocalFileRestorer(new FixedTasksExecutor(), restoreRequest).consumeFilesConcurrently(singletonList(CommitLogCatalogue.COMMIT_LOGS_KEY),
+                                                                                                    object -> listedKeys.add(object.getObjectKey()));
+
+            assertEquals(new HashSet<>(listedKeys), ImmutableSet.of(segmentKey, CommitLogCatalogue.CATALOGUE_KEY));
+        } finally {
+            FileUtils.deleteDirectory(root.toFile());
         }
     }
 
+    @Test(description = "Commit log segment archived again with the same content is not uploaded again, also when it is not compressed")
+    public void testCommitLogBackupSkipsArchivedSegments() throws Exception {
+        final Path root = Files.createTempDirectory("commitlog-backup");
+
+        try {
+            final Path archiveDirectory = Files.createDirectories(root.resolve("archive"));
+            final StorageLocation storageLocation = new StorageLocation(String.format("file://%s/%s/%s/%s", root, backupBucket, clusterId, nodeId));
+
+            final BackupCommitLogsOperationRequest request = commitLogBackupRequest(storageLocation, root, archiveDirectory);
+
+            final Map<String, BackuperFactory> backuperFactories = localBackuperFactories();
+
+            final Path segment = archiveDirectory.resolve("CommitLog-6-1.log");
+            Files.write(segment, "mutations".getBytes());
+
+            final BackupCommitLogsOperation backup = new BackupCommitLogsOperation(null, backuperFactories, request);
+            backup.run();
+
+            assertEquals(backup.state, Operation.State.COMPLETED);
+
+            // touched without being written to, it would be stored under the key of its new timestamp
+            Files.setLastModifiedTime(segment, FileTime.fromMillis(Files.getLastModifiedTime(segment).toMillis() + TimeUnit.HOURS.toMillis(1)));
+
+            final BackupCommitLogsOperation secondBackup = new BackupCommitLogsOperation(null, backuperFactories, request);
+            secondBackup.run();
+
+            assertEquals(secondBackup.state, Operation.State.COMPLETED);
+
+            try (final Stream<Path> commitLogs = Files.walk(root.resolve(backupBucket).resolve(clusterId).resolve(nodeId).resolve("commitlog"))) {
+                assertEquals(commitLogs.filter(path -> path.getFileName().toString().startsWith("CommitLog-6-1.log.")).count(), 1);
+            }
+        } finally {
+            FileUtils.deleteDirectory(root.toFile());
+        }
+    }
+
+    @Test(description = "Commit log restore downloads one copy of every segment of the restored time range, up to the segment it ends in")
+    public void testCommitLogRestore() throws Exception {
+        final Path root = Files.createTempDirectory("commitlog-restore");
+
+        try {
+            final Path nodePath = root.resolve(backupBucket).resolve(clusterId).resolve(nodeId);
+
+            // segment -> timestamps of its copies; segment 2 was archived again while it was written to
+            final Map<String, List<Long>> segmentCopies = ImmutableMap.of("CommitLog-6-1.log", ImmutableList.of(1000L),
+                                                                          "CommitLog-6-2.log", ImmutableList.of(1500L, 2500L),
+                                                                          "CommitLog-6-3.log", ImmutableList.of(3500L, 4500L, 4800L),
+                                                                          "CommitLog-6-4.log", ImmutableList.of(5000L));
+
+            for (final Map.Entry<String, List<Long>> segment : segmentCopies.entrySet()) {
+                for (final long timestamp : segment.getValue()) {
+                    final Path copy = nodePath.resolve(CommitLogCatalogue.segmentKey(Paths.get(segment.getKey()), timestamp));
+                    Files.createDirectories(copy.getParent());
+                    Files.write(copy, String.valueOf(timestamp).getBytes());
+                }
+            }
+
+            final StorageLocation storageLocation = new StorageLocation(String.format("file://%s/%s/%s/%s", root, backupBucket, clusterId, nodeId));
+            final RestoreCommitLogsOperationRequest request = commitLogRestoreRequest(storageLocation, root, 2000, 4000);
+
+            final RestoreCommitLogsOperation restore = new RestoreCommitLogsOperation(localRestorerFactories(), request);
+
+            restore.run();
+
+            assertEquals(restore.state, Operation.State.COMPLETED);
+
+            final Path commitLogs = root.resolve("cassandra/commitlog");
+
+            try (final Stream<Path> restored = Files.list(commitLogs)) {
+                assertEquals(restored.map(path -> path.getFileName().toString()).collect(Collectors.toSet()),
+                             ImmutableSet.of("CommitLog-6-2.log", "CommitLog-6-3.log"));
+            }
+
+            assertEquals(new String(Files.readAllBytes(commitLogs.resolve("CommitLog-6-2.log"))), "2500");
+            assertEquals(new String(Files.readAllBytes(commitLogs.resolve("CommitLog-6-3.log"))), "4500");
+        } finally {
+            FileUtils.deleteDirectory(root.toFile());
+        }
+    }
+
+    @Test(description = "Commit log catalogues merge their buckets, and do not list buckets of a time range with segments missing")
+    public void testCommitLogCatalogue() throws Exception {
+        final long hour = TimeUnit.HOURS.toMillis(1);
+        final Path segment1 = CommitLogCatalogue.segmentKey(Paths.get("CommitLog-6-1.log"), hour);
+        final Path segment2 = CommitLogCatalogue.segmentKey(Paths.get("CommitLog-6-2.log"), 2 * hour);
+        final Path segment3 = CommitLogCatalogue.segmentKey(Paths.get("CommitLog-6-3.log"), 3 * hour);
+
+        final CommitLogCatalogue stored = new CommitLogCatalogue();
+        stored.add(segment1);
+        stored.add(segment2);
+
+        // the local catalogue was lost, so it only has the segment added since
+        final CommitLogCatalogue catalogue = new CommitLogCatalogue();
+        catalogue.add(segment3);
+
+        assertFalse(catalogue.bucketKeys(hour, 3 * hour).isPresent());
+
+        catalogue.merge(stored);
+
+        assertEquals(catalogue.bucketKeys(hour, 3 * hour), Optional.of(ImmutableList.of(segment1.getParent(), segment2.getParent(), segment3.getParent())));
+        assertEquals(catalogue.bucketKeys(2 * hour, 2 * hour), Optional.of(ImmutableList.of(segment2.getParent(), segment3.getParent())));
+
+        // segment 2 was stored without being catalogued
+        final CommitLogCatalogue incomplete = new CommitLogCatalogue();
+        incomplete.add(segment1);
+        incomplete.add(segment3);
+
+        assertFalse(incomplete.bucketKeys(hour, 3 * hour).isPresent());
+        assertFalse(incomplete.bucketKeys(3 * hour, 3 * hour).isPresent());
+    }
+
     @Test(description = "Check that we are checksumming properly")
     public void testCalculateDigest() throws Exception {
         for (TestFileConfig testFileConfig : versionsToTest) {
@@ -248,6 +973,73 @@ public class BackupRestoreTest {
         }
     }
 
+    @Test(description = "Check that SSTable hashes are taken from the persisted fingerprint cache while the SSTable is unchanged")
+    public void testFingerprintCache() throws Exception {
+        hardResetTestDirs();
+
+        final Path sharedContainerRoot = Files.createTempDirectory("fingerprints");
+
+        try {
+            for (TestFileConfig testFileConfig : versionsToTest) {
+                final String keyspace = "keyspace1";
+                final String table1 = "table1";
+                final Path table1Path = tempDirs.get(testFileConfig.cassandraVersion.toString()).resolve("data/" + keyspace + "/" + table1);
+                final Path dataFile = table1Path.resolve(String.format("%s-1-big-Data.db", testFileConfig.getSstablePrefix(keyspace, table1)));
+                final Path digestFile = table1Path.resolve(String.format("%s-1-big-Digest.crc32", testFileConfig.getSstablePrefix(keyspace, table1)));
+
+                final FingerprintCache fingerprintCache = FingerprintCache.forSharedContainerPath(sharedContainerRoot);
+                final String hash = fingerprintCache.sstableHash(dataFile);
+
+                assertEquals(hash, SSTableUtils.sstableHash(dataFile));
+                fingerprintCache.save();
+
+                // Data.db is unchanged, so the digest is not read again
+                Files.write(digestFile, "42".getBytes());
+
+                assertEquals(FingerprintCache.forSharedContainerPath(sharedContainerRoot).sstableHash(digestFile), hash);
+                assertEquals(SSTableUtils.sstableHash(dataFile), "1-42");
+
+                // content fingerprints are SHA-256 and CRC32 of the whole file
+                final FingerprintCache.Fingerprint fingerprint = fingerprintCache.fingerprint(dataFile);
+                assertEquals(fingerprint.sha256, Hashing.sha256().hashBytes(Files.readAllBytes(dataFile)).toString());
+                assertEquals(fingerprint.crc32, Hashing.crc32().hashBytes(Files.readAllBytes(dataFile)).padToLong());
+            }
+        } finally {
+            FileUtils.deleteDirectory(sharedContainerRoot.toFile());
+            hardResetTestDirs();
+        }
+    }
+
+    @Test(description = "Check that entries of a text manifest are indexed by table")
+    public void testManifestTableIndex() throws Exception {
+        final Path manifestFile = Files.createTempFile("manifest", null);
+
+        try {
+            Files.write(manifestFile, ImmutableList.of(ManifestEntry.PARENT_DIRECTIVE + "base",
+                                                       "10 data/ks/table1-1234/1-42/mc-1-big-Data.db codec=LZ4",
+                                                       "20 data/ks/table1-1234/.idx/1-43/mc-1-big-Data.db",
+                                                       "30 data/ks/table2-5678/1-44/mc-1-big-Data.db blob=blobs/ks/table2-5678/1-44/mc-1-big-Data.db",
+                                                       "40 tokens/snapshot-tokens.yaml"));
+
+            final Manifest manifest = Manifest.read(manifestFile);
+
+            assertEquals(manifest.getParentTag(), "base");
+            assertEquals(ImmutableList.copyOf(manifest.getTables()),
+                         ImmutableList.of(Paths.get("data/ks/table1-1234"), Paths.get("data/ks/table2-5678"), Paths.get("tokens")));
+
+            final List<ManifestEntry> table1 = manifest.getEntries(Paths.get("data/ks/table1-1234"));
+
+            assertEquals(table1.size(), 2);
+            assertEquals(table1.get(0).codec, CompressionCodec.LZ4);
+            assertEquals(table1.get(1).objectKey, Paths.get("data/ks/table1-1234/.idx/1-43/mc-1-big-Data.db"));
+            assertEquals(manifest.getEntries(Paths.get("data/ks/table2-5678")).get(0).storageKey, Paths.get("blobs/ks/table2-5678/1-44/mc-1-big-Data.db"));
+            assertEquals(manifest.getEntries(Paths.get("tokens")).get(0).size, 40);
+            assertTrue(manifest.getEntries(Paths.get("data/ks/table3-9012")).isEmpty());
+        } finally {
+            Files.delete(manifestFile);
+        }
+    }
+
     @BeforeTest
     private void hardResetTestDirs() throws IOException, URISyntaxException {
         cleanUp();
@@ -0,0 +1,157 @@
+package com.instaclustr.cassandra.backup.impl.backup;
+
+import static jmx.org.apache.cassandra.CassandraObjectNames.CLIENT_READ_LATENCY;
+import static jmx.org.apache.cassandra.CassandraObjectNames.CLIENT_WRITE_LATENCY;
+import static jmx.org.apache.cassandra.CassandraObjectNames.PENDING_COMPACTIONS;
+import static jmx.org.apache.cassandra.CassandraObjectNames.STORAGE_SERVICE_MBEAN_NAME;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+import javax.management.MBeanServerConnection;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class AdaptiveThrottleTest {
+
+    private static final double MIN_RATE = 10;
+    private static final double MAX_RATE = 110;
+    private static final double DELTA = 0.001;
+
+    private MBeanServerConnection connection;
+    private Backuper backuper;
+    private AdaptiveThrottle throttle;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        connection = mock(MBeanServerConnection.class);
+        backuper = mock(Backuper.class);
+
+        when(connection.getAttribute(STORAGE_SERVICE_MBEAN_NAME, "OperationMode")).thenReturn("NORMAL");
+        when(connection.getAttribute(PENDING_COMPACTIONS, "Value")).thenReturn(0);
+        when(connection.getAttribute(CLIENT_READ_LATENCY, "99thPercentile")).thenReturn(1000.0);
+        when(connection.getAttribute(CLIENT_WRITE_LATENCY, "99thPercentile")).thenReturn(1000.0);
+
+        final BaseBackupOperationRequest request = new BaseBackupOperationRequest(null, null, null, 5, false, null, null, null, null, false, null, true, null, 100, null);
+
+        throttle = new AdaptiveThrottle(request, connection, backuper);
+    }
+
+    @AfterMethod
+    public void teardown() {
+        throttle.close();
+    }
+
+    @Test
+    public void backsOffByHalfDownToLowerBounds() throws Exception {
+        assertEquals(throttle.rate(MIN_RATE, MAX_RATE), MAX_RATE, DELTA);
+        assertEquals(throttle.availableConnections(), 5);
+
+        when(connection.getAttribute(PENDING_COMPACTIONS, "Value")).thenReturn(500);
+
+        throttle.sample();
+
+        assertEquals(throttle.rate(MIN_RATE, MAX_RATE), 60, DELTA);
+        assertEquals(throttle.availableConnections(), 3);
+
+        throttle.sample();
+
+        assertEquals(throttle.rate(MIN_RATE, MAX_RATE), 35, DELTA);
+        assertEquals(throttle.availableConnections(), 2);
+
+        // halved until close enough to the lower bounds, then stops there
+        for (int i = 0; i < 10; i++) {
+            throttle.sample();
+        }
+
+        assertEquals(throttle.rate(MIN_RATE, MAX_RATE), MIN_RATE, DELTA);
+        assertEquals(throttle.availableConnections(), 1);
+
+        // the rate limiter is updated only when the scale changes
+        verify(backuper, times(7)).updateRateLimiter();
+    }
+
+    @Test
+    public void backsOffWhenNotInNormalModeOrSlow() throws Exception {
+        when(connection.getAttribute(STORAGE_SERVICE_MBEAN_NAME, "OperationMode")).thenReturn("JOINING");
+
+        throttle.sample();
+
+        assertEquals(throttle.rate(MIN_RATE, MAX_RATE), 60, DELTA);
+
+        when(connection.getAttribute(STORAGE_SERVICE_MBEAN_NAME, "OperationMode")).thenReturn("NORMAL");
+        when(connection.getAttribute(CLIENT_WRITE_LATENCY, "99thPercentile")).thenReturn(500000.0);
+
+        throttle.sample();
+
+        assertEquals(throttle.rate(MIN_RATE, MAX_RATE), 35, DELTA);
+    }
+
+    @Test
+    public void recoversByATenthOnceHealthy() throws Exception {
+        when(connection.getAttribute(PENDING_COMPACTIONS, "Value")).thenReturn(500);
+
+        for (int i = 0; i < 10; i++) {
+            throttle.sample();
+        }
+
+        when(connection.getAttribute(PENDING_COMPACTIONS, "Value")).thenReturn(0);
+
+        throttle.sample();
+
+        assertEquals(throttle.rate(MIN_RATE, MAX_RATE), 20, DELTA);
+        assertEquals(throttle.availableConnections(), 1);
+
+        throttle.sample();
+
+        assertEquals(throttle.rate(MIN_RATE, MAX_RATE), 30, DELTA);
+        assertEquals(throttle.availableConnections(), 2);
+
+        for (int i = 0; i < 10; i++) {
+            throttle.sample();
+        }
+
+        assertEquals(throttle.rate(MIN_RATE, MAX_RATE), MAX_RATE, DELTA);
+        assertEquals(throttle.availableConnections(), 5);
+    }
+
+    @Test
+    public void keepsUploadsInProgressWhenBackingOff() throws Exception {
+        throttle.acquireConnection();
+        throttle.acquireConnection();
+        throttle.acquireConnection();
+
+        when(connection.getAttribute(PENDING_COMPACTIONS, "Value")).thenReturn(500);
+
+        for (int i = 0; i < 10; i++) {
+            throttle.sample();
+        }
+
+        // 3 uploads still in progress, only 1 allowed
+        assertEquals(throttle.availableConnections(), -2);
+
+        throttle.releaseConnection();
+        throttle.releaseConnection();
+
+        assertEquals(throttle.availableConnections(), 0);
+
+        throttle.releaseConnection();
+
+        assertEquals(throttle.availableConnections(), 1);
+    }
+
+    @Test
+    public void keepsThrottleWhenSamplingFails() throws Exception {
+        when(connection.getAttribute(PENDING_COMPACTIONS, "Value")).thenThrow(new RuntimeException("JMX is gone"));
+
+        throttle.sample();
+
+        assertEquals(throttle.rate(MIN_RATE, MAX_RATE), MAX_RATE, DELTA);
+        assertEquals(throttle.availableConnections(), 5);
+        verify(backuper, times(0)).updateRateLimiter();
+    }
+}
@@ -0,0 +1,89 @@
+package com.instaclustr.cassandra.backup.impl.backup;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import com.instaclustr.cassandra.backup.impl.FingerprintCache;
+import com.instaclustr.cassandra.backup.impl.ManifestEntry;
+import com.instaclustr.cassandra.backup.impl.backup.BackupOperation.KeyspaceColumnFamilySnapshot;
+import com.instaclustr.threading.Executors.ExecutorServiceSupplier;
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class BackupOperationTest {
+
+    private Path dataDirectory;
+    private ExecutorService executorService;
+
+    private final ExecutorServiceSupplier executorServiceSupplier = new ExecutorServiceSupplier() {
+        @Override
+        public ExecutorService get(final Integer concurrentTasks) {
+            executorService = Executors.newFixedThreadPool(concurrentTasks);
+            return executorService;
+        }
+    };
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        dataDirectory = Files.createTempDirectory("data");
+    }
+
+    @AfterMethod
+    public void teardown() throws IOException {
+        FileUtils.deleteDirectory(dataDirectory.toFile());
+    }
+
+    @Test
+    public void manifestOfAllTables() throws Exception {
+        try (final Stream<ManifestEntry> manifest = BackupOperation.generateManifest(new BackupOperationRequest(), snapshots(20),
+                                                                                     FingerprintCache.inMemory(), executorServiceSupplier)) {
+            assertEquals(manifest.count(), 20);
+        }
+
+        assertTrue(executorService.isShutdown());
+    }
+
+    @Test
+    public void closingManifestStopsListingTables() throws Exception {
+        try (final Stream<ManifestEntry> manifest = BackupOperation.generateManifest(new BackupOperationRequest(), snapshots(20),
+                                                                                     FingerprintCache.inMemory(), executorServiceSupplier)) {
+            // the consumer stops after the first entry, e.g. as its upload failed
+            final Iterator<ManifestEntry> entries = manifest.iterator();
+
+            assertTrue(entries.hasNext());
+            entries.next();
+
+            assertFalse(executorService.isShutdown());
+        }
+
+        assertTrue(executorService.isShutdown());
+    }
+
+    private List<KeyspaceColumnFamilySnapshot> snapshots(final int tables) throws IOException {
+        final List<KeyspaceColumnFamilySnapshot> snapshots = new ArrayList<>();
+
+        for (int i = 0; i < tables; i++) {
+            final Path tableDirectory = dataDirectory.resolve("keyspace1").resolve("table" + i);
+            final Path snapshotDirectory = Files.createDirectories(tableDirectory.resolve("snapshots").resolve("snapshot"));
+
+            Files.write(snapshotDirectory.resolve("mb-1-big-Data.db"), new byte[]{1, 2, 3});
+
+            snapshots.add(new KeyspaceColumnFamilySnapshot(tableDirectory, snapshotDirectory));
+        }
+
+        return snapshots;
+    }
+}
@@ -0,0 +1,184 @@
+package com.instaclustr.cassandra.backup.impl.backup;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import com.instaclustr.cassandra.backup.impl.ManifestEntry;
+import com.instaclustr.cassandra.backup.impl.OperationProgressTracker;
+import com.instaclustr.cassandra.backup.impl.RemoteObjectReference;
+import com.instaclustr.threading.Executors.FixedTasksExecutor;
+import org.testng.annotations.Test;
+
+public class BackuperTest {
+
+    private static final int CONCURRENT_CONNECTIONS = 2;
+
+    @Test
+    public void uploadsStartBeforeManifestIsGenerated() throws Exception {
+        final CountDownLatch firstUpload = new CountDownLatch(1);
+        final TestBackuper backuper = new TestBackuper(entry -> firstUpload.countDown());
+
+        // the second entry is generated only once the first one is uploaded
+        backuper.uploadOrFreshenFiles(manifest(10, i -> {
+            if (i == 1) {
+                try {
+                    assertTrue(firstUpload.await(10, TimeUnit.SECONDS), "First entry was not uploaded while the manifest was being generated.");
+                } catch (final InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            return entry(i);
+        }), null);
+
+        assertEquals(backuper.uploaded.size(), 10);
+    }
+
+    @Test
+    public void entriesAheadOfUploadsAreBounded() throws Exception {
+        final CountDownLatch uploadsBlocked = new CountDownLatch(1);
+        final AtomicInteger generated = new AtomicInteger();
+        final AtomicInteger uploaded = new AtomicInteger();
+        final AtomicInteger maxAhead = new AtomicInteger();
+
+        final TestBackuper backuper = new TestBackuper(entry -> {
+            uploadsBlocked.await();
+            uploaded.incrementAndGet();
+        });
+
+        final Thread uploader = new Thread(() -> {
+            try {
+                backuper.uploadOrFreshenFiles(manifest(100, i -> {
+                    maxAhead.accumulateAndGet(generated.incrementAndGet() - uploaded.get(), Math::max);
+                    return entry(i);
+                }), null);
+            } catch (final Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        uploader.start();
+
+        // twice as many entries as connections are submitted, and one more waits for a free slot
+        final long deadline = System.currentTimeMillis() + 10000;
+
+        while (generated.get() < CONCURRENT_CONNECTIONS * 2 + 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        Thread.sleep(200);
+
+        assertEquals(generated.get(), CONCURRENT_CONNECTIONS * 2 + 1);
+
+        uploadsBlocked.countDown();
+        uploader.join(10000);
+
+        assertEquals(backuper.uploaded.size(), 100);
+        assertTrue(maxAhead.get() <= CONCURRENT_CONNECTIONS * 2 + 1, "Entries ahead of uploads: " + maxAhead.get());
+    }
+
+    @Test
+    public void firstFailureStopsUploadsAndIsRethrown() throws Exception {
+        final AtomicInteger generated = new AtomicInteger();
+
+        final TestBackuper backuper = new TestBackuper(entry -> {
+            if (entry.objectKey.endsWith("file-3")) {
+                throw new IOException("Upload failed.");
+            }
+
+            Thread.sleep(10);
+        });
+
+        try {
+            backuper.uploadOrFreshenFiles(manifest(1000, i -> {
+                generated.incrementAndGet();
+                return entry(i);
+            }), null);
+
+            fail("Failure of an upload was not rethrown.");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+            assertEquals(e.getCause().getMessage(), "Upload failed.");
+        }
+
+        // no more entries are generated nor uploaded once an upload failed
+        assertTrue(generated.get() < 100, "Entries generated after a failed upload: " + generated.get());
+        assertTrue(backuper.uploaded.size() < 100, "Entries uploaded after a failed upload: " + backuper.uploaded.size());
+    }
+
+    private static Stream<ManifestEntry> manifest(final int entries, final IntFunction<ManifestEntry> generator) {
+        return IntStream.range(0, entries).mapToObj(generator);
+    }
+
+    private static ManifestEntry entry(final int i) {
+        return new ManifestEntry(Paths.get("data/keyspace1/table1/file-" + i), null, ManifestEntry.Type.FILE, 100);
+    }
+
+    @FunctionalInterface
+    private interface Upload {
+        void upload(ManifestEntry entry) throws Exception;
+    }
+
+    private static class TestBackuper extends Backuper {
+        private final Upload upload;
+        final Set<Path> uploaded = ConcurrentHashMap.newKeySet();
+
+        TestBackuper(final Upload upload) {
+            super(new BaseBackupOperationRequest(null, null, null, CONCURRENT_CONNECTIONS, false, null, null, null, null, false, null, false, null, null, null),
+                  new FixedTasksExecutor());
+            this.upload = upload;
+        }
+
+        @Override
+        public RemoteObjectReference objectKeyToRemoteReference(final Path objectKey) {
+            return new RemoteObjectReference(objectKey, objectKey.toString()) {
+                @Override
+                public Path getObjectKey() {
+                    return objectKey;
+                }
+            };
+        }
+
+        @Override
+        public FreshenResult freshenRemoteObject(final RemoteObjectReference object) {
+            return FreshenResult.UPLOAD_REQUIRED;
+        }
+
+        @Override
+        public InputStream openRemoteObject(final RemoteObjectReference object) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void uploadFile(final long size, final InputStream localFileStream, final RemoteObjectReference object, final OperationProgressTracker operationProgressTracker) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void uploadLocalFile(final ManifestEntry manifestEntry,
+                                       final RemoteObjectReference remoteObjectReference,
+                                       final OperationProgressTracker operationProgressTracker) throws Exception {
+            upload.upload(manifestEntry);
+            uploaded.add(manifestEntry.objectKey);
+        }
+
+        @Override
+        protected void cleanup() {
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.instaclustr.cassandra.backup.impl.restore;
+
+import static java.util.stream.Collectors.toList;
+import static org.testng.Assert.assertEquals;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import com.instaclustr.cassandra.backup.impl.ManifestEntry;
+import org.testng.annotations.Test;
+
+public class DownloadSchedulerTest {
+
+    private static final Path DISK_1 = Paths.get("/disk1");
+    private static final Path DISK_2 = Paths.get("/disk2");
+
+    @Test
+    public void largestClassFirstRoundRobinAcrossDirectoriesAndTables() {
+        final List<ManifestEntry> entries = ImmutableList.of(entry(DISK_1, "table1", "b", 600),
+                                                             entry(DISK_1, "table2", "d", 700),
+                                                             entry(DISK_1, "table1", "a", 1000),
+                                                             entry(DISK_2, "table1", "e", 900),
+                                                             entry(DISK_1, "table1", "c", 10),
+                                                             entry(DISK_2, "table1", "f", 10),
+                                                             entry(DISK_2, "table1", "g", 20));
+
+        final List<ManifestEntry> schedule = DownloadScheduler.schedule(entries, ImmutableList.of(DISK_1, DISK_2));
+
+        // a, b, d and e are all of the class of 512 to 1023 bytes, taken largest first, from either disk in turns
+        // and from either table of the first disk in turns
+        assertEquals(schedule.stream().map(entry -> entry.localFile.getFileName().toString()).collect(toList()),
+                     ImmutableList.of("a", "e", "d", "b", "g", "c", "f"));
+    }
+
+    @Test
+    public void filesOutsideDataFileDirectories() {
+        final List<ManifestEntry> entries = ImmutableList.of(entry(DISK_1, "table1", "a", 100),
+                                                             entry(DISK_1, "table1", "b", 100),
+                                                             entry(DISK_2, "table1", "c", 100));
+
+        // without directories, all tables share one, so only tables are taken in turns
+        final List<ManifestEntry> schedule = DownloadScheduler.schedule(entries, ImmutableList.of());
+
+        assertEquals(schedule.stream().map(entry -> entry.localFile.getFileName().toString()).collect(toList()),
+                     ImmutableList.of("a", "c", "b"));
+    }
+
+    private static ManifestEntry entry(final Path directory, final String table, final String file, final long size) {
+        final Path localFile = directory.resolve("keyspace1").resolve(table).resolve(file);
+
+        return new ManifestEntry(Paths.get("data/keyspace1").resolve(table).resolve(file), localFile, ManifestEntry.Type.FILE, size);
+    }
+}
@@ -0,0 +1,165 @@
+package com.instaclustr.cassandra.backup.impl.restore;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import com.google.common.collect.ImmutableList;
+import com.instaclustr.cassandra.backup.impl.ManifestEntry;
+import com.instaclustr.cassandra.backup.impl.RemoteObjectReference;
+import com.instaclustr.threading.Executors.FixedTasksExecutor;
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class RestorerTest {
+
+    private static final int PART_SIZE = 1024 * 1024;
+
+    // three parts, the last one shorter
+    private final byte[] content = new byte[PART_SIZE * 5 / 2];
+
+    private Path directory;
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        new Random(0).nextBytes(content);
+        directory = Files.createTempDirectory("restorer");
+    }
+
+    @AfterMethod
+    public void teardown() throws IOException {
+        FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Test
+    public void failureOfLastPartLeavesNoFile() throws Exception {
+        final ManifestEntry entry = entry();
+        final List<ManifestEntry> downloaded = new CopyOnWriteArrayList<>();
+
+        assertDownloadFails(new TestRestorer(content, 2L * PART_SIZE), entry, downloaded::add);
+
+        // the file with a hole in it is never moved to its final name, nor consumed as downloaded
+        assertFalse(Files.exists(entry.localFile));
+        assertFalse(Files.exists(entry.localFile.resolveSibling(entry.localFile.getFileName() + ".download")));
+        assertTrue(downloaded.isEmpty());
+    }
+
+    @Test
+    public void failureOfLastPartIsNotRetried() throws Exception {
+        final ManifestEntry entry = entry();
+        final CRC32 checksum = new CRC32();
+        checksum.update(content);
+        entry.setChecksum(checksum.getValue());
+
+        final TestRestorer restorer = new TestRestorer(content, 2L * PART_SIZE);
+
+        assertDownloadFails(restorer, entry, downloadedEntry -> {});
+
+        // each part is downloaded once, and the combined checksum of parts is never verified, so the file is not
+        // downloaded again next to the failure
+        assertEquals(restorer.openedRanges, ImmutableList.of(0L, (long) PART_SIZE, 2L * PART_SIZE));
+        assertFalse(Files.exists(entry.localFile));
+        assertFalse(Files.exists(entry.localFile.resolveSibling(entry.localFile.getFileName() + ".download")));
+    }
+
+    private ManifestEntry entry() {
+        return new ManifestEntry(Paths.get("data/keyspace1/table1/mb-1-big-Data.db"),
+                                 directory.resolve("mb-1-big-Data.db"),
+                                 ManifestEntry.Type.FILE,
+                                 content.length);
+    }
+
+    private static void assertDownloadFails(final Restorer restorer,
+                                            final ManifestEntry entry,
+                                            final Consumer<ManifestEntry> downloadedFileConsumer) throws Exception {
+        try {
+            restorer.downloadFiles(ImmutableList.of(entry), downloadedFileConsumer);
+
+            fail("Failure of the last part was not rethrown.");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+            assertEquals(e.getCause().getMessage(), "Part failed.");
+        }
+    }
+
+    private static class TestRestorer extends Restorer {
+        private final byte[] content;
+        private final long failingOffset;
+        final List<Long> openedRanges = new CopyOnWriteArrayList<>();
+
+        TestRestorer(final byte[] content, final long failingOffset) {
+            // one connection, so parts are downloaded in order and the failing one finishes last
+            super(new BaseRestoreOperationRequest(null, 1, false, PART_SIZE / (1024 * 1024)), new FixedTasksExecutor());
+            this.content = content;
+            this.failingOffset = failingOffset;
+        }
+
+        @Override
+        public RemoteObjectReference objectKeyToRemoteReference(final Path objectKey) {
+            return new RemoteObjectReference(objectKey, objectKey.toString()) {
+                @Override
+                public Path getObjectKey() {
+                    return objectKey;
+                }
+            };
+        }
+
+        @Override
+        public InputStream openRemoteObjectRange(final RemoteObjectReference objectReference, final long offset, final long length) throws IOException {
+            openedRanges.add(offset);
+
+            if (offset == failingOffset) {
+                throw new IOException("Part failed.");
+            }
+
+            return new ByteArrayInputStream(content, (int) offset, (int) length);
+        }
+
+        @Override
+        public void downloadFile(final Path localPath, final RemoteObjectReference objectReference) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getRemoteObjectSize(final RemoteObjectReference objectReference) {
+            return content.length;
+        }
+
+        @Override
+        public InputStream openRemoteObject(final RemoteObjectReference objectReference) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void consumeFiles(final RemoteObjectReference prefix, final Consumer<RemoteObjectReference> consumer) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void consumeDirectory(final RemoteObjectReference prefix,
+                                     final Consumer<RemoteObjectReference> consumer,
+                                     final Consumer<Path> subPrefixConsumer) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void cleanup() {
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.instaclustr.cassandra.backup.benchmarks;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.instaclustr.io.RateLimitedInputStream;
+import com.instaclustr.io.SeekableByteChannelInputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the streams every uploaded file is read through. The rate limiter is set high enough to never
+ * throttle, so only its overhead is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InputStreamsBenchmark {
+
+    @Param({"67108864"})
+    public int fileSize;
+
+    @Param({"8192", "65536"})
+    public int bufferSize;
+
+    private Path file;
+    private byte[] buffer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final byte[] data = new byte[fileSize];
+        new Random(0).nextBytes(data);
+
+        file = Files.createTempFile("input-streams-benchmark", ".db");
+        Files.write(file, data);
+
+        buffer = new byte[bufferSize];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long seekableByteChannelInputStream() throws IOException {
+        try (final InputStream stream = new SeekableByteChannelInputStream(FileChannel.open(file, READ))) {
+            return drain(stream);
+        }
+    }
+
+    @Benchmark
+    public long rateLimitedInputStream() throws IOException {
+        try (final InputStream stream = new RateLimitedInputStream(new SeekableByteChannelInputStream(FileChannel.open(file, READ)),
+                                                                   RateLimiter.create(Double.MAX_VALUE))) {
+            return drain(stream);
+        }
+    }
+
+    private long drain(final InputStream stream) throws IOException {
+        long total = 0;
+        int read;
+
+        while ((read = stream.read(buffer)) != -1) {
+            total += read;
+        }
+
+        return total;
+    }
+}
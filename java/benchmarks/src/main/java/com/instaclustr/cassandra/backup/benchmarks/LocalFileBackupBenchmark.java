@@ -0,0 +1,154 @@
+package com.instaclustr.cassandra.backup.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableList;
+import com.instaclustr.cassandra.backup.guice.BackuperFactory;
+import com.instaclustr.cassandra.backup.impl.CompressionCodec;
+import com.instaclustr.cassandra.backup.impl.StorageLocation;
+import com.instaclustr.cassandra.backup.impl.backup.BackupCommitLogsOperationRequest;
+import com.instaclustr.cassandra.backup.impl.backup.BackupOperation;
+import com.instaclustr.cassandra.backup.impl.backup.BackupOperationRequest;
+import com.instaclustr.cassandra.backup.impl.backup.Backuper;
+import com.instaclustr.cassandra.backup.local.LocalFileBackuper;
+import com.instaclustr.operations.Operation;
+import com.instaclustr.threading.Executors.FixedTasksExecutor;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Offline backup of a synthetic snapshot to the {@code file://} storage provider, either uploading every file
+ * into an empty location or freshening every file already in place.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LocalFileBackupBenchmark {
+
+    private static final String BUCKET = "benchmark-bucket";
+
+    @Param({"10000", "100000"})
+    public int files;
+
+    @Param({"1024"})
+    public int dataFileSize;
+
+    @Param({"10"})
+    public int concurrentConnections;
+
+    @Param({"NONE", "LZ4"})
+    public CompressionCodec compression;
+
+    @Param({"false", "true"})
+    public boolean hardLinks;
+
+    private Path cassandraDirectory;
+    private Path backupDirectory;
+    private BackupOperationRequest request;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        cassandraDirectory = Files.createTempDirectory("local-file-backup-benchmark");
+        backupDirectory = Files.createTempDirectory("local-file-backup-benchmark-location");
+
+        SyntheticSSTables.generate(cassandraDirectory, files, dataFileSize);
+
+        request = new BackupOperationRequest(new StorageLocation(String.format("file://%s/%s/cluster/node", backupDirectory, BUCKET)),
+                                             null,
+                                             null,
+                                             concurrentConnections,
+                                             true,
+                                             cassandraDirectory,
+                                             cassandraDirectory,
+                                             null,
+                                             compression,
+                                             hardLinks,
+                                             null,
+                                             false,
+                                             null,
+                                             null,
+                                             null,
+                                             ImmutableList.of(),
+                                             SyntheticSSTables.SNAPSHOT_TAG,
+                                             true,
+                                             null,
+                                             false,
+                                             null,
+                                             null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(cassandraDirectory.toFile());
+        FileUtils.deleteDirectory(backupDirectory.toFile());
+    }
+
+    @State(Scope.Benchmark)
+    public static class EmptyLocation {
+        @Setup(Level.Invocation)
+        public void setup(final LocalFileBackupBenchmark benchmark) throws IOException {
+            FileUtils.cleanDirectory(benchmark.backupDirectory.toFile());
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class PopulatedLocation {
+        @Setup(Level.Trial)
+        public void setup(final LocalFileBackupBenchmark benchmark) {
+            benchmark.backup();
+        }
+    }
+
+    @Benchmark
+    public void upload(final EmptyLocation location) {
+        backup();
+    }
+
+    @Benchmark
+    public void freshen(final PopulatedLocation location) {
+        backup();
+    }
+
+    private void backup() {
+        final Map<String, BackuperFactory> backuperFactories = new HashMap<>();
+
+        backuperFactories.put("file", new BackuperFactory() {
+            @Override
+            public Backuper createBackuper(final BackupOperationRequest backupOperationRequest) {
+                return new LocalFileBackuper(new FixedTasksExecutor(), backupOperationRequest);
+            }
+
+            @Override
+            public Backuper createCommitLogBackuper(final BackupCommitLogsOperationRequest backupCommitLogsOperationRequest) {
+                return new LocalFileBackuper(new FixedTasksExecutor(), backupCommitLogsOperationRequest);
+            }
+        });
+
+        final BackupOperation operation = new BackupOperation(null, null, backuperFactories, new FixedTasksExecutor(), request);
+        operation.run();
+
+        if (operation.state != Operation.State.COMPLETED) {
+            throw new IllegalStateException("Backup failed.", operation.failureCause);
+        }
+    }
+}
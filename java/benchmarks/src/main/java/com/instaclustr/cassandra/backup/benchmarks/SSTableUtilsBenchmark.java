@@ -0,0 +1,96 @@
+package com.instaclustr.cassandra.backup.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import com.instaclustr.cassandra.backup.impl.FingerprintCache;
+import com.instaclustr.cassandra.backup.impl.ManifestEntry;
+import com.instaclustr.cassandra.backup.impl.SSTableUtils;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Hashing of SSTables and generation of snapshot manifests, which run over every file of a snapshot on each backup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SSTableUtilsBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int files;
+
+    @Param({"1024"})
+    public int dataFileSize;
+
+    private Path cassandraDirectory;
+    private List<Path> snapshotDirectories;
+    private Path dataFile;
+    private FingerprintCache warmFingerprintCache;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        cassandraDirectory = Files.createTempDirectory("sstable-utils-benchmark");
+        snapshotDirectories = SyntheticSSTables.generate(cassandraDirectory, files, dataFileSize);
+        dataFile = snapshotDirectories.get(0).resolve("mc-1-big-Data.db");
+
+        warmFingerprintCache = FingerprintCache.inMemory();
+        ssTableManifest(warmFingerprintCache, entry -> {
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(cassandraDirectory.toFile());
+    }
+
+    @Benchmark
+    public String sstableHash() throws IOException {
+        return SSTableUtils.sstableHash(dataFile);
+    }
+
+    @Benchmark
+    public String calculateChecksum() throws IOException {
+        return SSTableUtils.calculateChecksum(dataFile);
+    }
+
+    @Benchmark
+    public void ssTableManifest(final Blackhole blackhole) throws IOException {
+        ssTableManifest(FingerprintCache.inMemory(), blackhole::consume);
+    }
+
+    @Benchmark
+    public void ssTableManifestWithWarmFingerprintCache(final Blackhole blackhole) throws IOException {
+        ssTableManifest(warmFingerprintCache, blackhole::consume);
+    }
+
+    private void ssTableManifest(final FingerprintCache fingerprintCache, final Consumer<ManifestEntry> consumer) throws IOException {
+        for (final Path snapshotDirectory : snapshotDirectories) {
+            try (final Stream<ManifestEntry> manifest = SSTableUtils.ssTableManifest(snapshotDirectory, Paths.get("data"), null, fingerprintCache, false)) {
+                manifest.forEach(consumer);
+            }
+        }
+    }
+}
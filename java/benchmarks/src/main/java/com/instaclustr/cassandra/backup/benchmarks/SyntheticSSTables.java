@@ -0,0 +1,107 @@
+package com.instaclustr.cassandra.backup.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Generates Cassandra data directory trees of synthetic SSTables, laid out as
+ * {@code data/<keyspace>/<table>-<id>/snapshots/<tag>/mc-<generation>-big-<component>}.
+ */
+public final class SyntheticSSTables {
+
+    public static final String SNAPSHOT_TAG = "benchmark";
+
+    public static final List<String> COMPONENTS = ImmutableList.of("Data.db",
+                                                                   "Index.db",
+                                                                   "Summary.db",
+                                                                   "Filter.db",
+                                                                   "Statistics.db",
+                                                                   "CompressionInfo.db",
+                                                                   "TOC.txt",
+                                                                   "Digest.crc32");
+
+    private static final int SSTABLES_PER_TABLE = 100;
+
+    private SyntheticSSTables() {
+    }
+
+    /**
+     * Generates SSTables of {@code files} files in total into {@code cassandraDirectory}, in tables of
+     * {@value #SSTABLES_PER_TABLE} SSTables each. Data.db files are {@code dataFileSize} bytes of random data,
+     * other components are small.
+     *
+     * @return snapshot directories of the generated tables
+     */
+    public static List<Path> generate(final Path cassandraDirectory, final int files, final int dataFileSize) throws IOException {
+        final Random random = new Random(0);
+        final List<Path> snapshotDirectories = new ArrayList<>();
+
+        final int sstables = Math.max(1, files / COMPONENTS.size());
+        final byte[] data = new byte[dataFileSize];
+        final byte[] component = new byte[256];
+
+        for (int generation = 1; generation <= sstables; generation++) {
+            final int table = (generation - 1) / SSTABLES_PER_TABLE;
+
+            final Path snapshotDirectory = cassandraDirectory.resolve("data")
+                    .resolve("keyspace" + table % 10)
+                    .resolve(String.format("table%d-%032x", table, table))
+                    .resolve("snapshots")
+                    .resolve(SNAPSHOT_TAG);
+
+            if ((generation - 1) % SSTABLES_PER_TABLE == 0) {
+                Files.createDirectories(snapshotDirectory);
+                snapshotDirectories.add(snapshotDirectory);
+            }
+
+            for (final String componentName : COMPONENTS) {
+                final Path path = snapshotDirectory.resolve(String.format("mc-%d-big-%s", generation, componentName));
+
+                if (componentName.equals("Data.db")) {
+                    random.nextBytes(data);
+                    Files.write(path, data);
+                } else if (componentName.equals("Digest.crc32")) {
+                    Files.write(path, Long.toString(random.nextInt() & 0xffffffffL).getBytes(UTF_8));
+                } else {
+                    random.nextBytes(component);
+                    Files.write(path, component);
+                }
+            }
+        }
+
+        return snapshotDirectories;
+    }
+
+    /**
+     * @return lines of a snapshot manifest of {@code lines} entries, spread over system and user keyspaces
+     */
+    public static List<String> manifestLines(final int lines) {
+        final List<String> keyspaces = ImmutableList.of("system", "system_schema", "system_auth", "system_distributed", "keyspace0", "keyspace1");
+        final List<String> manifest = new ArrayList<>(lines);
+
+        for (int i = 0; i < lines; i++) {
+            final int generation = i / COMPONENTS.size() + 1;
+            final int table = generation / SSTABLES_PER_TABLE;
+
+            manifest.add(String.format("%d data/%s/table%d-%032x/%d-%d/mc-%d-big-%s",
+                                       1024 + i,
+                                       keyspaces.get(table % keyspaces.size()),
+                                       table,
+                                       table,
+                                       generation,
+                                       1000000000 + generation,
+                                       generation,
+                                       COMPONENTS.get(i % COMPONENTS.size())));
+        }
+
+        return manifest;
+    }
+}
@@ -0,0 +1,118 @@
+package com.instaclustr.cassandra.backup.impl.restore;
+
+import static java.util.stream.Collectors.toList;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+import com.instaclustr.cassandra.backup.benchmarks.SyntheticSSTables;
+import com.instaclustr.cassandra.backup.impl.Manifest;
+import com.instaclustr.cassandra.backup.impl.ManifestEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading of manifests, in either format, and filtering of their entries by a restore. It is in the package of
+ * {@link RestorePredicates}, which is package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RestorePredicatesBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int lines;
+
+    private Path textManifest;
+    private Path binaryManifest;
+    private List<Path> objectKeys;
+    private Multimap<String, String> keyspaceTables;
+
+    @Setup
+    public void setup() throws IOException {
+        final List<String> manifestLines = SyntheticSSTables.manifestLines(lines);
+
+        textManifest = Files.createTempFile("manifest", ".txt");
+        Files.write(textManifest, manifestLines);
+
+        binaryManifest = Files.createTempFile("manifest", ".bin");
+        Manifest.writeBinary(binaryManifest, null, Manifest.read(textManifest).entries().collect(toList()));
+
+        objectKeys = manifestLines.stream().map(line -> Paths.get(line.split(" ")[1])).collect(toList());
+        keyspaceTables = ImmutableMultimap.of("keyspace0", "table4", "keyspace1", "table5");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(textManifest);
+        Files.deleteIfExists(binaryManifest);
+    }
+
+    @Benchmark
+    public List<ManifestEntry> readTextManifest() throws IOException {
+        return Manifest.read(textManifest).entries().collect(toList());
+    }
+
+    @Benchmark
+    public List<ManifestEntry> readBinaryManifest() throws IOException {
+        return Manifest.read(binaryManifest).entries().collect(toList());
+    }
+
+    @Benchmark
+    public List<Path> fullExistingRestore() {
+        return objectKeys.stream().filter(RestorePredicates.getManifestFilesForFullExistingRestore(false)).collect(toList());
+    }
+
+    @Benchmark
+    public List<Path> fullNewRestore() {
+        return objectKeys.stream().filter(RestorePredicates.getManifestFilesForFullNewRestore(true)).collect(toList());
+    }
+
+    @Benchmark
+    public List<Path> subsetExistingRestore() {
+        return objectKeys.stream().filter(RestorePredicates.getManifestFilesForSubsetExistingRestore(keyspaceTables, false)).collect(toList());
+    }
+
+    @Benchmark
+    public List<Path> subsetNewRestore() {
+        return objectKeys.stream().filter(RestorePredicates.getManifestFilesForSubsetNewRestore(keyspaceTables, false)).collect(toList());
+    }
+
+    @Benchmark
+    public List<ManifestEntry> subsetExistingRestoreOfTextManifest() throws IOException {
+        return subsetExistingRestore(Manifest.read(textManifest));
+    }
+
+    @Benchmark
+    public List<ManifestEntry> subsetExistingRestoreOfBinaryManifest() throws IOException {
+        return subsetExistingRestore(Manifest.read(binaryManifest));
+    }
+
+    // as done by a restore, tables are selected by their keys so entries of other tables are never parsed
+    private List<ManifestEntry> subsetExistingRestore(final Manifest manifest) {
+        return manifest.getTables()
+                       .stream()
+                       .filter(RestorePredicates.getManifestFilesForSubsetExistingRestore(keyspaceTables, false))
+                       .flatMap(table -> manifest.getEntries(table).stream())
+                       .collect(toList());
+    }
+}
@@ -0,0 +1,102 @@
+package com.instaclustr.io;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Stream computing the CRC32 of the underlying stream as it is read.
+ * <p>
+ * Unlike {@link java.util.zip.CheckedInputStream}, it supports {@link #mark(int)} and {@link #reset()} of the underlying
+ * stream, e.g. when an upload is retried from a mark: bytes read again after a reset are checksummed only once.
+ * The checksum is not known if any part of the stream was skipped rather than read.
+ */
+public class ChecksummingInputStream extends FilterInputStream {
+    private final CRC32 checksum = new CRC32();
+
+    private long position;
+    private long markPosition = -1;
+    private long checksummed;
+    private boolean complete = true;
+
+    public ChecksummingInputStream(final InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int b = super.read();
+
+        if (b != -1) {
+            if (position == checksummed) {
+                checksum.update(b);
+                checksummed++;
+            }
+
+            position++;
+        }
+
+        return b;
+    }
+
+    // read(byte[]) of FilterInputStream delegates to this method
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        final int read = super.read(b, off, len);
+
+        if (read > 0) {
+            final long end = position + read;
+
+            if (position <= checksummed && end > checksummed) {
+                final int alreadyChecksummed = (int) (checksummed - position);
+
+                checksum.update(b, off + alreadyChecksummed, read - alreadyChecksummed);
+                checksummed = end;
+            }
+
+            position = end;
+        }
+
+        return read;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        final long skipped = super.skip(n);
+
+        position += skipped;
+
+        if (position > checksummed) {
+            complete = false;
+        }
+
+        return skipped;
+    }
+
+    @Override
+    public synchronized void mark(final int readlimit) {
+        super.mark(readlimit);
+        markPosition = position;
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        super.reset();
+        position = markPosition;
+    }
+
+    /**
+     * @return number of bytes the checksum is computed of
+     */
+    public long getChecksummedBytes() {
+        return checksummed;
+    }
+
+    /**
+     * @return CRC32 of all bytes read, or -1 if some of them were skipped
+     */
+    public long getChecksum() {
+        return complete ? checksum.getValue() : -1;
+    }
+}
@@ -0,0 +1,92 @@
+package com.instaclustr.io;
+
+/**
+ * Checksum arithmetic not provided by {@link java.util.zip.CRC32}.
+ */
+public final class Checksums {
+
+    private static final int GF2_DIMENSION = 32;
+
+    // reversed CRC-32 polynomial
+    private static final long CRC32_POLYNOMIAL = 0xedb88320L;
+
+    private Checksums() {
+    }
+
+    /**
+     * Combines the CRC32 of two consecutive blocks of bytes into the CRC32 of their concatenation, without the bytes
+     * themselves, as zlib's {@code crc32_combine}. This lets parts of a file be checksummed independently, in any order.
+     *
+     * @param crc1   CRC32 of the first block
+     * @param crc2   CRC32 of the second block
+     * @param length length of the second block in bytes
+     * @return CRC32 of the first block followed by the second block
+     */
+    public static long combineCrc32(final long crc1, final long crc2, final long length) {
+        if (length <= 0) {
+            return crc1;
+        }
+
+        final long[] even = new long[GF2_DIMENSION]; // operator for an even power of two zero bits
+        final long[] odd = new long[GF2_DIMENSION]; // operator for an odd power of two zero bits
+
+        // operator for one zero bit
+        odd[0] = CRC32_POLYNOMIAL;
+        long row = 1;
+
+        for (int n = 1; n < GF2_DIMENSION; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+
+        gf2MatrixSquare(even, odd); // two zero bits
+        gf2MatrixSquare(odd, even); // four zero bits
+
+        // apply length zero bytes to crc1, the first squaring gives the operator for one zero byte
+        long crc = crc1;
+        long remaining = length;
+
+        do {
+            gf2MatrixSquare(even, odd);
+
+            if ((remaining & 1) != 0) {
+                crc = gf2MatrixTimes(even, crc);
+            }
+
+            remaining >>= 1;
+
+            if (remaining == 0) {
+                break;
+            }
+
+            gf2MatrixSquare(odd, even);
+
+            if ((remaining & 1) != 0) {
+                crc = gf2MatrixTimes(odd, crc);
+            }
+
+            remaining >>= 1;
+        } while (remaining != 0);
+
+        return crc ^ crc2;
+    }
+
+    private static long gf2MatrixTimes(final long[] matrix, final long vector) {
+        long sum = 0;
+        long remaining = vector;
+
+        for (int i = 0; remaining != 0; i++, remaining >>>= 1) {
+            if ((remaining & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(final long[] square, final long[] matrix) {
+        for (int n = 0; n < GF2_DIMENSION; n++) {
+            square[n] = gf2MatrixTimes(matrix, matrix[n]);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.instaclustr.io;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Channel to channel transfers of files, done by the kernel where possible (e.g. sendfile on Linux) rather than
+ * by copying through heap buffers.
+ */
+public final class FileChannelTransfers {
+    private static final long MIN_CHUNK_SIZE = 64 * 1024;
+    private static final long MAX_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private FileChannelTransfers() {
+    }
+
+    /**
+     * Transfers the whole {@code source} file to the current position of {@code target}, in chunks.
+     * Each chunk is charged to all rate limiters once it is transferred, chunks being sized so there are
+     * about ten of them per second at the lowest rate.
+     *
+     * @param rateLimiters limiters of bytes per second, empty for no limit
+     * @return number of bytes transferred
+     */
+    public static long transfer(final FileChannel source, final WritableByteChannel target, final List<RateLimiter> rateLimiters) throws IOException {
+        final long size = source.size();
+        final long chunkSize = chunkSize(rateLimiters);
+
+        long position = 0;
+
+        while (position < size) {
+            final long transferred = source.transferTo(position, Math.min(chunkSize, size - position), target);
+
+            if (transferred <= 0) {
+                throw new IOException(String.format("Transfer stalled at %d of %d bytes, was the file truncated?", position, size));
+            }
+
+            for (final RateLimiter rateLimiter : rateLimiters) {
+                rateLimiter.acquire((int) transferred);
+            }
+
+            position += transferred;
+        }
+
+        return position;
+    }
+
+    private static long chunkSize(final List<RateLimiter> rateLimiters) {
+        long chunkSize = MAX_CHUNK_SIZE;
+
+        for (final RateLimiter rateLimiter : rateLimiters) {
+            chunkSize = Math.min(chunkSize, Math.max(MIN_CHUNK_SIZE, (long) (rateLimiter.getRate() / 10)));
+        }
+
+        return chunkSize;
+    }
+}
@@ -3,32 +3,58 @@ package com.instaclustr.io;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
 
 import com.google.common.util.concurrent.RateLimiter;
 
+/**
+ * Stream charging every byte read from the underlying stream to all of its rate limiters.
+ * <p>
+ * Bytes are charged once they are read, so a limiter is charged for bytes actually transferred rather than for
+ * the size of the buffer read into. Reads are capped at {@value #MAX_CHUNK_SIZE} bytes so a large buffer does not
+ * let through a burst before it is charged.
+ */
 public class RateLimitedInputStream extends FilterInputStream {
-    final RateLimiter limiter;
+    private static final int MAX_CHUNK_SIZE = 256 * 1024;
+
+    final RateLimiter[] limiters;
 
     public RateLimitedInputStream(final InputStream in, final RateLimiter limiter) {
+        this(in, Collections.singletonList(limiter));
+    }
+
+    public RateLimitedInputStream(final InputStream in, final List<RateLimiter> limiters) {
         super(in);
-        this.limiter = limiter;
+        this.limiters = limiters.toArray(new RateLimiter[0]);
     }
 
     @Override
     public int read() throws IOException {
-        limiter.acquire();
-        return super.read();
-    }
+        final int b = super.read();
 
-    @Override
-    public int read(final byte[] b) throws IOException {
-        limiter.acquire(Math.max(1, b.length));
-        return super.read(b);
+        if (b != -1) {
+            acquire(1);
+        }
+
+        return b;
     }
 
+    // read(byte[]) of FilterInputStream delegates to this method
     @Override
     public int read(final byte[] b, final int off, final int len) throws IOException {
-        limiter.acquire(Math.max(1, len));
-        return super.read(b, off, len);
+        final int read = super.read(b, off, Math.min(len, MAX_CHUNK_SIZE));
+
+        if (read > 0) {
+            acquire(read);
+        }
+
+        return read;
+    }
+
+    private void acquire(final int permits) {
+        for (int i = 0; i < limiters.length; i++) {
+            limiters[i].acquire(permits);
+        }
     }
-}
\ No newline at end of file
+}
@@ -12,6 +12,9 @@ public final class CassandraObjectNames {
     public static final ObjectName COMPACTION_MANAGER = ObjectNames.create("org.apache.cassandra.db:type=CompactionManager");
     public static final ObjectName AES_OBJECT_NAME = ObjectNames.create("org.apache.cassandra.internal:type=AntiEntropySessions");
     public static final ObjectName STREAM_MANAGER = ObjectNames.create("org.apache.cassandra.net:type=StreamManager");
+    public static final ObjectName PENDING_COMPACTIONS = ObjectNames.create("org.apache.cassandra.metrics:type=Compaction,name=PendingTasks");
+    public static final ObjectName CLIENT_READ_LATENCY = ObjectNames.create("org.apache.cassandra.metrics:type=ClientRequest,scope=Read,name=Latency");
+    public static final ObjectName CLIENT_WRITE_LATENCY = ObjectNames.create("org.apache.cassandra.metrics:type=ClientRequest,scope=Write,name=Latency");
 
     private CassandraObjectNames() {}
 
@@ -1,14 +1,21 @@
 package com.instaclustr.cassandra.sidecar;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.google.inject.Module;
 import com.google.inject.Stage;
 import com.instaclustr.cassandra.backup.aws.S3Module;
 import com.instaclustr.cassandra.backup.azure.AzureModule;
 import com.instaclustr.cassandra.backup.gcp.GCPModule;
 import com.instaclustr.cassandra.backup.impl.backup.BackupModule;
+import com.instaclustr.cassandra.backup.impl.backup.CommitLogArchiverModule;
+import com.instaclustr.cassandra.backup.impl.verify.VerifyModule;
 import com.instaclustr.cassandra.backup.local.LocalFileModule;
 import com.instaclustr.cassandra.sidecar.operations.cleanup.CleanupsModule;
 import com.instaclustr.cassandra.sidecar.operations.decommission.DecommissioningModule;
@@ -19,6 +26,7 @@ import com.instaclustr.guice.Application;
 import com.instaclustr.guice.ServiceManagerModule;
 import com.instaclustr.picocli.CLIApplication;
 import com.instaclustr.picocli.CassandraJMXSpec;
+import com.instaclustr.picocli.typeconverter.PathTypeConverter;
 import com.instaclustr.sidecar.http.JerseyHttpServerModule;
 import com.instaclustr.operations.OperationsModule;
 import com.instaclustr.sidecar.picocli.SidecarSpec;
@@ -30,6 +38,7 @@ import org.slf4j.bridge.SLF4JBridgeHandler;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Mixin;
 import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
 import picocli.CommandLine.Spec;
 
 @Command(name = "cassandra-sidecar",
@@ -46,6 +55,12 @@ public final class Sidecar extends CLIApplication implements Callable<Void> {
     @Mixin
     private CassandraJMXSpec jmxSpec;
 
+    @Option(names = {"--commitlog-archiving"},
+            description = "JSON file with a request of a commitlog-backup operation. When set, commit log segments archived by Cassandra " +
+                    "into its commit log archive directory are uploaded continuously, and deleted once uploaded.",
+            converter = PathTypeConverter.class)
+    private Path commitLogArchivingRequest;
+
     @Spec
     private CommandSpec commandSpec;
 
@@ -61,9 +76,7 @@ public final class Sidecar extends CLIApplication implements Callable<Void> {
 
         logCommandVersionInformation(commandSpec);
 
-        final Injector injector = Guice.createInjector(
-                Stage.PRODUCTION, // production binds singletons as eager by default
-
+        final List<Module> modules = new ArrayList<>(Arrays.asList(
                 new VersionModule(getVersion()),
                 new ServiceManagerModule(),
 
@@ -86,7 +99,17 @@ public final class Sidecar extends CLIApplication implements Callable<Void> {
                 new GCPModule(),
                 new LocalFileModule(),
                 new BackupModule(),
+                new VerifyModule(),
                 new ExecutorsModule()
+        ));
+
+        if (commitLogArchivingRequest != null) {
+            modules.add(new CommitLogArchiverModule(commitLogArchivingRequest));
+        }
+
+        final Injector injector = Guice.createInjector(
+                Stage.PRODUCTION, // production binds singletons as eager by default
+                modules
         );
 
         return injector.getInstance(Application.class).call();